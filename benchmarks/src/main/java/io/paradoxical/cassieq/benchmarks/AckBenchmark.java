@@ -0,0 +1,64 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.PopReceipt;
+import io.paradoxical.cassieq.workers.reader.Reader;
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each receipt can only be acked once, so each iteration publishes and consumes
+ * a fixed batch up front and times acking exactly that many receipts
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = AckBenchmark.MESSAGES_PER_ITERATION)
+@Measurement(iterations = 10, batchSize = AckBenchmark.MESSAGES_PER_ITERATION)
+@Fork(1)
+public class AckBenchmark extends QueueBenchmarkState {
+    static final int MESSAGES_PER_ITERATION = 1000;
+
+    private static final Duration invisibility = Duration.standardMinutes(10);
+
+    private final Queue<PopReceipt> popReceipts = new ArrayDeque<>();
+
+    private Reader reader;
+
+    @Setup(Level.Iteration)
+    public void consumeMessages() throws ExistingMonotonFoundException {
+        publish(MESSAGES_PER_ITERATION);
+
+        reader = createReader();
+
+        popReceipts.clear();
+
+        for (int i = 0; i < MESSAGES_PER_ITERATION; i++) {
+            final Optional<Message> message = reader.nextMessage(invisibility);
+
+            if (!message.isPresent()) {
+                throw new IllegalStateException("Expected " + MESSAGES_PER_ITERATION + " messages but only read " + i);
+            }
+
+            popReceipts.add(PopReceipt.from(message.get()));
+        }
+    }
+
+    @Benchmark
+    public boolean ackMessage() {
+        return reader.ackMessage(popReceipts.poll());
+    }
+}
@@ -0,0 +1,112 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import com.google.common.base.Optional;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.paradoxical.cassieq.ServiceConfiguration;
+import io.paradoxical.cassieq.discoverable.auth.AccountPrincipal;
+import io.paradoxical.cassieq.discoverable.auth.AuthorizedRequestCredentials;
+import io.paradoxical.cassieq.discoverable.auth.SignedRequestAuthParameters;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountKey;
+import io.paradoxical.cassieq.model.auth.MacProviders;
+import io.paradoxical.cassieq.model.auth.SignedRequestSignatureGenerator;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.paradoxical.cassieq.benchmarks.EmbeddedQueueEnvironment.benchmarkAccountName;
+
+/**
+ * Signed request verification, which every api call goes through (account key lookup plus hmac)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AuthenticatorBenchmark {
+    private static final String requestMethod = "GET";
+
+    private static final String requestPath = "/api/v1/accounts/benchmarks/queues/benchmark/messages/next";
+
+    private EmbeddedQueueEnvironment environment;
+
+    private Authenticator<AuthorizedRequestCredentials, AccountPrincipal> authenticator;
+
+    private AccountKey accountKey;
+
+    private AuthorizedRequestCredentials credentials;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ServiceConfiguration configuration = new ServiceConfiguration();
+
+        // the signature is computed once per iteration, don't let it age out mid run
+        configuration.getAuthConfig().setAllowedClockSkew(io.dropwizard.util.Duration.minutes(10));
+
+        environment = new EmbeddedQueueEnvironment(configuration);
+
+        authenticator = environment.getInjector()
+                                   .getInstance(Key.get(new TypeLiteral<Authenticator<AuthorizedRequestCredentials, AccountPrincipal>>() {}));
+
+        accountKey = environment.getDataContextFactory()
+                                .getAccountRepository()
+                                .getAccount(benchmarkAccountName)
+                                .get()
+                                .getKeys()
+                                .values()
+                                .asList()
+                                .get(0);
+    }
+
+    @Setup(Level.Iteration)
+    public void signRequest() throws AuthenticationException {
+        final DateTime requestTime = DateTime.now(DateTimeZone.UTC);
+
+        final String signature = new SignedRequestSignatureGenerator(benchmarkAccountName, requestMethod, requestPath, requestTime)
+                .computeSignature(MacProviders.HmacSha256(accountKey));
+
+        credentials = AuthorizedRequestCredentials.builder()
+                                                  .accountName(benchmarkAccountName)
+                                                  .queueName(java.util.Optional.of(QueueName.valueOf("benchmark")))
+                                                  .requestAuthParameters(SignedRequestAuthParameters.builder()
+                                                                                                    .accountName(benchmarkAccountName)
+                                                                                                    .requestMethod(requestMethod)
+                                                                                                    .requestPath(requestPath)
+                                                                                                    .requestTime(requestTime)
+                                                                                                    .providedSignature(signature)
+                                                                                                    .build())
+                                                  .build();
+
+        if (!authenticator.authenticate(credentials).isPresent()) {
+            throw new IllegalStateException("Benchmark credentials did not authenticate");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public Optional<AccountPrincipal> authenticate() throws AuthenticationException {
+        return authenticator.authenticate(credentials);
+    }
+}
@@ -0,0 +1,92 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import com.datastax.driver.core.Session;
+import com.google.inject.Injector;
+import com.netflix.governator.Governator;
+import io.paradoxical.cassieq.ServiceConfiguration;
+import io.paradoxical.cassieq.dataAccess.CqlDb;
+import io.paradoxical.cassieq.factories.DataContextFactory;
+import io.paradoxical.cassieq.model.BucketSize;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.modules.DefaultApplicationModules;
+import io.paradoxical.cassieq.unittests.modules.HazelcastTestModule;
+import io.paradoxical.cassieq.unittests.modules.InMemorySessionProvider;
+import io.paradoxical.cassieq.unittests.modules.MockEnvironmentModule;
+import io.paradoxical.common.test.guice.ModuleUtils;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Wires the real application modules against the same embedded cassandra session the db tests use.
+ *
+ * Benchmarks must be run from the benchmarks directory so the schema scripts in ../db/scripts resolve
+ */
+public class EmbeddedQueueEnvironment implements AutoCloseable {
+    public static final AccountName benchmarkAccountName = AccountName.valueOf("benchmarks");
+
+    private static Session session;
+
+    private final HazelcastTestModule hazelcastModule;
+
+    @Getter
+    private final Injector injector;
+
+    public EmbeddedQueueEnvironment() {
+        this(new ServiceConfiguration());
+    }
+
+    public EmbeddedQueueEnvironment(ServiceConfiguration configuration) {
+        hazelcastModule = new HazelcastTestModule("benchmarks_" + UUID.randomUUID());
+
+        injector = Governator.createInjector(
+                ModuleUtils.mergeModules(DefaultApplicationModules.getModules(),
+                                         Arrays.asList(new InMemorySessionProvider(getSession()),
+                                                       new MockEnvironmentModule(configuration),
+                                                       hazelcastModule)));
+
+        getDataContextFactory().getAccountRepository().createAccount(benchmarkAccountName);
+    }
+
+    /**
+     * Each call gets a fresh queue so iterations and forks never see each others messages
+     */
+    public QueueDefinition createQueue(int bucketSize) {
+        final QueueName queueName = QueueName.valueOf("bench_" + UUID.randomUUID().toString().replace("-", ""));
+
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(benchmarkAccountName)
+                                                               .queueName(queueName)
+                                                               .bucketSize(BucketSize.valueOf(bucketSize))
+                                                               .build();
+
+        return getDataContextFactory().forAccount(benchmarkAccountName)
+                                      .createQueue(queueDefinition)
+                                      .orElseThrow(() -> new IllegalStateException("Unable to create benchmark queue " + queueName));
+    }
+
+    public DataContextFactory getDataContextFactory() {
+        return injector.getInstance(DataContextFactory.class);
+    }
+
+    @Override
+    public void close() {
+        hazelcastModule.close();
+    }
+
+    private static synchronized Session getSession() {
+        if (session == null) {
+            try {
+                session = CqlDb.create();
+            }
+            catch (Exception e) {
+                throw new RuntimeException("Unable to start embedded cassandra", e);
+            }
+        }
+
+        return session;
+    }
+}
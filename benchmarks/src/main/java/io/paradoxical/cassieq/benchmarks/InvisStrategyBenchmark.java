@@ -0,0 +1,69 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.workers.reader.InvisStrategy;
+import io.paradoxical.cassieq.workers.reader.Reader;
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The invisibility check every consume does before going to the reader bucket.
+ *
+ * Finding a message doesn't consume it, so the queue state is stable across invocations. Either
+ * every consumed message is still invisible (the common case, the pointer stays put) or they
+ * have all come back alive and the pointer is sitting on one
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InvisStrategyBenchmark extends QueueBenchmarkState {
+    private static final Duration shortInvisibility = Duration.standardSeconds(2);
+
+    private static final Duration longInvisibility = Duration.standardMinutes(10);
+
+    @Param({ "false", "true" })
+    public boolean revived;
+
+    private InvisStrategy invisStrategy;
+
+    @Setup(Level.Trial)
+    public void consumeMessages() throws ExistingMonotonFoundException, InterruptedException {
+        final int messageCount = bucketSize * 2;
+
+        publish(messageCount);
+
+        final Reader reader = createReader();
+
+        for (int i = 0; i < messageCount; i++) {
+            reader.nextMessage(revived ? shortInvisibility : longInvisibility);
+        }
+
+        if (revived) {
+            Thread.sleep(shortInvisibility.multipliedBy(2).getMillis());
+        }
+
+        invisStrategy = environment.getInjector()
+                                   .getInstance(InvisStrategy.Factory.class)
+                                   .forQueue(queueDefinition);
+    }
+
+    @Benchmark
+    public Optional<Message> findNextVisibleMessage() {
+        return invisStrategy.findNextVisibleMessage(longInvisibility);
+    }
+}
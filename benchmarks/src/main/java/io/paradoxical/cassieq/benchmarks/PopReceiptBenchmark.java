@@ -0,0 +1,49 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.model.MessageTag;
+import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.PopReceipt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipts are encoded on every consume and decoded on every ack
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PopReceiptBenchmark {
+    private PopReceipt popReceipt;
+
+    private String encodedPopReceipt;
+
+    @Setup
+    public void setup() {
+        popReceipt = new PopReceipt(MonotonicIndex.valueOf(123456789L), 3, MessageTag.random());
+
+        encodedPopReceipt = popReceipt.toString();
+    }
+
+    @Benchmark
+    public PopReceipt valueOf() {
+        return PopReceipt.valueOf(encodedPopReceipt);
+    }
+
+    @Benchmark
+    public String encode() {
+        return popReceipt.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single message publish, the path behind PUT /messages
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PublishBenchmark extends QueueBenchmarkState {
+    @Benchmark
+    public void put() throws ExistingMonotonFoundException {
+        publisher.put(queueDefinition, "benchmark", 0L);
+    }
+}
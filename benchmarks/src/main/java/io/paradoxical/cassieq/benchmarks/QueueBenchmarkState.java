@@ -0,0 +1,54 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.factories.ReaderFactory;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.workers.MessagePublisher;
+import io.paradoxical.cassieq.workers.reader.Reader;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+
+/**
+ * Shared setup for benchmarks that run against a single queue, parameterized by bucket size
+ */
+@State(Scope.Benchmark)
+public abstract class QueueBenchmarkState {
+    @Param({ "20", "100", "500" })
+    public int bucketSize;
+
+    protected EmbeddedQueueEnvironment environment;
+
+    protected QueueDefinition queueDefinition;
+
+    protected MessagePublisher publisher;
+
+    @Setup(Level.Trial)
+    public void setupQueue() {
+        environment = new EmbeddedQueueEnvironment();
+
+        publisher = environment.getInjector().getInstance(MessagePublisher.class);
+
+        queueDefinition = environment.createQueue(bucketSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownQueue() {
+        environment.close();
+    }
+
+    protected Reader createReader() {
+        return environment.getInjector()
+                          .getInstance(ReaderFactory.class)
+                          .forQueue(EmbeddedQueueEnvironment.benchmarkAccountName, queueDefinition);
+    }
+
+    protected void publish(int count) throws ExistingMonotonFoundException {
+        publisher.put(queueDefinition, Collections.nCopies(count, "benchmark"), 0L);
+    }
+}
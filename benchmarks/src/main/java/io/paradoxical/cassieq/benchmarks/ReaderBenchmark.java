@@ -0,0 +1,47 @@
+package io.paradoxical.cassieq.benchmarks;
+
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.workers.reader.Reader;
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consuming drains the queue, so each iteration publishes a fixed batch up front
+ * and times consuming exactly that many messages
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = ReaderBenchmark.MESSAGES_PER_ITERATION)
+@Measurement(iterations = 10, batchSize = ReaderBenchmark.MESSAGES_PER_ITERATION)
+@Fork(1)
+public class ReaderBenchmark extends QueueBenchmarkState {
+    static final int MESSAGES_PER_ITERATION = 1000;
+
+    private static final Duration invisibility = Duration.standardMinutes(10);
+
+    private Reader reader;
+
+    @Setup(Level.Iteration)
+    public void fillQueue() throws ExistingMonotonFoundException {
+        publish(MESSAGES_PER_ITERATION);
+
+        reader = createReader();
+    }
+
+    @Benchmark
+    public Optional<Message> nextMessage() {
+        return reader.nextMessage(invisibility);
+    }
+}
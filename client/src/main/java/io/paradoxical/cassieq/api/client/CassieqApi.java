@@ -3,7 +3,9 @@ package io.paradoxical.cassieq.api.client;
 import com.godaddy.logging.Logger;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.ResponseBody;
+import io.paradoxical.cassieq.model.AckMessagesResponse;
 import io.paradoxical.cassieq.model.GetMessageResponse;
 import io.paradoxical.cassieq.model.QueueCreateOptions;
 import io.paradoxical.cassieq.model.QueueName;
@@ -17,12 +19,15 @@ import retrofit.Retrofit;
 import retrofit.http.Body;
 import retrofit.http.DELETE;
 import retrofit.http.GET;
+import retrofit.http.HTTP;
 import retrofit.http.POST;
 import retrofit.http.PUT;
 import retrofit.http.Path;
 import retrofit.http.Query;
+import retrofit.http.Streaming;
 
 import java.net.URI;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.godaddy.logging.LoggerFactory.getLogger;
@@ -69,12 +74,55 @@ public interface CassieqApi {
             @Path("queueName") QueueName queueName,
             @Query("invisibilityTimeSeconds") Long invisibilityTimeSeconds);
 
+    @GET("api/v1/accounts/{accountName}/queues/{queueName}/messages/next")
+    Call<GetMessageResponse> getMessage(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Query("invisibilityTimeSeconds") Long invisibilityTimeSeconds,
+            @Query("waitSeconds") Integer waitSeconds);
+
+    @GET("api/v1/accounts/{accountName}/queues/{queueName}/messages/next")
+    Call<List<GetMessageResponse>> getMessages(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Query("invisibilityTimeSeconds") Long invisibilityTimeSeconds,
+            @Query("count") Integer count);
+
+    /**
+     * The body is the message as published, the pop receipt comes back in {@link io.paradoxical.cassieq.model.MessageHeaders#POP_RECEIPT}
+     */
+    @GET("api/v1/accounts/{accountName}/queues/{queueName}/messages/next/raw")
+    Call<ResponseBody> getMessageBytes(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Query("invisibilityTimeSeconds") Long invisibilityTimeSeconds);
+
+    @Streaming
+    @GET("api/v1/accounts/{accountName}/queues/{queueName}/messages/stream")
+    Call<ResponseBody> streamMessages(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Query("invisibilityTimeSeconds") Long invisibilityTimeSeconds,
+            @Query("maxInFlight") Integer maxInFlight);
+
     @POST("api/v1/accounts/{accountName}/queues/{queueName}/messages")
     Call<ResponseBody> addMessage(
             @Path("accountName") AccountName accountName,
             @Path("queueName") QueueName queueName,
             @Body Object message);
 
+    @POST("api/v1/accounts/{accountName}/queues/{queueName}/messages/raw")
+    Call<ResponseBody> addMessageBytes(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Body RequestBody message);
+
+    @POST("api/v1/accounts/{accountName}/queues/{queueName}/messages/batch")
+    Call<ResponseBody> addMessages(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Body List<String> messages);
+
     @PUT("api/v1/accounts/{accountName}/queues/{queueName}/messages")
     Call<UpdateMessageResponse> updateMessage(
             @Path("accountName") AccountName accountName,
@@ -89,12 +137,26 @@ public interface CassieqApi {
             @Body Object message,
             @Query("initialInvisibilitySeconds") Long initialInvisibilitySeconds);
 
+    @POST("api/v1/accounts/{accountName}/queues/{queueName}/messages")
+    Call<ResponseBody> addMessage(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Body Object message,
+            @Query("initialInvisibilitySeconds") Long initialInvisibilitySeconds,
+            @Query("priority") Integer priority);
+
     @DELETE("api/v1/accounts/{accountName}/queues/{queueName}/messages")
     Call<ResponseBody> ackMessage(
             @Path("accountName") AccountName accountName,
             @Path("queueName") QueueName queueName,
             @Query("popReceipt") String popReceipt);
 
+    @HTTP(method = "DELETE", path = "api/v1/accounts/{accountName}/queues/{queueName}/messages/batch", hasBody = true)
+    Call<AckMessagesResponse> ackMessages(
+            @Path("accountName") AccountName accountName,
+            @Path("queueName") QueueName queueName,
+            @Body List<String> popReceipts);
+
     @DELETE("/api/v1/accounts/{accountName}/queues/{queueName}")
     Call<ResponseBody> deleteQueue(
             @Path("accountName") AccountName accountName,
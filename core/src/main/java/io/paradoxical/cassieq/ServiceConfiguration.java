@@ -4,9 +4,18 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.paradoxical.cassieq.configurations.AllocationConfig;
 import io.paradoxical.cassieq.configurations.AuthConfig;
+import io.paradoxical.cassieq.configurations.BucketSnapshotConfig;
 import io.paradoxical.cassieq.configurations.ClusteringConfig;
+import io.paradoxical.cassieq.configurations.DelayedDeliveryConfig;
+import io.paradoxical.cassieq.configurations.EmptyQueueCacheConfig;
 import io.paradoxical.cassieq.configurations.LogConfig;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.configurations.PublishConfig;
+import io.paradoxical.cassieq.configurations.QueueCacheConfig;
+import io.paradoxical.cassieq.configurations.QueueStatsConfig;
+import io.paradoxical.cassieq.configurations.ReaderCatchUpConfig;
 import io.paradoxical.cassieq.configurations.RepairConfig;
+import io.paradoxical.cassieq.configurations.VisibilityIndexConfig;
 import io.paradoxical.cassieq.configurations.cassandra.CassandraConfiguration;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -51,4 +60,49 @@ public class ServiceConfiguration extends Configuration {
     @NotNull
     @JsonProperty("auth")
     private AuthConfig authConfig = new AuthConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("publish")
+    private PublishConfig publishConfig = new PublishConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("queueCache")
+    private QueueCacheConfig queueCacheConfig = new QueueCacheConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("bucketSnapshot")
+    private BucketSnapshotConfig bucketSnapshotConfig = new BucketSnapshotConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("longPolling")
+    private LongPollConfig longPollConfig = new LongPollConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("emptyQueueCache")
+    private EmptyQueueCacheConfig emptyQueueCacheConfig = new EmptyQueueCacheConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("queueStats")
+    private QueueStatsConfig queueStatsConfig = new QueueStatsConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("delayedDelivery")
+    private DelayedDeliveryConfig delayedDeliveryConfig = new DelayedDeliveryConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("visibilityIndex")
+    private VisibilityIndexConfig visibilityIndexConfig = new VisibilityIndexConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("readerCatchUp")
+    private ReaderCatchUpConfig readerCatchUpConfig = new ReaderCatchUpConfig();
 }
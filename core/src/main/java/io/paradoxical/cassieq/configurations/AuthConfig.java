@@ -3,8 +3,22 @@ package io.paradoxical.cassieq.configurations;
 import io.dropwizard.util.Duration;
 import lombok.Data;
 
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
 @Data
 public class AuthConfig {
 
     private Duration allowedClockSkew = Duration.seconds(5);
+
+    /**
+     * How long a node trusts its cached copy of an account's keys. Key changes are pushed
+     * over the event bus, this only bounds staleness if a node misses the event
+     */
+    @NotNull
+    private Duration accountCacheTtl = Duration.seconds(10);
+
+    @NotNull
+    @Min(1)
+    private Integer accountCacheMaxSize = 10000;
 }
@@ -0,0 +1,27 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class BucketSnapshotConfig {
+    /**
+     * Keep a short lived copy of recently read buckets so the reader and invis strategy
+     * don't re-read the whole bucket partition several times for a single read request.
+     *
+     * Consumes and acks made on this node are applied to the copy, writes from other nodes
+     * are only seen once it expires or a conditional update against it fails
+     */
+    @NotNull
+    private Boolean enabled = true;
+
+    @NotNull
+    @Min(1)
+    private Integer maxBuckets = 10000;
+
+    @NotNull
+    @Min(1)
+    private Integer ttlMillis = 1000;
+}
@@ -0,0 +1,53 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class DelayedDeliveryConfig {
+    /**
+     * Park messages published with a long initial invisibility in a store keyed by time slot,
+     * and move them into the queue once they come due, instead of writing them to the current bucket
+     * where they keep it from being finalized and hold the invisibility pointer back until they show up
+     */
+    @NotNull
+    private Boolean enabled = false;
+
+    /**
+     * Initial invisibility at or past which a message is delayed, anything shorter goes straight into the queue.
+     * Never less than two slots, so nothing is written to a slot the mover may already be done with
+     */
+    @NotNull
+    @Min(1)
+    private Integer thresholdSeconds = 300;
+
+    /**
+     * Width of a slot. Messages are moved a slot at a time, so one may show up to a slot
+     * before it is due (it stays invisible in the queue for the rest of its delay).
+     *
+     * Slots are counted from the epoch in this width, don't change it while messages are delayed
+     */
+    @NotNull
+    @Min(1)
+    private Integer slotSeconds = 60;
+
+    @NotNull
+    @Min(1)
+    private Integer moveIntervalSeconds = 10;
+
+    /**
+     * Due messages are published and their slot cleared this many at a time
+     */
+    @NotNull
+    @Min(1)
+    private Integer moveBatchSize = 100;
+
+    /**
+     * How long past its due time a message that was never moved (its queue was deleted, say) is kept around
+     */
+    @NotNull
+    @Min(1)
+    private Integer retentionSeconds = 7 * 24 * 60 * 60;
+}
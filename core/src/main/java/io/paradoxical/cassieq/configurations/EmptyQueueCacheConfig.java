@@ -0,0 +1,23 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class EmptyQueueCacheConfig {
+    /**
+     * Answer reads on queues this node recently found empty without going to cassandra.
+     *
+     * Publishes and messages coming due that this node knows about end the empty window right away,
+     * anything else (consumes on other nodes, or publishes when publish notifications are off)
+     * can go unseen for up to maxEmptyMillis
+     */
+    @NotNull
+    private Boolean enabled = true;
+
+    @NotNull
+    @Min(1)
+    private Integer maxEmptyMillis = 2000;
+}
@@ -0,0 +1,52 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class LongPollConfig {
+    /**
+     * Upper bound on the waitSeconds a reader can ask for, larger values are clamped
+     */
+    @NotNull
+    @Min(0)
+    private Integer maxWaitSeconds = 20;
+
+    /**
+     * Parked readers retry at least this often, so messages that become visible
+     * (rather than being published) are still picked up while waiting
+     */
+    @NotNull
+    @Min(1)
+    private Integer recheckIntervalMillis = 1000;
+
+    /**
+     * Threads that retry parked reads once they are woken, bounds how many read at once
+     */
+    @NotNull
+    @Min(1)
+    private Integer readerThreads = 16;
+
+    /**
+     * Send a wakeup over the event bus on publish so readers parked on any node retry right away
+     */
+    @NotNull
+    private Boolean publishNotificationsEnabled = true;
+
+    /**
+     * A queue gets at most one wakeup per window, the first publish sends one right away and any
+     * publishes after it in the window share a single wakeup at its end. 0 sends one per publish
+     */
+    @NotNull
+    @Min(0)
+    private Integer publishNotificationWindowMillis = 100;
+
+    /**
+     * A message stream with nothing to deliver writes a blank line this often so dead connections get noticed
+     */
+    @NotNull
+    @Min(1)
+    private Integer streamHeartbeatSeconds = 10;
+}
@@ -0,0 +1,48 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class PublishConfig {
+    /**
+     * When enabled each node leases a block of monotons and hands them out locally
+     * instead of doing a conditional update on the monoton row for every publish.
+     *
+     * Messages published to different nodes land in different leased ranges, so strict
+     * ordering across nodes is traded for publish throughput.
+     */
+    @NotNull
+    private Boolean monotonLeasingEnabled = false;
+
+    @NotNull
+    @Min(1)
+    private Integer monotonLeaseSize = 1000;
+
+    /**
+     * How long a node will hand out indexes from a lease before abandoning the rest of it.
+     *
+     * Readers won't close a bucket covered by a lease until it is released, and a lease held by a node
+     * that went away is only cleaned up after twice this value, so keep this short.
+     */
+    @NotNull
+    @Min(1)
+    private Integer monotonLeaseDurationSeconds = 5;
+
+    /**
+     * Upper bound on the body bytes written in one batch, a bucket with more than this
+     * gets split into several batches so a single partition write stays small.
+     */
+    @NotNull
+    @Min(1)
+    private Integer maxBatchBytes = 1048576;
+
+    /**
+     * Threads that write batch publishes for async requests, bounds how many batches are written at once
+     */
+    @NotNull
+    @Min(1)
+    private Integer batchPublishThreads = 16;
+}
@@ -0,0 +1,26 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class QueueCacheConfig {
+    /**
+     * Cache active queue definitions for request lookups and reader activity checks.
+     *
+     * Changes are pushed to every node over the event bus, the ttl only bounds how long
+     * a node can serve a stale definition if it misses an event
+     */
+    @NotNull
+    private Boolean enabled = true;
+
+    @NotNull
+    @Min(1)
+    private Integer maxSize = 10000;
+
+    @NotNull
+    @Min(1)
+    private Integer ttlSeconds = 30;
+}
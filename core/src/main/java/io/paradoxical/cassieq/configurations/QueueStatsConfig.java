@@ -0,0 +1,23 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class QueueStatsConfig {
+    /**
+     * Sum queue size changes on each node and write them to the counter on an interval,
+     * instead of a counter write per put and ack.
+     *
+     * Sizes read on a node include that node's pending changes, other nodes' changes
+     * show up within flushIntervalMillis
+     */
+    @NotNull
+    private Boolean aggregationEnabled = true;
+
+    @NotNull
+    @Min(1)
+    private Integer flushIntervalMillis = 1000;
+}
@@ -0,0 +1,18 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class ReaderCatchUpConfig {
+    /**
+     * How many buckets past the one it just closed a reader looks at in one go. Buckets
+     * that are already done are tombstoned together and the reader pointer jumps past
+     * all of them in a single update. 0 turns it off and the reader closes one bucket at a time
+     */
+    @NotNull
+    @Min(0)
+    private Integer maxBuckets = 10;
+}
@@ -3,6 +3,7 @@ package io.paradoxical.cassieq.configurations;
 import lombok.Getter;
 import lombok.Setter;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
 
@@ -12,4 +13,32 @@ public class RepairConfig {
     @Getter
     @Setter
     private Integer managerRefreshRateSeconds = Long.valueOf(Duration.ofMinutes(1).getSeconds()).intValue();
+
+    /**
+     * When the repair pointer is at least this many buckets behind the reader, a run finalizes every
+     * bucket whose tombstone timeout has already passed instead of watching them one per poll
+     */
+    @NotNull
+    @Min(1)
+    @Getter
+    @Setter
+    private Integer backlogThresholdBuckets = 10;
+
+    /**
+     * Most buckets a single backlog run takes on
+     */
+    @NotNull
+    @Min(1)
+    @Getter
+    @Setter
+    private Integer backlogMaxBuckets = 1000;
+
+    /**
+     * How many buckets a backlog run reads and finalizes at the same time
+     */
+    @NotNull
+    @Min(1)
+    @Getter
+    @Setter
+    private Integer backlogParallelism = 8;
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package io.paradoxical.cassieq.configurations;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class VisibilityIndexConfig {
+    /**
+     * Find messages coming back from invisibility through an index of when they come due,
+     * instead of walking the buckets behind the invisibility pointer.
+     *
+     * Every write that hides a message (a consume, an update, a publish with initial invisibility)
+     * also writes an index entry. Messages already invisible when this is turned on aren't in
+     * the index, so switch it on while a queue is drained
+     */
+    @NotNull
+    private Boolean enabled = false;
+
+    /**
+     * Entries are grouped by when they come due in slots this wide, readers only look at slots that are due.
+     *
+     * Slots are counted from the epoch in this width, don't change it while messages are invisible
+     */
+    @NotNull
+    @Min(1)
+    private Integer slotSeconds = 60;
+
+    /**
+     * Most entries looked at per slot on a read
+     */
+    @NotNull
+    @Min(1)
+    private Integer scanLimit = 100;
+
+    /**
+     * How long past its due time an entry nobody looked at (its queue was deleted, say) is kept around
+     */
+    @NotNull
+    @Min(1)
+    private Integer retentionSeconds = 24 * 60 * 60;
+}
@@ -0,0 +1,95 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
+import io.paradoxical.cassieq.clustering.eventing.EventListener;
+import io.paradoxical.cassieq.configurations.AuthConfig;
+import io.paradoxical.cassieq.model.accounts.AccountDefinition;
+import io.paradoxical.cassieq.model.accounts.AccountKey;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.model.events.AccountUpdatedEvent;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Node local cache of account keys for request authentication.
+ *
+ * Unknown accounts aren't cached. Key changes invalidate synchronously on the node
+ * making them and on every other node when the account event comes over the bus
+ */
+public class AccountKeyCache {
+    private final Cache<AccountName, ImmutableList<AccountKey>> cache;
+
+    /**
+     * Bumped before every invalidation so a load that raced one isn't left in the cache
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Inject
+    public AccountKeyCache(EventBus eventBus, AuthConfig config) {
+        cache = CacheBuilder.newBuilder()
+                            .maximumSize(config.getAccountCacheMaxSize())
+                            .expireAfterWrite(config.getAccountCacheTtl().toMilliseconds(), TimeUnit.MILLISECONDS)
+                            .build();
+
+        eventBus.register(AccountUpdatedEvent.class, new EventListener<AccountUpdatedEvent>() {
+            @Override
+            public void onMessage(final AccountUpdatedEvent item) {
+                if (item.getAccountName() == null) {
+                    generation.incrementAndGet();
+
+                    cache.invalidateAll();
+
+                    return;
+                }
+
+                invalidate(AccountName.valueOf(item.getAccountName()));
+            }
+        });
+    }
+
+    public Optional<ImmutableList<AccountKey>> getKeys(AccountName accountName, Supplier<Optional<AccountDefinition>> loader) {
+        final ImmutableList<AccountKey> cached = cache.getIfPresent(accountName);
+
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        final long loadGeneration = generation.get();
+
+        // copy the keys out, account definitions are mutable
+        final Optional<ImmutableList<AccountKey>> loaded = loader.get().map(account -> account.getKeys().values().asList());
+
+        loaded.ifPresent(keys -> cacheLoaded(accountName, keys, loadGeneration));
+
+        return loaded;
+    }
+
+    public void invalidate(AccountName accountName) {
+        generation.incrementAndGet();
+
+        cache.invalidate(accountName);
+    }
+
+    /**
+     * Same as the queue definition cache, checking again after the put covers an invalidation
+     * that comes in between the check and the put
+     */
+    private void cacheLoaded(AccountName accountName, ImmutableList<AccountKey> keys, long loadGeneration) {
+        if (generation.get() != loadGeneration) {
+            return;
+        }
+
+        cache.put(accountName, keys);
+
+        if (generation.get() != loadGeneration) {
+            cache.invalidate(accountName);
+        }
+    }
+}
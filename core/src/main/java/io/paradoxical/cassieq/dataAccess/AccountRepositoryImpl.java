@@ -9,14 +9,17 @@ import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.godaddy.logging.Logger;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
 import io.paradoxical.cassieq.dataAccess.interfaces.AccountRepository;
 import io.paradoxical.cassieq.model.accounts.AccountDefinition;
 import io.paradoxical.cassieq.model.accounts.AccountKey;
 import io.paradoxical.cassieq.model.accounts.AccountName;
 import io.paradoxical.cassieq.model.accounts.KeyName;
 import io.paradoxical.cassieq.model.accounts.WellKnownKeyNames;
+import io.paradoxical.cassieq.model.events.AccountUpdatedEvent;
 
 import java.security.SecureRandom;
 import java.util.HashMap;
@@ -36,11 +39,18 @@ public class AccountRepositoryImpl extends RepositoryBase implements AccountRepo
     private static final Logger logger = getLogger(AccountRepositoryImpl.class);
 
     private final Session session;
+    private final EventBus eventBus;
+    private final AccountKeyCache accountKeyCache;
     private static final SecureRandom secureRandom = new SecureRandom();
 
     @Inject
-    public AccountRepositoryImpl(final Session session) {
+    public AccountRepositoryImpl(
+            final Session session,
+            final EventBus eventBus,
+            final AccountKeyCache accountKeyCache) {
         this.session = session;
+        this.eventBus = eventBus;
+        this.accountKeyCache = accountKeyCache;
     }
 
     @Override
@@ -80,6 +90,11 @@ public class AccountRepositoryImpl extends RepositoryBase implements AccountRepo
         return Optional.ofNullable(getOne(session.execute(selectAccount), AccountDefinition::fromRow));
     }
 
+    @Override
+    public Optional<ImmutableList<AccountKey>> getAccountKeysCached(final AccountName accountName) {
+        return accountKeyCache.getKeys(accountName, () -> getAccount(accountName));
+    }
+
     @Override
     public List<AccountDefinition> getAllAccounts() {
         final Select selectAll = QueryBuilder.select().all().from(Tables.Account.TABLE_NAME);
@@ -99,6 +114,8 @@ public class AccountRepositoryImpl extends RepositoryBase implements AccountRepo
 
         if (session.execute(update).wasApplied()) {
             logger.with("account-name", accountName).success("Deleted account");
+
+            accountChanged(accountName);
         }
     }
 
@@ -110,9 +127,20 @@ public class AccountRepositoryImpl extends RepositoryBase implements AccountRepo
 
         if (session.execute(update).wasApplied()) {
             logger.with(accountDefinition).success("Updated account");
+
+            accountChanged(accountDefinition.getAccountName());
         }
     }
 
+    /**
+     * Drop our own cached keys right away, other nodes drop theirs when the event arrives
+     */
+    private void accountChanged(final AccountName accountName) {
+        accountKeyCache.invalidate(accountName);
+
+        eventBus.publish(new AccountUpdatedEvent(accountName));
+    }
+
     private ImmutableMap<String, String> saveableMap(final ImmutableMap<KeyName, AccountKey> keys) {
         final HashMap<String, String> target = new HashMap<>();
 
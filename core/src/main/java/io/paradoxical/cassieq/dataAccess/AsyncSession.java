@@ -0,0 +1,76 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.cassandra.CassandraConfiguration;
+import io.paradoxical.cassieq.configurations.cassandra.CompareAndSetRetryConfig;
+import io.paradoxical.cassieq.modules.annotations.GenericScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non blocking counterpart to {@link SessionProxy}. Statements run with executeAsync and
+ * CAS write timeouts are retried with backoff on the shared scheduler instead of sleeping a caller thread
+ */
+public class AsyncSession {
+    private final Session session;
+    private final CompareAndSetRetryConfig casConfig;
+    private final ScheduledExecutorService retryScheduler;
+
+    @Inject
+    public AsyncSession(
+            Session session,
+            CassandraConfiguration configuration,
+            @GenericScheduler ScheduledExecutorService retryScheduler) {
+        this.session = session;
+        this.casConfig = configuration.getCasConfig();
+        this.retryScheduler = retryScheduler;
+    }
+
+    public CompletableFuture<ResultSet> execute(Statement statement) {
+        final CompletableFuture<ResultSet> result = new CompletableFuture<>();
+
+        execute(statement, 1, result);
+
+        return result;
+    }
+
+    private void execute(final Statement statement, final int attempt, final CompletableFuture<ResultSet> result) {
+        Futures.addCallback(session.executeAsync(statement), new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(final ResultSet resultSet) {
+                result.complete(resultSet);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                if (!shouldRetry(t, attempt)) {
+                    result.completeExceptionally(t);
+
+                    return;
+                }
+
+                try {
+                    retryScheduler.schedule(() -> execute(statement, attempt + 1, result), getBackoffMs(attempt), TimeUnit.MILLISECONDS);
+                }
+                catch (Exception e) {
+                    result.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    private boolean shouldRetry(final Throwable t, final int attempt) {
+        return casConfig.getEnabled() && attempt < casConfig.getMaxRetries() && SessionProxy.isRetryable(t);
+    }
+
+    private long getBackoffMs(final int attempt) {
+        return Math.min((long) casConfig.getWaitTimeMs() << (attempt - 1), casConfig.getMaxWaitTimeMs());
+    }
+}
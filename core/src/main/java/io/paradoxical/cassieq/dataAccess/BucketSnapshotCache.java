@@ -0,0 +1,113 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.BucketSnapshotConfig;
+import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.QueueId;
+import lombok.Value;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Node local, short lived copies of bucket partitions.
+ *
+ * Results of consumes and acks made on this node are applied to the copy in place. Applying a
+ * change doesn't extend the life of a snapshot, so writes from other nodes are picked up once it
+ * expires, or sooner when a conditional update fails against it and the bucket is invalidated
+ */
+public class BucketSnapshotCache {
+    private final Cache<BucketKey, Snapshot> cache;
+
+    private final BucketSnapshotConfig config;
+
+    private final long ttlNanos;
+
+    @Inject
+    public BucketSnapshotCache(BucketSnapshotConfig config) {
+        this.config = config;
+
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.getTtlMillis());
+
+        cache = CacheBuilder.newBuilder()
+                            .maximumSize(config.getMaxBuckets())
+                            .expireAfterWrite(config.getTtlMillis(), TimeUnit.MILLISECONDS)
+                            .build();
+    }
+
+    public List<Message> getBucketContents(QueueId queueId, BucketPointer bucketPointer, Supplier<List<Message>> loader) {
+        if (!config.getEnabled()) {
+            return loader.get();
+        }
+
+        final Snapshot snapshot = cache.getIfPresent(new BucketKey(queueId, bucketPointer.get()));
+
+        if (snapshot != null && System.nanoTime() - snapshot.getLoadedAt() < ttlNanos) {
+            return snapshot.getMessages();
+        }
+
+        return refresh(queueId, bucketPointer, loader.get());
+    }
+
+    /**
+     * Replace the snapshot with a fresh read of the bucket
+     */
+    public List<Message> refresh(QueueId queueId, BucketPointer bucketPointer, List<Message> messages) {
+        if (!config.getEnabled()) {
+            return messages;
+        }
+
+        final ImmutableList<Message> contents = ImmutableList.copyOf(messages);
+
+        cache.put(new BucketKey(queueId, bucketPointer.get()), new Snapshot(System.nanoTime(), contents));
+
+        return contents;
+    }
+
+    /**
+     * Apply the result of a successful write made on this node to the message in the snapshot, if there is one
+     */
+    public void apply(QueueId queueId, BucketPointer bucketPointer, MonotonicIndex index, UnaryOperator<Message> update) {
+        if (!config.getEnabled()) {
+            return;
+        }
+
+        cache.asMap().computeIfPresent(new BucketKey(queueId, bucketPointer.get()), (key, snapshot) -> snapshot.apply(index, update));
+    }
+
+    public void invalidate(QueueId queueId, BucketPointer bucketPointer) {
+        cache.invalidate(new BucketKey(queueId, bucketPointer.get()));
+    }
+
+    @Value
+    private static class BucketKey {
+        private final QueueId queueId;
+
+        private final Long bucket;
+    }
+
+    @Value
+    private static class Snapshot {
+        private final long loadedAt;
+
+        private final ImmutableList<Message> messages;
+
+        /**
+         * Keeps the original load time so local writes can't keep a snapshot alive forever
+         */
+        Snapshot apply(MonotonicIndex index, UnaryOperator<Message> update) {
+            final ImmutableList.Builder<Message> updated = ImmutableList.builder();
+
+            messages.forEach(message -> updated.add(message.getIndex().equals(index) ? update.apply(message) : message));
+
+            return new Snapshot(loadedAt, updated.build());
+        }
+    }
+}
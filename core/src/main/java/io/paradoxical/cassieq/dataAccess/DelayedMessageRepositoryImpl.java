@@ -0,0 +1,146 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.dataAccess.interfaces.DelayedMessageRepository;
+import io.paradoxical.cassieq.model.DelayedMessage;
+import io.paradoxical.cassieq.model.PointerType;
+import io.paradoxical.cassieq.model.QueueId;
+import org.joda.time.Duration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+
+public class DelayedMessageRepositoryImpl extends RepositoryBase implements DelayedMessageRepository {
+    private static final RegularStatement READ_SLOT_POINTER =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Pointer.TABLE_NAME)
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()));
+
+    private static final RegularStatement MOVE_SLOT_POINTER =
+            QueryBuilder.update(Tables.Pointer.TABLE_NAME)
+                        .with(set(Tables.Pointer.VALUE, bindMarker()))
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()));
+
+    private static final RegularStatement INSERT_DELAYED_MESSAGE =
+            QueryBuilder.insertInto(Tables.DelayedMessage.TABLE_NAME)
+                        .value(Tables.DelayedMessage.QUEUE_ID, bindMarker())
+                        .value(Tables.DelayedMessage.SLOT, bindMarker())
+                        .value(Tables.DelayedMessage.DUE_AT, bindMarker())
+                        .value(Tables.DelayedMessage.ID, bindMarker())
+                        .value(Tables.DelayedMessage.MESSAGE, bindMarker())
+                        .value(Tables.DelayedMessage.MESSAGE_DATA, bindMarker())
+                        .using(ttl(bindMarker()));
+
+    private static final RegularStatement READ_SLOT =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.DelayedMessage.TABLE_NAME)
+                        .where(eq(Tables.DelayedMessage.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.DelayedMessage.SLOT, bindMarker()));
+
+    private static final RegularStatement DELETE_SLOT =
+            QueryBuilder.delete()
+                        .all()
+                        .from(Tables.DelayedMessage.TABLE_NAME)
+                        .where(eq(Tables.DelayedMessage.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.DelayedMessage.SLOT, bindMarker()));
+
+    private final Session session;
+    private final AsyncSession asyncSession;
+    private final PreparedStatementCache preparedStatements;
+    private final QueueId queueId;
+
+    @Inject
+    public DelayedMessageRepositoryImpl(
+            Session session,
+            AsyncSession asyncSession,
+            PreparedStatementCache preparedStatements,
+            @Assisted QueueId queueId) {
+        this.session = session;
+        this.asyncSession = asyncSession;
+        this.preparedStatements = preparedStatements;
+        this.queueId = queueId;
+    }
+
+    @Override
+    public Optional<Long> getCurrentSlot() {
+        final Statement query = preparedStatements.bind(READ_SLOT_POINTER, queueId.get(), PointerType.DELAYED_SLOT.toString());
+
+        return Optional.ofNullable(getOne(session.execute(query), row -> row.getLong(Tables.Pointer.VALUE)));
+    }
+
+    @Override
+    public void initializeSlot(final long slot) {
+        final Statement insert = QueryBuilder.insertInto(Tables.Pointer.TABLE_NAME)
+                                             .ifNotExists()
+                                             .value(Tables.Pointer.VALUE, slot)
+                                             .value(Tables.Pointer.POINTER_TYPE, PointerType.DELAYED_SLOT.toString())
+                                             .value(Tables.Pointer.QUEUE_ID, queueId.get());
+
+        session.execute(insert);
+    }
+
+    @Override
+    public void advanceSlot(final long slot) {
+        // only the mover moves this, so there is nobody to race with
+        session.execute(preparedStatements.bind(MOVE_SLOT_POINTER, slot, queueId.get(), PointerType.DELAYED_SLOT.toString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> putMessageAsync(final long slot, final DelayedMessage message, final Duration ttl) {
+        final Statement insert = preparedStatements.bind(INSERT_DELAYED_MESSAGE,
+                                                         queueId.get(),
+                                                         slot,
+                                                         message.getDueAt().toDate(),
+                                                         message.getId(),
+                                                         message.getBlob(),
+                                                         message.isBinary() ? ByteBuffer.wrap(message.getData()) : null,
+                                                         (int) Math.max(1, ttl.getStandardSeconds()));
+
+        return asyncSession.execute(insert).thenApply(resultSet -> null);
+    }
+
+    @Override
+    public void forEachBatch(final long slot, final int batchSize, final Consumer<List<DelayedMessage>> batch) {
+        final Statement query = preparedStatements.bind(READ_SLOT, queueId.get(), slot).setFetchSize(batchSize);
+
+        List<DelayedMessage> current = new ArrayList<>(batchSize);
+
+        for (final Row row : session.execute(query)) {
+            current.add(DelayedMessage.fromRow(row));
+
+            if (current.size() == batchSize) {
+                batch.accept(current);
+
+                current = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!current.isEmpty()) {
+            batch.accept(current);
+        }
+    }
+
+    @Override
+    public void deleteSlot(final long slot) {
+        session.execute(preparedStatements.bind(DELETE_SLOT, queueId.get(), slot));
+    }
+}
@@ -8,6 +8,10 @@ import io.paradoxical.cassieq.model.QueueStatsId;
 import io.paradoxical.cassieq.model.accounts.AccountName;
 import lombok.Data;
 
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
 @Data
 public class DeletionJob {
     private final AccountName accountName;
@@ -20,9 +24,14 @@ public class DeletionJob {
 
     private final BucketSize bucketSize;
 
-    public QueueId getQueueIdentifier() {
-        return QueueId.valueOf(accountName, queueName, version);
-    }
+    private final int shardCount;
+
+    private final int priorityLanes;
+
+    /**
+     * The id of every shard and lane of the queue, just the one for a plain queue
+     */
+    private final List<QueueId> queueIdentifiers;
 
     public DeletionJob(QueueDefinition definition) {
         this.queueName = definition.getQueueName();
@@ -34,5 +43,11 @@ public class DeletionJob {
         this.accountName = definition.getAccountName();
 
         this.queueStatsId = definition.getQueueStatsId();
+
+        this.shardCount = definition.getShardCount();
+
+        this.priorityLanes = definition.getPriorityLanes();
+
+        this.queueIdentifiers = definition.allPartitions().stream().map(QueueDefinition::getId).collect(toList());
     }
 }
@@ -0,0 +1,179 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
+import io.paradoxical.cassieq.clustering.eventing.EventListener;
+import io.paradoxical.cassieq.configurations.EmptyQueueCacheConfig;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.events.MessagePublishedEvent;
+import io.paradoxical.cassieq.model.events.QueueDeletingEvent;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Instant;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers queues a reader on this node recently found empty so idle queues can be polled
+ * without going to cassandra.
+ *
+ * A queue stops being known empty when something is published to it (locally or over the bus),
+ * when the earliest known invisible message on it comes due, or after maxEmptyMillis. Consumes
+ * and initial invisibility on other nodes aren't known here, so those are only bounded by the max
+ */
+public class EmptyQueueCache {
+    private final ConcurrentMap<QueueId, QueueState> queues = new ConcurrentHashMap<>();
+
+    private final EmptyQueueCacheConfig config;
+
+    private final Clock clock;
+
+    @Inject
+    public EmptyQueueCache(EventBus eventBus, EmptyQueueCacheConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+
+        eventBus.register(MessagePublishedEvent.class, new EventListener<MessagePublishedEvent>() {
+            @Override
+            public void onMessage(final MessagePublishedEvent item) {
+                if (item.getQueueId() == null) {
+                    queues.values().forEach(QueueState::published);
+
+                    return;
+                }
+
+                published(QueueId.valueOf(item.getQueueId()));
+            }
+        });
+
+        // a recreated queue gets a new id, so the deleted one's state would otherwise stay around for good
+        eventBus.register(QueueDeletingEvent.class, new EventListener<QueueDeletingEvent>() {
+            @Override
+            public void onMessage(final QueueDeletingEvent item) {
+                if (item.getQueueId() != null) {
+                    forget(QueueId.valueOf(item.getQueueId()));
+                }
+            }
+        });
+    }
+
+    public boolean isKnownEmpty(QueueId queueId) {
+        if (!config.getEnabled()) {
+            return false;
+        }
+
+        final QueueState state = queues.get(queueId);
+
+        return state != null && state.isEmptyAt(clock.now());
+    }
+
+    /**
+     * Take this before reading, an empty read is only remembered if nothing was published in between
+     */
+    public long generation(QueueId queueId) {
+        return stateOf(queueId).getGeneration();
+    }
+
+    public void markEmpty(QueueId queueId, long generation) {
+        if (!config.getEnabled()) {
+            return;
+        }
+
+        final Instant now = clock.now();
+
+        stateOf(queueId).markEmpty(generation, now, now.plus(config.getMaxEmptyMillis()));
+    }
+
+    /**
+     * Messages were written to the queue, or something else changed that a reader has to look at
+     */
+    public void published(QueueId queueId) {
+        final QueueState state = queues.get(queueId);
+
+        if (state != null) {
+            state.published();
+        }
+    }
+
+    /**
+     * A message on the queue will become visible at the given time
+     */
+    public void visibleAt(QueueId queueId, Instant visibleAt) {
+        stateOf(queueId).visibleAt(visibleAt, clock.now());
+    }
+
+    /**
+     * Drops the queue along with its priority lanes and shards, which are tracked under derived ids
+     */
+    public void forget(QueueId queueId) {
+        final Pattern derived = Pattern.compile(Pattern.quote(queueId.get()) + "(_[ps]\\d+)*");
+
+        queues.keySet().removeIf(key -> derived.matcher(key.get()).matches());
+    }
+
+    private QueueState stateOf(QueueId queueId) {
+        return queues.computeIfAbsent(queueId, key -> new QueueState());
+    }
+
+    private static class QueueState {
+        /**
+         * Past this many pending deadlines the latest ones are dropped, they're still covered by maxEmptyMillis
+         */
+        private static final int MAX_TRACKED_DEADLINES = 1024;
+
+        private final NavigableSet<Instant> visibleDeadlines = new TreeSet<>();
+
+        private long generation;
+
+        private Instant emptyUntil;
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized boolean isEmptyAt(Instant now) {
+            return emptyUntil != null && now.isBefore(emptyUntil);
+        }
+
+        synchronized void markEmpty(long readGeneration, Instant now, Instant maxEmptyUntil) {
+            if (readGeneration != generation) {
+                return;
+            }
+
+            visibleDeadlines.headSet(now, true).clear();
+
+            emptyUntil = visibleDeadlines.isEmpty() || visibleDeadlines.first().isAfter(maxEmptyUntil)
+                         ? maxEmptyUntil
+                         : visibleDeadlines.first();
+        }
+
+        synchronized void published() {
+            generation++;
+
+            emptyUntil = null;
+        }
+
+        synchronized void visibleAt(Instant visibleAt, Instant now) {
+            if (!visibleAt.isAfter(now)) {
+                published();
+
+                return;
+            }
+
+            visibleDeadlines.headSet(now, true).clear();
+
+            visibleDeadlines.add(visibleAt);
+
+            if (visibleDeadlines.size() > MAX_TRACKED_DEADLINES) {
+                visibleDeadlines.pollLast();
+            }
+
+            if (emptyUntil != null && visibleAt.isBefore(emptyUntil)) {
+                emptyUntil = visibleAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.Row;
+import com.google.common.io.ByteStreams;
+import io.paradoxical.cassieq.model.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * How a message body is encoded in its data column. The codec is stored next to each body,
+ * bodies without one are plain text in the message column
+ */
+public enum MessageCodec {
+    Deflate(true, false),
+    Binary(false, true),
+    DeflateBinary(true, true);
+
+    private final boolean compressed;
+
+    private final boolean binary;
+
+    MessageCodec(final boolean compressed, final boolean binary) {
+        this.compressed = compressed;
+        this.binary = binary;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return the codec for the message's body, or null if it goes in the text column as is
+     */
+    public static MessageCodec of(final Message message, final boolean compress) {
+        // a body that was read and never decoded is written back the way it was stored
+        if (message.getEncodedBody() != null && message.getCodec() != null) {
+            return message.getCodec();
+        }
+
+        if (message.isBinary()) {
+            return compress ? DeflateBinary : Binary;
+        }
+
+        return compress ? Deflate : null;
+    }
+
+    public ByteBuffer encode(final Message message) {
+        if (message.getEncodedBody() != null && message.getCodec() == this) {
+            return message.getEncodedBody().duplicate();
+        }
+
+        return encode(binary ? message.getData() : toBytes(message.getBlob()));
+    }
+
+    public ByteBuffer encode(final String blob) {
+        return encode(toBytes(blob));
+    }
+
+    private ByteBuffer encode(final byte[] body) {
+        if (body == null) {
+            return null;
+        }
+
+        if (!compressed) {
+            return ByteBuffer.wrap(body);
+        }
+
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(encoded)) {
+            deflater.write(body);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return ByteBuffer.wrap(encoded.toByteArray());
+    }
+
+    public String decodeText(final ByteBuffer data) {
+        final byte[] body = decode(data);
+
+        return body == null ? null : new String(body, StandardCharsets.UTF_8);
+    }
+
+    public byte[] decode(final ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+
+        final byte[] encoded = new byte[data.remaining()];
+
+        data.duplicate().get(encoded);
+
+        if (!compressed) {
+            return encoded;
+        }
+
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(encoded))) {
+            return ByteStreams.toByteArray(inflater);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fill in the body stored in the row. Text bodies are set as they are, encoded ones are
+     * kept with their codec and only decoded once something asks the message for its body
+     */
+    public static Message.MessageBuilder readBody(
+            final Message.MessageBuilder message,
+            final Row row,
+            final String textColumn,
+            final String dataColumn,
+            final String codecColumn) {
+        final String codecName = row.getString(codecColumn);
+
+        if (codecName == null) {
+            return message.blob(row.getString(textColumn));
+        }
+
+        return message.encodedBody(copyOf(row.getBytes(dataColumn)))
+                      .codec(MessageCodec.valueOf(codecName));
+    }
+
+    /**
+     * The driver's buffer can be a slice of the whole response, copy it so holding on to a message doesn't keep the page around
+     */
+    private static ByteBuffer copyOf(final ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+
+        final byte[] copy = new byte[data.remaining()];
+
+        data.duplicate().get(copy);
+
+        return ByteBuffer.wrap(copy);
+    }
+
+    private static byte[] toBytes(final String blob) {
+        return blob == null ? null : blob.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -39,8 +39,7 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
     private final Session session;
     private final MetricRegistry metricRegistry;
     private final DeletionJob job;
-    private final PointerRepository pointerRepository;
-    private final MonotonicRepository monotonicRepository;
+    private final DataContextFactory dataContextFactory;
 
     private Logger logger = getLogger(MessageDeletorJobProcessorImpl.class);
     private final QueueRepository queueRepository;
@@ -54,12 +53,9 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
         this.session = session;
         this.metricRegistry = metricRegistry;
         this.job = job;
-
-        QueueId queueId = job.getQueueIdentifier();
+        this.dataContextFactory = dataContextFactory;
 
         queueRepository = dataContextFactory.forAccount(job.getAccountName());
-        pointerRepository = dataContextFactory.getPointerRepository(queueId);
-        monotonicRepository = dataContextFactory.getMonotonicRepository(queueId);
 
         logger = logger.with(job);
     }
@@ -70,32 +66,40 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
     @Override
     public void start() {
         try (Timer.Context ignored = getMetricTimer()) {
-            final MessagePointer startPointer = getMinStartPointer(pointerRepository, job.getBucketSize());
+            logger.debug("Starting deletion job");
 
-            final MessagePointer endPointer = monotonicRepository.getCurrent();
+            job.getQueueIdentifiers().forEach(this::deleteShard);
 
-            logger.debug("Starting deletion job");
+            queueRepository.deleteQueueStats(job.getQueueStatsId());
 
-            delete(startPointer, endPointer);
+            logger.success("Deleted all stats!");
 
-            logger.success("Deleted all messages!");
+            complete();
 
-            monotonicRepository.deleteAll();
+            logger.success("Complete");
+        }
+    }
 
-            logger.success("Deleted all monotons!");
+    private void deleteShard(final QueueId queueId) {
+        final PointerRepository pointerRepository = dataContextFactory.getPointerRepository(queueId);
 
-            pointerRepository.deleteAll();
+        final MonotonicRepository monotonicRepository = dataContextFactory.getMonotonicRepository(queueId);
 
-            logger.success("Deleted all pointers!");
+        final MessagePointer startPointer = getMinStartPointer(pointerRepository, job.getBucketSize());
 
-            queueRepository.deleteQueueStats(job.getQueueStatsId());
+        final MessagePointer endPointer = monotonicRepository.getCurrent();
 
-            logger.success("Deleted all stats!");
+        delete(queueId, startPointer, endPointer);
 
-            complete();
+        logger.with("queue-id", queueId).success("Deleted all messages!");
 
-            logger.success("Complete");
-        }
+        monotonicRepository.deleteAll();
+
+        logger.with("queue-id", queueId).success("Deleted all monotons!");
+
+        pointerRepository.deleteAll();
+
+        logger.with("queue-id", queueId).success("Deleted all pointers!");
     }
 
     private void complete() {
@@ -113,7 +117,7 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
         return GenericMessagePointer.valueOf(Math.min(repairPointer.get(), currentInvisPointer.get()));
     }
 
-    private void delete(MessagePointer from, MessagePointer to) {
+    private void delete(QueueId queueId, MessagePointer from, MessagePointer to) {
 
         final int lastBucketNumber = to.toBucketPointer(job.getBucketSize()).get().intValue();
         final int firstBucketNumber = from.toBucketPointer(job.getBucketSize()).get().intValue();
@@ -128,14 +132,14 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
             batchBucketsToDelete.add(bucketRangeIterator.next());
 
             if (batchBucketsToDelete.size() == getDeleteBatchSize()) {
-                deleteAllMessagesInBuckets(ImmutableList.copyOf(batchBucketsToDelete));
+                deleteAllMessagesInBuckets(queueId, ImmutableList.copyOf(batchBucketsToDelete));
 
                 batchBucketsToDelete.clear();
             }
         }
 
         if (!CollectionUtils.isEmpty(batchBucketsToDelete)) {
-            deleteAllMessagesInBuckets(ImmutableList.copyOf(batchBucketsToDelete));
+            deleteAllMessagesInBuckets(queueId, ImmutableList.copyOf(batchBucketsToDelete));
         }
     }
 
@@ -143,14 +147,23 @@ public class MessageDeletorJobProcessorImpl implements MessageDeleterJobProcesso
         return 100;
     }
 
-    private void deleteAllMessagesInBuckets(final List<Integer> deletableBuckets) {
+    private void deleteAllMessagesInBuckets(final QueueId queueId, final List<Integer> deletableBuckets) {
         final Statement delete = QueryBuilder.delete()
                                              .all()
                                              .from(Tables.Message.TABLE_NAME)
-                                             .where(eq(Tables.Message.QUEUE_ID, job.getQueueIdentifier().get()))
+                                             .where(eq(Tables.Message.QUEUE_ID, queueId.get()))
                                              .and(in(Tables.Message.BUCKET_NUM, deletableBuckets));
 
         session.execute(delete);
+
+        // the job doesn't know whether the queue kept its bodies apart, clearing an empty partition is cheap
+        final Statement deleteBodies = QueryBuilder.delete()
+                                                   .all()
+                                                   .from(Tables.MessageBody.TABLE_NAME)
+                                                   .where(eq(Tables.MessageBody.QUEUE_ID, queueId.get()))
+                                                   .and(in(Tables.MessageBody.BUCKET_NUM, deletableBuckets));
+
+        session.execute(deleteBodies);
     }
 
     private Timer.Context getMetricTimer() {
@@ -1,22 +1,29 @@
 package io.paradoxical.cassieq.dataAccess;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Select;
-import com.datastax.driver.core.querybuilder.Update;
 import com.godaddy.logging.Logger;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.configurations.PublishConfig;
 import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.dataAccess.exceptions.PartialPublishException;
 import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
+import io.paradoxical.cassieq.model.AckResult;
 import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.BucketSummary;
 import io.paradoxical.cassieq.model.Message;
 import io.paradoxical.cassieq.model.MessagePointer;
 import io.paradoxical.cassieq.model.MessageTag;
 import io.paradoxical.cassieq.model.MessageUpdateRequest;
+import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.PopReceipt;
 import io.paradoxical.cassieq.model.QueueDefinition;
 import io.paradoxical.cassieq.model.ReaderBucketPointer;
 import io.paradoxical.cassieq.model.RepairBucketPointer;
@@ -24,30 +31,284 @@ import io.paradoxical.cassieq.model.time.Clock;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
+import org.joda.time.Instant;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.add;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.incr;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
 import static com.godaddy.logging.LoggerFactory.getLogger;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
 public class MessageRepositoryImpl extends RepositoryBase implements MessageRepository {
+    private static final RegularStatement INSERT_MESSAGE =
+            QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
+                        .ifNotExists()
+                        .value(Tables.Message.QUEUE_ID, bindMarker())
+                        .value(Tables.Message.BUCKET_NUM, bindMarker())
+                        .value(Tables.Message.MONOTON, bindMarker())
+                        .value(Tables.Message.VERSION, 1)
+                        .value(Tables.Message.DELIVERY_COUNT, 0)
+                        .value(Tables.Message.ACKED, false)
+                        .value(Tables.Message.MESSAGE, bindMarker())
+                        .value(Tables.Message.NEXT_VISIBLE_ON, bindMarker())
+                        .value(Tables.Message.CREATED_DATE, bindMarker())
+                        .value(Tables.Message.TAG, bindMarker());
+
+    private static final RegularStatement INSERT_ENCODED_MESSAGE =
+            QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
+                        .ifNotExists()
+                        .value(Tables.Message.QUEUE_ID, bindMarker())
+                        .value(Tables.Message.BUCKET_NUM, bindMarker())
+                        .value(Tables.Message.MONOTON, bindMarker())
+                        .value(Tables.Message.VERSION, 1)
+                        .value(Tables.Message.DELIVERY_COUNT, 0)
+                        .value(Tables.Message.ACKED, false)
+                        .value(Tables.Message.MESSAGE_DATA, bindMarker())
+                        .value(Tables.Message.CODEC, bindMarker())
+                        .value(Tables.Message.NEXT_VISIBLE_ON, bindMarker())
+                        .value(Tables.Message.CREATED_DATE, bindMarker())
+                        .value(Tables.Message.TAG, bindMarker());
+
+    private static final RegularStatement INSERT_MESSAGE_STATE =
+            QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
+                        .ifNotExists()
+                        .value(Tables.Message.QUEUE_ID, bindMarker())
+                        .value(Tables.Message.BUCKET_NUM, bindMarker())
+                        .value(Tables.Message.MONOTON, bindMarker())
+                        .value(Tables.Message.VERSION, 1)
+                        .value(Tables.Message.DELIVERY_COUNT, 0)
+                        .value(Tables.Message.ACKED, false)
+                        .value(Tables.Message.NEXT_VISIBLE_ON, bindMarker())
+                        .value(Tables.Message.CREATED_DATE, bindMarker())
+                        .value(Tables.Message.TAG, bindMarker());
+
+    private static final RegularStatement INSERT_MESSAGE_BODY =
+            QueryBuilder.insertInto(Tables.MessageBody.TABLE_NAME)
+                        .value(Tables.MessageBody.QUEUE_ID, bindMarker())
+                        .value(Tables.MessageBody.BUCKET_NUM, bindMarker())
+                        .value(Tables.MessageBody.MONOTON, bindMarker())
+                        .value(Tables.MessageBody.TAG, bindMarker())
+                        .value(Tables.MessageBody.MESSAGE, bindMarker());
+
+    private static final RegularStatement INSERT_ENCODED_MESSAGE_BODY =
+            QueryBuilder.insertInto(Tables.MessageBody.TABLE_NAME)
+                        .value(Tables.MessageBody.QUEUE_ID, bindMarker())
+                        .value(Tables.MessageBody.BUCKET_NUM, bindMarker())
+                        .value(Tables.MessageBody.MONOTON, bindMarker())
+                        .value(Tables.MessageBody.TAG, bindMarker())
+                        .value(Tables.MessageBody.MESSAGE_DATA, bindMarker())
+                        .value(Tables.MessageBody.CODEC, bindMarker());
+
+    /**
+     * Overwrites every body column, an updated body may be stored differently than the one it replaces
+     */
+    private static final RegularStatement REPLACE_MESSAGE_BODY =
+            QueryBuilder.insertInto(Tables.MessageBody.TABLE_NAME)
+                        .value(Tables.MessageBody.QUEUE_ID, bindMarker())
+                        .value(Tables.MessageBody.BUCKET_NUM, bindMarker())
+                        .value(Tables.MessageBody.MONOTON, bindMarker())
+                        .value(Tables.MessageBody.TAG, bindMarker())
+                        .value(Tables.MessageBody.MESSAGE, bindMarker())
+                        .value(Tables.MessageBody.MESSAGE_DATA, bindMarker())
+                        .value(Tables.MessageBody.CODEC, bindMarker());
+
+    private static final RegularStatement READ_MESSAGE_BODY =
+            QueryBuilder.select(Tables.MessageBody.MESSAGE, Tables.MessageBody.MESSAGE_DATA, Tables.MessageBody.CODEC)
+                        .from(Tables.MessageBody.TABLE_NAME)
+                        .where(eq(Tables.MessageBody.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.MessageBody.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.MessageBody.MONOTON, bindMarker()))
+                        .and(eq(Tables.MessageBody.TAG, bindMarker()));
+
+    private static final RegularStatement DELETE_MESSAGE_BODY =
+            QueryBuilder.delete()
+                        .all()
+                        .from(Tables.MessageBody.TABLE_NAME)
+                        .where(eq(Tables.MessageBody.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.MessageBody.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.MessageBody.MONOTON, bindMarker()))
+                        .and(eq(Tables.MessageBody.TAG, bindMarker()));
+
+    private static final RegularStatement CONSUME_MESSAGE =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.NEXT_VISIBLE_ON, bindMarker()))
+                        .and(set(Tables.Message.VERSION, bindMarker()))
+                        .and(set(Tables.Message.DELIVERY_COUNT, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.ACKED, false));
+
+    private static final RegularStatement ACK_MESSAGE =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.ACKED, true))
+                        .and(set(Tables.Message.VERSION, bindMarker()))
+                        .and(add(Tables.Message.ACKED_MONOTONS, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()));
+
+    private static final RegularStatement ACK_MESSAGE_WITH_TAG =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.ACKED, true))
+                        .and(set(Tables.Message.VERSION, bindMarker()))
+                        .and(add(Tables.Message.ACKED_MONOTONS, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.TAG, bindMarker()));
+
+    private static final RegularStatement READ_BUCKET =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Message.TABLE_NAME)
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()));
+
+    /**
+     * The static columns come back on every row of the partition, one is enough
+     */
+    private static final RegularStatement READ_BUCKET_SUMMARY =
+            QueryBuilder.select(Tables.Message.ACKED_MONOTONS, Tables.Message.TOMBSTONED_AT, Tables.Message.FINALIZED_AT)
+                        .from(Tables.Message.TABLE_NAME)
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .limit(1);
+
+    private static final RegularStatement READ_MESSAGE =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Message.TABLE_NAME)
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()));
+
+    private static final RegularStatement UPDATE_MESSAGE =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.VERSION, bindMarker()))
+                        .and(set(Tables.Message.NEXT_VISIBLE_ON, bindMarker()))
+                        .and(set(Tables.Message.UPDATED_DATE, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.TAG, bindMarker()));
+
+    /**
+     * The message may have been published as bytes, the new text replaces those
+     */
+    private static final RegularStatement UPDATE_MESSAGE_WITH_TEXT =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.VERSION, bindMarker()))
+                        .and(set(Tables.Message.NEXT_VISIBLE_ON, bindMarker()))
+                        .and(set(Tables.Message.UPDATED_DATE, bindMarker()))
+                        .and(set(Tables.Message.MESSAGE, bindMarker()))
+                        .and(set(Tables.Message.MESSAGE_DATA, null))
+                        .and(set(Tables.Message.CODEC, null))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.TAG, bindMarker()));
+
+    private static final RegularStatement UPDATE_MESSAGE_WITH_ENCODED =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.VERSION, bindMarker()))
+                        .and(set(Tables.Message.NEXT_VISIBLE_ON, bindMarker()))
+                        .and(set(Tables.Message.UPDATED_DATE, bindMarker()))
+                        .and(set(Tables.Message.MESSAGE_DATA, bindMarker()))
+                        .and(set(Tables.Message.CODEC, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.TAG, bindMarker()));
+
+    /**
+     * Points the message at a body written apart under a new body version
+     */
+    private static final RegularStatement UPDATE_MESSAGE_WITH_BODY_VERSION =
+            QueryBuilder.update(Tables.Message.TABLE_NAME)
+                        .with(set(Tables.Message.VERSION, bindMarker()))
+                        .and(set(Tables.Message.NEXT_VISIBLE_ON, bindMarker()))
+                        .and(set(Tables.Message.UPDATED_DATE, bindMarker()))
+                        .and(set(Tables.Message.BODY_VERSION, bindMarker()))
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Message.BUCKET_NUM, bindMarker()))
+                        .and(eq(Tables.Message.MONOTON, bindMarker()))
+                        .onlyIf(eq(Tables.Message.VERSION, bindMarker()))
+                        .and(eq(Tables.Message.TAG, bindMarker()));
+
+    private static final RegularStatement INSERT_TOMBSTONE = insertSpecialIndex(Tables.Message.TOMBSTONED_AT);
+
+    private static final RegularStatement INSERT_FINALIZER = insertSpecialIndex(Tables.Message.FINALIZED_AT);
+
+    private static final RegularStatement DELETE_BUCKETS =
+            QueryBuilder.delete()
+                        .all()
+                        .from(Tables.Message.TABLE_NAME)
+                        .where(eq(Tables.Message.QUEUE_ID, bindMarker()))
+                        .and(in(Tables.Message.BUCKET_NUM, bindMarker()));
+
+    private static final RegularStatement DELETE_BUCKET_BODIES =
+            QueryBuilder.delete()
+                        .all()
+                        .from(Tables.MessageBody.TABLE_NAME)
+                        .where(eq(Tables.MessageBody.QUEUE_ID, bindMarker()))
+                        .and(in(Tables.MessageBody.BUCKET_NUM, bindMarker()));
+
     private Logger logger = getLogger(MessageRepositoryImpl.class);
 
     private final Session session;
+    private final AsyncSession asyncSession;
+    private final PreparedStatementCache preparedStatements;
+    private final BucketSnapshotCache bucketSnapshots;
+    private final EmptyQueueCache emptyQueues;
+    private final VisibilityIndex visibilityIndex;
+    private final QueueSizeAccumulator queueSizes;
+    private final PublishConfig publishConfig;
     private final Clock clock;
     private final QueueDefinition queueDefinition;
 
     @Inject
     public MessageRepositoryImpl(
             Provider<Session> session,
+            AsyncSession asyncSession,
+            PreparedStatementCache preparedStatements,
+            BucketSnapshotCache bucketSnapshots,
+            EmptyQueueCache emptyQueues,
+            VisibilityIndex visibilityIndex,
+            QueueSizeAccumulator queueSizes,
+            PublishConfig publishConfig,
             Clock clock,
             @Assisted QueueDefinition queueDefinition) {
         this.session = session.get();
+        this.asyncSession = asyncSession;
+        this.preparedStatements = preparedStatements;
+        this.bucketSnapshots = bucketSnapshots;
+        this.emptyQueues = emptyQueues;
+        this.visibilityIndex = visibilityIndex;
+        this.queueSizes = queueSizes;
+        this.publishConfig = publishConfig;
         this.clock = clock;
         this.queueDefinition = queueDefinition;
 
@@ -58,32 +319,360 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
     @Override
     public void putMessage(final Message message, final Duration initialInvisibility) throws ExistingMonotonFoundException {
         final DateTime now = getNow();
-        final Long bucketPointer = message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get();
 
-        final MessageTag randomMessageTag = MessageTag.random();
-
-        Statement statement = QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
-                                          .ifNotExists()
-                                          .value(Tables.Message.QUEUE_ID, queueDefinition.getId().get())
-                                          .value(Tables.Message.BUCKET_NUM, bucketPointer)
-                                          .value(Tables.Message.MONOTON, message.getIndex().get())
-                                          .value(Tables.Message.VERSION, 1)
-                                          .value(Tables.Message.DELIVERY_COUNT, 0)
-                                          .value(Tables.Message.ACKED, false)
-                                          .value(Tables.Message.MESSAGE, message.getBlob())
-                                          .value(Tables.Message.NEXT_VISIBLE_ON, now.plus(initialInvisibility).toDate())
-                                          .value(Tables.Message.CREATED_DATE, now.toDate())
-                                          .value(Tables.Message.TAG, randomMessageTag.get());
+        final MessageTag tag = MessageTag.random();
+
+        visibilityIndex.track(queueDefinition.getId(), message.getIndex(), now.plus(initialInvisibility).toInstant());
+
+        if (queueDefinition.isSplitMessageBody()) {
+            session.execute(getInsertBodyStatement(message, tag));
+        }
+
+        final Statement statement = getInsertMessageStatement(message, tag, now, initialInvisibility);
 
         final boolean wasInserted = session.execute(statement).wasApplied();
 
+        invalidateSnapshot(message.getIndex());
+
         if (!wasInserted) {
+            if (queueDefinition.isSplitMessageBody()) {
+                // the body went in first, nothing will ever point at it now
+                session.execute(getDeleteBodyStatement(message.getIndex(), tag.get()));
+            }
+
             throw new ExistingMonotonFoundException(String.format("Tried to insert a message with the monoton value of '%s' which already exists", message.getIndex()));
         }
 
+        messagesArrived(now, initialInvisibility);
+
         updateQueueSize(1);
     }
 
+    @Override
+    public CompletableFuture<Void> putMessageAsync(final Message message, final Duration initialInvisibility) {
+        final DateTime now = getNow();
+
+        final MessageTag tag = MessageTag.random();
+
+        final Statement statement = getInsertMessageStatement(message, tag, now, initialInvisibility);
+
+        final CompletableFuture<Void> bodyWritten =
+                visibilityIndex.trackAsync(queueDefinition.getId(), message.getIndex(), now.plus(initialInvisibility).toInstant())
+                               .thenCompose(ignored -> queueDefinition.isSplitMessageBody()
+                                                       ? asyncSession.execute(getInsertBodyStatement(message, tag)).thenApply(resultSet -> null)
+                                                       : CompletableFuture.completedFuture(null));
+
+        return bodyWritten.thenCompose(ignored -> asyncSession.execute(statement)).thenCompose(resultSet -> {
+            invalidateSnapshot(message.getIndex());
+
+            if (!resultSet.wasApplied()) {
+                final CompletableFuture<Void> existing = new CompletableFuture<>();
+
+                final ExistingMonotonFoundException error =
+                        new ExistingMonotonFoundException(String.format("Tried to insert a message with the monoton value of '%s' which already exists", message.getIndex()));
+
+                if (!queueDefinition.isSplitMessageBody()) {
+                    existing.completeExceptionally(error);
+
+                    return existing;
+                }
+
+                // the body went in first, nothing will ever point at it now
+                asyncSession.execute(getDeleteBodyStatement(message.getIndex(), tag.get()))
+                            .whenComplete((ignored, deleteError) -> existing.completeExceptionally(error));
+
+                return existing;
+            }
+
+            messagesArrived(now, initialInvisibility);
+
+            return updateQueueSizeAsync(1);
+        });
+    }
+
+    /**
+     * Messages that land in the same bucket share a partition, so each bucket
+     * is written as unlogged batches (a single paxos round each) of at most maxBatchBytes of bodies.
+     *
+     * Batches are written in index order and the first one that fails stops the rest, so whatever
+     * was published is always a prefix of the messages
+     *
+     * @param messages
+     * @param initialInvisibility
+     * @throws ExistingMonotonFoundException if nothing was published
+     * @throws PartialPublishException if some of the messages were published
+     */
+    @Override
+    public void putMessages(final List<Message> messages, final Duration initialInvisibility) throws ExistingMonotonFoundException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        final DateTime now = getNow();
+
+        final Map<Long, List<Message>> messagesByBucket =
+                messages.stream()
+                        .sorted(Comparator.comparingLong(message -> message.getIndex().get()))
+                        .collect(groupingBy(message -> message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                            TreeMap::new,
+                                            toList()));
+
+        int published = 0;
+
+        for (final List<Message> bucketMessages : messagesByBucket.values()) {
+            for (final List<Message> batchMessages : splitByBodySize(bucketMessages)) {
+                try {
+                    putBatch(batchMessages, now, initialInvisibility);
+                }
+                catch (ExistingMonotonFoundException | RuntimeException e) {
+                    if (published == 0) {
+                        throw e;
+                    }
+
+                    throw new PartialPublishException(published, e);
+                }
+
+                published += batchMessages.size();
+            }
+        }
+    }
+
+    private void putBatch(final List<Message> batchMessages, final DateTime now, final Duration initialInvisibility) throws ExistingMonotonFoundException {
+        final BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+
+        // conditional batches can't span tables, so bodies get a batch of their own
+        final BatchStatement bodies = new BatchStatement(BatchStatement.Type.UNLOGGED);
+
+        // and if the conditional batch isn't applied none of those bodies will ever be read
+        final BatchStatement orphanedBodies = new BatchStatement(BatchStatement.Type.UNLOGGED);
+
+        batchMessages.forEach(message -> {
+            final MessageTag tag = MessageTag.random();
+
+            if (queueDefinition.isSplitMessageBody()) {
+                bodies.add(getInsertBodyStatement(message, tag));
+
+                orphanedBodies.add(getDeleteBodyStatement(message.getIndex(), tag.get()));
+            }
+
+            batch.add(getInsertMessageStatement(message, tag, now, initialInvisibility));
+        });
+
+        if (visibilityIndex.isEnabled()) {
+            final Instant visibleAt = now.plus(initialInvisibility).toInstant();
+
+            CompletableFuture.allOf(batchMessages.stream()
+                                                 .map(message -> visibilityIndex.trackAsync(queueDefinition.getId(), message.getIndex(), visibleAt))
+                                                 .toArray(CompletableFuture[]::new))
+                             .join();
+        }
+
+        if (bodies.size() > 0) {
+            session.execute(bodies);
+        }
+
+        final boolean wasApplied = session.execute(batch).wasApplied();
+
+        invalidateSnapshot(batchMessages.get(0).getIndex());
+
+        if (!wasApplied) {
+            if (orphanedBodies.size() > 0) {
+                session.execute(orphanedBodies);
+            }
+
+            throw new ExistingMonotonFoundException(
+                    String.format("Tried to insert a batch of messages starting at monoton '%s' but one already exists",
+                                  batchMessages.get(0).getIndex()));
+        }
+
+        messagesArrived(now, initialInvisibility);
+
+        updateQueueSize(batchMessages.size());
+    }
+
+    /**
+     * Every batch gets at least one message, a single message larger than the limit goes on its own
+     */
+    private List<List<Message>> splitByBodySize(final List<Message> bucketMessages) {
+        final long maxBatchBytes = publishConfig.getMaxBatchBytes();
+
+        final List<List<Message>> batches = new ArrayList<>();
+
+        List<Message> current = new ArrayList<>();
+
+        long currentBytes = 0;
+
+        for (final Message message : bucketMessages) {
+            final long size = bodySize(message);
+
+            if (!current.isEmpty() && currentBytes + size > maxBatchBytes) {
+                batches.add(current);
+
+                current = new ArrayList<>();
+
+                currentBytes = 0;
+            }
+
+            current.add(message);
+
+            currentBytes += size;
+        }
+
+        batches.add(current);
+
+        return batches;
+    }
+
+    private static long bodySize(final Message message) {
+        if (message.getEncodedBody() != null) {
+            return message.getEncodedBody().remaining();
+        }
+
+        if (message.isBinary()) {
+            return message.getData().length;
+        }
+
+        return message.getBlob() == null ? 0 : message.getBlob().length();
+    }
+
+    private Statement getInsertMessageStatement(
+            final Message message,
+            final MessageTag tag,
+            final DateTime now,
+            final Duration initialInvisibility) {
+        final Long bucketPointer = message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get();
+
+        if (queueDefinition.isSplitMessageBody()) {
+            return preparedStatements.bind(INSERT_MESSAGE_STATE,
+                                           queueDefinition.getId().get(),
+                                           bucketPointer,
+                                           message.getIndex().get(),
+                                           now.plus(initialInvisibility).toDate(),
+                                           now.toDate(),
+                                           tag.get());
+        }
+
+        final MessageCodec codec = MessageCodec.of(message, queueDefinition.isCompressMessages());
+
+        if (codec != null) {
+            return preparedStatements.bind(INSERT_ENCODED_MESSAGE,
+                                           queueDefinition.getId().get(),
+                                           bucketPointer,
+                                           message.getIndex().get(),
+                                           codec.encode(message),
+                                           codec.name(),
+                                           now.plus(initialInvisibility).toDate(),
+                                           now.toDate(),
+                                           tag.get());
+        }
+
+        return preparedStatements.bind(INSERT_MESSAGE,
+                                       queueDefinition.getId().get(),
+                                       bucketPointer,
+                                       message.getIndex().get(),
+                                       message.getBlob(),
+                                       now.plus(initialInvisibility).toDate(),
+                                       now.toDate(),
+                                       tag.get());
+    }
+
+    /**
+     * Bodies are keyed by the tag of the message they belong to, so they can be written before the
+     * message itself without clobbering the body of a message that already holds the monoton
+     */
+    private Statement getInsertBodyStatement(final Message message, final MessageTag tag) {
+        final MonotonicIndex index = message.getIndex();
+
+        final MessageCodec codec = MessageCodec.of(message, queueDefinition.isCompressMessages());
+
+        if (codec != null) {
+            return preparedStatements.bind(INSERT_ENCODED_MESSAGE_BODY,
+                                           queueDefinition.getId().get(),
+                                           index.toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                           index.get(),
+                                           tag.get(),
+                                           codec.encode(message),
+                                           codec.name());
+        }
+
+        return preparedStatements.bind(INSERT_MESSAGE_BODY,
+                                       queueDefinition.getId().get(),
+                                       index.toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                       index.get(),
+                                       tag.get(),
+                                       message.getBlob());
+    }
+
+    /**
+     * Updates always set text, clearing whatever bytes the message may have been published with
+     */
+    private Statement getReplaceBodyStatement(final MonotonicIndex index, final String bodyKey, final String blob) {
+        final MessageCodec codec = queueDefinition.isCompressMessages() ? MessageCodec.Deflate : null;
+
+        return preparedStatements.bind(REPLACE_MESSAGE_BODY,
+                                       queueDefinition.getId().get(),
+                                       index.toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                       index.get(),
+                                       bodyKey,
+                                       codec == null ? blob : null,
+                                       codec == null ? null : codec.encode(blob),
+                                       codec == null ? null : codec.name());
+    }
+
+    private Statement getDeleteBodyStatement(final MonotonicIndex index, final String bodyKey) {
+        return preparedStatements.bind(DELETE_MESSAGE_BODY,
+                                       queueDefinition.getId().get(),
+                                       index.toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                       index.get(),
+                                       bodyKey);
+    }
+
+    /**
+     * Body rows are keyed by the message's tag until the body is first updated, then by its body version
+     */
+    private static String bodyKey(final Message message) {
+        return message.getBodyVersion() != null ? message.getBodyVersion() : message.getTag().get();
+    }
+
+    @Override
+    public Message withBody(final Message message) {
+        if (!needsBody(message)) {
+            return message;
+        }
+
+        return withBody(message, session.execute(getReadBodyStatement(message)).one());
+    }
+
+    private CompletableFuture<Message> withBodyAsync(final Message message) {
+        if (!needsBody(message)) {
+            return CompletableFuture.completedFuture(message);
+        }
+
+        return asyncSession.execute(getReadBodyStatement(message))
+                           .thenApply(resultSet -> withBody(message, resultSet.one()));
+    }
+
+    private static Message withBody(final Message message, final Row body) {
+        if (body == null) {
+            return message;
+        }
+
+        return MessageCodec.readBody(message.toBuilder(), body, Tables.MessageBody.MESSAGE, Tables.MessageBody.MESSAGE_DATA, Tables.MessageBody.CODEC)
+                           .build();
+    }
+
+    private boolean needsBody(final Message message) {
+        return queueDefinition.isSplitMessageBody() && !message.hasBody() && message.isNotSpecial() && message.getTag() != null;
+    }
+
+    private Statement getReadBodyStatement(final Message message) {
+        return preparedStatements.bind(READ_MESSAGE_BODY,
+                                       queueDefinition.getId().get(),
+                                       message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get(),
+                                       message.getIndex().get(),
+                                       bodyKey(message));
+    }
+
 
     public Optional<Message> rawConsumeMessage(final Message message, final Duration duration) {
 
@@ -96,20 +685,33 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
         final int newVersion = message.getVersion() + 1;
         final int deliveryCount = message.getDeliveryCount() + 1;
 
-        final Statement statement = QueryBuilder.update(Tables.Message.TABLE_NAME)
-                                                .with(set(Tables.Message.NEXT_VISIBLE_ON, newInvisTime.toDate()))
-                                                .and(set(Tables.Message.VERSION, newVersion))
-                                                .and(set(Tables.Message.DELIVERY_COUNT, deliveryCount))
-                                                .where(eq(Tables.Message.QUEUE_ID, queueDefinition.getId().get()))
-                                                .and(eq(Tables.Message.BUCKET_NUM, bucketPointer))
-                                                .and(eq(Tables.Message.MONOTON, message.getIndex().get()))
-                                                .onlyIf(eq(Tables.Message.VERSION, message.getVersion()))
-                                                .and(eq(Tables.Message.ACKED, false));
+        visibilityIndex.track(queueDefinition.getId(), message.getIndex(), newInvisTime.toInstant());
+
+        final Statement statement = preparedStatements.bind(CONSUME_MESSAGE,
+                                                            newInvisTime.toDate(),
+                                                            newVersion,
+                                                            deliveryCount,
+                                                            queueDefinition.getId().get(),
+                                                            bucketPointer,
+                                                            message.getIndex().get(),
+                                                            message.getVersion());
 
         if (session.execute(statement).wasApplied()) {
-            return Optional.of(message.toBuilder().version(newVersion).build());
+            applyToSnapshot(message.getIndex(), snapshotted -> snapshotted.toBuilder()
+                                                                          .version(newVersion)
+                                                                          .deliveryCount(deliveryCount)
+                                                                          .nextVisiblityAt(newInvisTime)
+                                                                          .build());
+
+            emptyQueues.visibleAt(queueDefinition.getId(), newInvisTime.toInstant());
+
+            // scans only carry state when bodies are kept apart, this is the one message that needs its body
+            return Optional.of(withBody(message.toBuilder().version(newVersion).build()));
         }
 
+        // someone else got to it first, so whatever we read this from is stale
+        invalidateSnapshot(message.getIndex());
+
         return Optional.empty();
     }
 
@@ -122,20 +724,12 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
         // conditionally ack if message version is the same as in the message
         //  if was able to update then return true, otehrwise false
 
-        final Long bucketPointer = message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get();
-
-        Statement statement = QueryBuilder.update(Tables.Message.TABLE_NAME)
-                                          .with(set(Tables.Message.ACKED, true))
-                                          .and(set(Tables.Message.VERSION, message.getVersion() + 1))
-                                          .where(eq(Tables.Message.QUEUE_ID, queueDefinition.getId().get()))
-                                          .and(eq(Tables.Message.BUCKET_NUM, bucketPointer))
-                                          .and(eq(Tables.Message.MONOTON, message.getIndex().get()))
-                                          .onlyIf(eq(Tables.Message.VERSION, message.getVersion()));
-
-        final ResultSet resultSet = session.execute(statement);
+        final ResultSet resultSet = session.execute(getAckStatement(message));
 
         final boolean wasApplied = resultSet.wasApplied();
 
+        ackedInSnapshot(message.getIndex(), message.getVersion(), wasApplied);
+
         if (wasApplied) {
             updateQueueSize(-1);
         }
@@ -143,53 +737,273 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
         return wasApplied;
     }
 
+    @Override
+    public CompletableFuture<Boolean> ackMessageAsync(final Message message) {
+        return asyncSession.execute(getAckStatement(message)).thenCompose(resultSet -> {
+            ackedInSnapshot(message.getIndex(), message.getVersion(), resultSet.wasApplied());
+
+            if (resultSet.wasApplied()) {
+                return updateQueueSizeAsync(-1).thenApply(ignored -> true);
+            }
+
+            return CompletableFuture.completedFuture(false);
+        });
+    }
+
+    private Statement getAckStatement(final Message message) {
+        final Long bucketPointer = message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get();
+
+        return preparedStatements.bind(ACK_MESSAGE,
+                                       message.getVersion() + 1,
+                                       message.getIndex().get(),
+                                       queueDefinition.getId().get(),
+                                       bucketPointer,
+                                       message.getIndex().get(),
+                                       message.getVersion());
+    }
+
+    @Override
+    public CompletableFuture<AckResult> ackMessagesAsync(final List<PopReceipt> popReceipts) {
+        final List<PopReceipt> distinct = popReceipts.stream().distinct().collect(toList());
+
+        final List<CompletableFuture<Optional<Boolean>>> pendingAcks = distinct.stream().map(this::ackAsync).collect(toList());
+
+        return CompletableFuture.allOf(pendingAcks.toArray(new CompletableFuture[pendingAcks.size()])).thenCompose(ignored -> {
+            final List<PopReceipt> acked = new ArrayList<>(distinct.size());
+
+            final List<PopReceipt> errored = new ArrayList<>();
+
+            for (int i = 0; i < distinct.size(); i++) {
+                final Optional<Boolean> wasApplied = pendingAcks.get(i).join();
+
+                if (!wasApplied.isPresent()) {
+                    errored.add(distinct.get(i));
+                }
+                else if (wasApplied.get()) {
+                    acked.add(distinct.get(i));
+                }
+            }
+
+            final AckResult result = new AckResult(acked, errored);
+
+            if (acked.isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+
+            return updateQueueSizeAsync(-acked.size()).thenApply(sizeUpdated -> result);
+        });
+    }
+
+    /**
+     * @return whether the ack was applied, empty when that can't be told
+     */
+    private CompletableFuture<Optional<Boolean>> ackAsync(final PopReceipt popReceipt) {
+        return asyncSession.execute(getAckStatement(popReceipt))
+                           .thenApply(resultSet -> Optional.of(resultSet.wasApplied()))
+                           .exceptionally(e -> {
+                               logger.with("pop-receipt", popReceipt).error(e, "Error acking message");
+
+                               return Optional.empty();
+                           })
+                           .thenCompose(wasApplied -> wasApplied.isPresent()
+                                                      ? CompletableFuture.completedFuture(wasApplied)
+                                                      : confirmAckAsync(popReceipt))
+                           .thenApply(wasApplied -> {
+                               if (wasApplied.isPresent()) {
+                                   ackedInSnapshot(popReceipt.getMessageIndex(), popReceipt.getMessageVersion(), wasApplied.get());
+                               }
+                               else {
+                                   invalidateSnapshot(popReceipt.getMessageIndex());
+                               }
+
+                               return wasApplied;
+                           });
+    }
+
+    /**
+     * A conditional update that timed out may still have gone through, the message row tells
+     * whether it did. Only a row still at the pop receipt's version is left undecided
+     */
+    private CompletableFuture<Optional<Boolean>> confirmAckAsync(final PopReceipt popReceipt) {
+        final BucketPointer bucketPointer = popReceipt.getMessageIndex().toBucketPointer(queueDefinition.getBucketSize());
+
+        return asyncSession.execute(getReadMessageQuery(bucketPointer, popReceipt.getMessageIndex().get()))
+                           .thenApply(resultSet -> {
+                               final Message message = getOne(resultSet, Message::fromRow);
+
+                               if (message == null || !message.getTag().equals(popReceipt.getMessageTag())) {
+                                   return Optional.of(false);
+                               }
+
+                               if (message.getVersion() == popReceipt.getMessageVersion()) {
+                                   return Optional.<Boolean>empty();
+                               }
+
+                               return Optional.of(message.isAcked() && message.getVersion() == popReceipt.getMessageVersion() + 1);
+                           })
+                           .exceptionally(e -> {
+                               logger.with("pop-receipt", popReceipt).error(e, "Error confirming ack");
+
+                               return Optional.empty();
+                           });
+    }
+
+    private Statement getAckStatement(final PopReceipt popReceipt) {
+        final Long bucketPointer = popReceipt.getMessageIndex().toBucketPointer(queueDefinition.getBucketSize()).get();
+
+        // the version and tag checks replace the read the single ack does up front
+        return preparedStatements.bind(ACK_MESSAGE_WITH_TAG,
+                                       popReceipt.getMessageVersion() + 1,
+                                       popReceipt.getMessageIndex().get(),
+                                       queueDefinition.getId().get(),
+                                       bucketPointer,
+                                       popReceipt.getMessageIndex().get(),
+                                       popReceipt.getMessageVersion(),
+                                       popReceipt.getMessageTag().get());
+    }
+
     @Override
     public boolean finalize(final RepairBucketPointer bucketPointer) {
-        return insertSpecialIndex(SpecialIndex.Finalizer, bucketPointer);
+        bucketSnapshots.invalidate(queueDefinition.getId(), bucketPointer);
+
+        final boolean inserted = insertSpecialIndex(SpecialIndex.Finalizer, bucketPointer);
+
+        // lets the invis pointer move past the bucket, so readers need to walk it again
+        emptyQueues.published(queueDefinition.getId());
+
+        return inserted;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> finalizeAsync(final RepairBucketPointer bucketPointer) {
+        bucketSnapshots.invalidate(queueDefinition.getId(), bucketPointer);
+
+        return asyncSession.execute(getSpecialIndexStatement(SpecialIndex.Finalizer, bucketPointer)).thenApply(resultSet -> {
+            emptyQueues.published(queueDefinition.getId());
+
+            return resultSet.wasApplied();
+        });
     }
 
     @Override
     public boolean tombstone(final ReaderBucketPointer bucketPointer) {
+        bucketSnapshots.invalidate(queueDefinition.getId(), bucketPointer);
+
         return insertSpecialIndex(SpecialIndex.Tombstone, bucketPointer);
     }
 
+    @Override
+    public CompletableFuture<Boolean> tombstoneAsync(final ReaderBucketPointer bucketPointer) {
+        bucketSnapshots.invalidate(queueDefinition.getId(), bucketPointer);
+
+        return asyncSession.execute(getSpecialIndexStatement(SpecialIndex.Tombstone, bucketPointer)).thenApply(ResultSet::wasApplied);
+    }
+
     @Override
     public List<Message> getBucketContents(final BucketPointer bucketPointer) {
+        return bucketSnapshots.refresh(queueDefinition.getId(), bucketPointer, readBucket(bucketPointer));
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> getBucketContentsAsync(final BucketPointer bucketPointer) {
+        return asyncSession.execute(getReadBucketQuery(bucketPointer))
+                           .thenApply(resultSet -> bucketSnapshots.refresh(queueDefinition.getId(), bucketPointer, toMessages(resultSet)));
+    }
+
+    @Override
+    public List<Message> getBucketSnapshot(final BucketPointer bucketPointer) {
+        return bucketSnapshots.getBucketContents(queueDefinition.getId(), bucketPointer, () -> readBucket(bucketPointer));
+    }
+
+    private List<Message> readBucket(final BucketPointer bucketPointer) {
         // list all messages in bucket
-        Statement query = getReadMessageQuery(bucketPointer);
+        return toMessages(session.execute(getReadBucketQuery(bucketPointer)));
+    }
 
-        return session.execute(query)
-                      .all()
-                      .stream()
-                      .map(Message::fromRow)
-                      .collect(toList());
+    private Statement getReadBucketQuery(final BucketPointer bucketPointer) {
+        return preparedStatements.bind(READ_BUCKET, queueDefinition.getId().get(), bucketPointer.get());
+    }
+
+    private static List<Message> toMessages(final ResultSet resultSet) {
+        return resultSet.all()
+                        .stream()
+                        .map(Message::fromRow)
+                        .collect(toList());
     }
 
     @Override
     public Optional<DateTime> tombstoneExists(final BucketPointer bucketPointer) {
-        Statement query = getReadMessageQuery(bucketPointer).and(eq(Tables.Message.MONOTON, SpecialIndex.Tombstone.getIndex().get()));
+        Statement query = getReadMessageQuery(bucketPointer, SpecialIndex.Tombstone.getIndex().get());
 
         return Optional.ofNullable(getOne(session.execute(query), row -> new DateTime(row.getTimestamp(Tables.Message.CREATED_DATE))));
     }
 
+    @Override
+    public BucketSummary getBucketSummary(final BucketPointer bucketPointer) {
+        return toBucketSummary(session.execute(getReadBucketSummaryQuery(bucketPointer)));
+    }
+
+    @Override
+    public CompletableFuture<BucketSummary> getBucketSummaryAsync(final BucketPointer bucketPointer) {
+        return asyncSession.execute(getReadBucketSummaryQuery(bucketPointer)).thenApply(this::toBucketSummary);
+    }
+
+    private Statement getReadBucketSummaryQuery(final BucketPointer bucketPointer) {
+        return preparedStatements.bind(READ_BUCKET_SUMMARY, queueDefinition.getId().get(), bucketPointer.get());
+    }
+
+    private BucketSummary toBucketSummary(final ResultSet resultSet) {
+        return Optional.ofNullable(getOne(resultSet, BucketSummary::fromRow)).orElse(BucketSummary.EMPTY);
+    }
+
     @Override
     public void deleteAllMessages(final BucketPointer bucket) {
-        final Statement delete = QueryBuilder.delete()
-                                             .all()
-                                             .from(Tables.Message.TABLE_NAME)
-                                             .where(eq(Tables.Message.QUEUE_ID, queueDefinition.getId().get()))
-                                             .and(eq(Tables.Message.BUCKET_NUM, bucket.get()));
+        deleteAllMessages(Collections.singletonList(bucket));
+    }
+
+    @Override
+    public void deleteAllMessages(final List<? extends BucketPointer> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        final List<Long> bucketNums = buckets.stream().map(BucketPointer::get).collect(toList());
+
+        session.execute(preparedStatements.bind(DELETE_BUCKETS, queueDefinition.getId().get(), bucketNums));
 
-        session.execute(delete);
+        if (queueDefinition.isSplitMessageBody()) {
+            session.execute(preparedStatements.bind(DELETE_BUCKET_BODIES, queueDefinition.getId().get(), bucketNums));
+        }
+
+        buckets.forEach(bucket -> bucketSnapshots.invalidate(queueDefinition.getId(), bucket));
     }
 
     @Override
     public Message getMessage(final MessagePointer pointer) {
         final BucketPointer bucketPointer = ReaderBucketPointer.valueOf(pointer.get() / queueDefinition.getBucketSize().get());
 
-        Statement query = getReadMessageQuery(bucketPointer).and(eq(Tables.Message.MONOTON, pointer.get()));
+        Statement query = getReadMessageQuery(bucketPointer, pointer.get());
+
+        final Message message = getOne(session.execute(query), Message::fromRow);
 
-        return getOne(session.execute(query), Message::fromRow);
+        return message == null ? null : withBody(message);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Message>> getMessageAsync(final MessagePointer pointer) {
+        final BucketPointer bucketPointer = ReaderBucketPointer.valueOf(pointer.get() / queueDefinition.getBucketSize().get());
+
+        Statement query = getReadMessageQuery(bucketPointer, pointer.get());
+
+        return asyncSession.execute(query).thenCompose(resultSet -> {
+            final Message message = getOne(resultSet, Message::fromRow);
+
+            if (message == null) {
+                return CompletableFuture.completedFuture(Optional.<Message>empty());
+            }
+
+            return withBodyAsync(message).thenApply(Optional::of);
+        });
     }
 
     @Override
@@ -198,23 +1012,49 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
 
         final Date nextVisibleOn = now.plus(message.getInvisibilityDuration()).toDate();
 
-        final Update.Assignments updater =
-                QueryBuilder.update(Tables.Message.TABLE_NAME)
-                            .where(eq(Tables.Message.QUEUE_ID, queueDefinition.getId().get()))
-                            .and(eq(Tables.Message.BUCKET_NUM, message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get()))
-                            .and(eq(Tables.Message.MONOTON, message.getIndex().get()))
-                            .with(set(Tables.Message.VERSION, message.getVersion() + 1))
-                            .and(set(Tables.Message.NEXT_VISIBLE_ON, nextVisibleOn));
+        final boolean newBodyApart = message.getNewBlob() != null && queueDefinition.isSplitMessageBody();
+
+        // a body kept apart is never rewritten in place: the new one goes in under a new body version and
+        // the update below switches the message over to it, so readers see either the old body or the new one
+        String oldBodyKey = null;
+
+        String newBodyVersion = null;
+
+        if (newBodyApart) {
+            final BucketPointer bucketPointer = message.getIndex().toBucketPointer(queueDefinition.getBucketSize());
+
+            final Message current = getOne(session.execute(getReadMessageQuery(bucketPointer, message.getIndex().get())), Message::fromRow);
+
+            if (current == null || current.getVersion() != message.getVersion() || !current.getTag().equals(message.getTag())) {
+                return Optional.empty();
+            }
+
+            oldBodyKey = bodyKey(current);
+
+            do {
+                newBodyVersion = MessageTag.random().get();
+            } while (newBodyVersion.equals(oldBodyKey));
 
-        if (message.getNewBlob() != null) {
-            updater.and(set(Tables.Message.MESSAGE, message.getNewBlob()));
+            session.execute(getReplaceBodyStatement(message.getIndex(), newBodyVersion, message.getNewBlob()));
         }
 
-        updater.onlyIf(eq(Tables.Message.VERSION, message.getVersion()))
-               .and(eq(Tables.Message.TAG, message.getTag().get()))
-               .with(set(Tables.Message.UPDATED_DATE, now.toDate()));
+        final Statement updater = getUpdateStatement(message, now, nextVisibleOn, newBodyVersion);
+
+        visibilityIndex.track(queueDefinition.getId(), message.getIndex(), new Instant(nextVisibleOn));
+
+        final boolean wasApplied = session.execute(updater).wasApplied();
+
+        invalidateSnapshot(message.getIndex());
+
+        if (newBodyApart) {
+            // whichever body the message didn't end up pointing at is unreachable now
+            session.execute(getDeleteBodyStatement(message.getIndex(), wasApplied ? oldBodyKey : newBodyVersion));
+        }
+
+        if (wasApplied) {
+
+            emptyQueues.visibleAt(queueDefinition.getId(), new Instant(nextVisibleOn));
 
-        if (session.execute(updater).wasApplied()) {
             logger.with("monoton", message.getIndex())
                   .with("tag", message.getTag())
                   .with("next-visible-on", nextVisibleOn)
@@ -226,41 +1066,145 @@ public class MessageRepositoryImpl extends RepositoryBase implements MessageRepo
         return Optional.empty();
     }
 
+    /**
+     * @param newBodyVersion set when the new body was written apart under it
+     */
+    private Statement getUpdateStatement(
+            final MessageUpdateRequest message,
+            final DateTime now,
+            final Date nextVisibleOn,
+            final String newBodyVersion) {
+        if (newBodyVersion != null) {
+            return bindUpdate(UPDATE_MESSAGE_WITH_BODY_VERSION, message, now, nextVisibleOn, newBodyVersion);
+        }
+
+        if (message.getNewBlob() == null) {
+            return bindUpdate(UPDATE_MESSAGE, message, now, nextVisibleOn);
+        }
+
+        if (queueDefinition.isCompressMessages()) {
+            return bindUpdate(UPDATE_MESSAGE_WITH_ENCODED,
+                              message,
+                              now,
+                              nextVisibleOn,
+                              MessageCodec.Deflate.encode(message.getNewBlob()),
+                              MessageCodec.Deflate.name());
+        }
+
+        return bindUpdate(UPDATE_MESSAGE_WITH_TEXT, message, now, nextVisibleOn, message.getNewBlob());
+    }
+
+    /**
+     * Every update shape sets the version, visibility and updated date, then its own columns,
+     * and shares the same key and conditions
+     */
+    private Statement bindUpdate(
+            final RegularStatement shape,
+            final MessageUpdateRequest message,
+            final DateTime now,
+            final Date nextVisibleOn,
+            final Object... columns) {
+        final List<Object> values = new ArrayList<>(columns.length + 8);
+
+        values.add(message.getVersion() + 1);
+        values.add(nextVisibleOn);
+        values.add(now.toDate());
+        values.addAll(Arrays.asList(columns));
+        values.add(queueDefinition.getId().get());
+        values.add(message.getIndex().toBucketPointer(queueDefinition.getBucketSize()).get());
+        values.add(message.getIndex().get());
+        values.add(message.getVersion());
+        values.add(message.getTag().get());
+
+        return preparedStatements.bind(shape, values.toArray());
+    }
+
     @Override
     public boolean finalizedExists(final BucketPointer bucketPointer) {
-        Statement query = getReadMessageQuery(bucketPointer).and(eq(Tables.Message.MONOTON, SpecialIndex.Finalizer.getIndex().get()));
+        Statement query = getReadMessageQuery(bucketPointer, SpecialIndex.Finalizer.getIndex().get());
 
         return Optional.ofNullable(getOne(session.execute(query), row -> true)).orElse(false);
     }
 
-    private Select.Where getReadMessageQuery(final BucketPointer bucketPointer) {
-        return QueryBuilder.select()
-                           .all()
-                           .from(Tables.Message.TABLE_NAME)
-                           .where(eq(Tables.Message.QUEUE_ID, queueDefinition.getId().get()))
-                           .and(eq(Tables.Message.BUCKET_NUM, bucketPointer.get()));
+    private Statement getReadMessageQuery(final BucketPointer bucketPointer, final long monoton) {
+        return preparedStatements.bind(READ_MESSAGE, queueDefinition.getId().get(), bucketPointer.get(), monoton);
     }
 
     private boolean insertSpecialIndex(SpecialIndex specialIndex, BucketPointer bucketPointer) {
-        final DateTime now = getNow();
+        return session.execute(getSpecialIndexStatement(specialIndex, bucketPointer)).wasApplied();
+    }
+
+    private Statement getSpecialIndexStatement(SpecialIndex specialIndex, BucketPointer bucketPointer) {
+        final Date now = getNow().toDate();
+
+        return preparedStatements.bind(specialIndexInsert(specialIndex),
+                                       queueDefinition.getId().get(),
+                                       bucketPointer.get(),
+                                       specialIndex.getIndex().get(),
+                                       now,
+                                       now,
+                                       now);
+    }
 
-        Statement statement = QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
-                                          .ifNotExists()
-                                          .value(Tables.Message.QUEUE_ID, queueDefinition.getId().get())
-                                          .value(Tables.Message.BUCKET_NUM, bucketPointer.get())
-                                          .value(Tables.Message.ACKED, true)
-                                          .value(Tables.Message.MONOTON, specialIndex.getIndex().get())
-                                          .value(Tables.Message.NEXT_VISIBLE_ON, now.toDate())
-                                          .value(Tables.Message.CREATED_DATE, now.toDate());
+    /**
+     * Special indexes differ only in the summary column they stamp, so each gets a statement of its own
+     */
+    private static RegularStatement specialIndexInsert(SpecialIndex specialIndex) {
+        switch (specialIndex) {
+            case Tombstone:
+                return INSERT_TOMBSTONE;
+            case Finalizer:
+                return INSERT_FINALIZER;
+        }
+
+        throw new IllegalArgumentException("No summary column for " + specialIndex);
+    }
 
-        return session.execute(statement).wasApplied();
+    private static RegularStatement insertSpecialIndex(String summaryColumn) {
+        return QueryBuilder.insertInto(Tables.Message.TABLE_NAME)
+                           .ifNotExists()
+                           .value(Tables.Message.QUEUE_ID, bindMarker())
+                           .value(Tables.Message.BUCKET_NUM, bindMarker())
+                           .value(Tables.Message.ACKED, true)
+                           .value(Tables.Message.MONOTON, bindMarker())
+                           .value(Tables.Message.NEXT_VISIBLE_ON, bindMarker())
+                           .value(Tables.Message.CREATED_DATE, bindMarker())
+                           .value(summaryColumn, bindMarker());
+    }
+
+    /**
+     * Lets readers on this node that found the queue empty know to look again
+     */
+    private void messagesArrived(final DateTime now, final Duration initialInvisibility) {
+        emptyQueues.published(queueDefinition.getId());
+
+        if (initialInvisibility.isLongerThan(Duration.ZERO)) {
+            emptyQueues.visibleAt(queueDefinition.getId(), now.plus(initialInvisibility).toInstant());
+        }
+    }
+
+    private void ackedInSnapshot(final MonotonicIndex index, final int version, final boolean wasApplied) {
+        if (wasApplied) {
+            applyToSnapshot(index, snapshotted -> snapshotted.toBuilder().isAcked(true).version(version + 1).build());
+        }
+        else {
+            invalidateSnapshot(index);
+        }
+    }
+
+    private void applyToSnapshot(final MonotonicIndex index, final UnaryOperator<Message> update) {
+        bucketSnapshots.apply(queueDefinition.getId(), index.toBucketPointer(queueDefinition.getBucketSize()), index, update);
+    }
+
+    private void invalidateSnapshot(final MonotonicIndex index) {
+        bucketSnapshots.invalidate(queueDefinition.getId(), index.toBucketPointer(queueDefinition.getBucketSize()));
     }
 
     private void updateQueueSize(int amount) {
-        final Statement with = QueryBuilder.update(Tables.QueueStats.TABLE_NAME)
-                                           .where(eq(Tables.QueueStats.QUEUE_STATS_ID, queueDefinition.getQueueStatsId().get()))
-                                           .with(incr(Tables.QueueStats.SIZE, amount));
+        queueSizes.add(queueDefinition.getQueueStatsId(), amount);
+    }
 
-        session.execute(with);
+    private CompletableFuture<Void> updateQueueSizeAsync(int amount) {
+        return queueSizes.addAsync(queueDefinition.getQueueStatsId(), amount);
     }
 }
@@ -1,24 +1,62 @@
 package io.paradoxical.cassieq.dataAccess;
 
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.configurations.PublishConfig;
 import io.paradoxical.cassieq.dataAccess.interfaces.MonotonicRepository;
+import io.paradoxical.cassieq.model.MonotonLease;
 import io.paradoxical.cassieq.model.MonotonicIndex;
 import io.paradoxical.cassieq.model.QueueId;
+import org.joda.time.Duration;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static java.util.stream.Collectors.toList;
 
 public class MonotonicRepoImpl extends RepositoryBase implements MonotonicRepository {
+    private static final RegularStatement READ_MONOTON =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Monoton.TABLE_NAME)
+                        .where(eq(Tables.Monoton.QUEUE_ID, bindMarker()));
+
+    private static final RegularStatement MOVE_MONOTON =
+            QueryBuilder.update(Tables.Monoton.TABLE_NAME)
+                        .with(set(Tables.Monoton.VALUE, bindMarker()))
+                        .where(eq(Tables.Monoton.QUEUE_ID, bindMarker()))
+                        .onlyIf(eq(Tables.Monoton.VALUE, bindMarker()));
+
     private final Session session;
+    private final AsyncSession asyncSession;
+    private final PreparedStatementCache preparedStatements;
+    private final EmptyQueueCache emptyQueues;
+    private final PublishConfig publishConfig;
     private final QueueId queueId;
 
     @Inject
-    public MonotonicRepoImpl(Session session, @Assisted QueueId id) {
+    public MonotonicRepoImpl(
+            Session session,
+            AsyncSession asyncSession,
+            PreparedStatementCache preparedStatements,
+            EmptyQueueCache emptyQueues,
+            PublishConfig publishConfig,
+            @Assisted QueueId id) {
         this.session = session;
+        this.asyncSession = asyncSession;
+        this.preparedStatements = preparedStatements;
+        this.emptyQueues = emptyQueues;
+        this.publishConfig = publishConfig;
         this.queueId = id;
     }
 
@@ -27,24 +65,109 @@ public class MonotonicRepoImpl extends RepositoryBase implements MonotonicReposi
         MonotonicIndex nextMonotonic = null;
 
         while (nextMonotonic == null) {
-            nextMonotonic = incrementMonotonicValue();
+            nextMonotonic = incrementMonotonicValue(1);
         }
 
         return nextMonotonic;
     }
 
     @Override
-    public MonotonicIndex getCurrent() {
-        Statement statement = QueryBuilder.select()
-                                          .all()
-                                          .from(Tables.Monoton.TABLE_NAME)
-                                          .where(eq(Tables.Monoton.QUEUE_ID, queueId.get()));
+    public CompletableFuture<MonotonicIndex> nextMonotonicAsync() {
+        return getCurrentAsync().thenCompose(current -> {
+            final long value = current.get();
+
+            return asyncSession.execute(getMoveMonotonStatement(value, value + 1))
+                               .thenCompose(resultSet -> resultSet.wasApplied()
+                                                         ? CompletableFuture.completedFuture(current)
+                                                         : nextMonotonicAsync());
+        });
+    }
+
+    @Override
+    public List<MonotonicIndex> nextMonotonics(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must reserve at least one monoton");
+        }
 
-        MonotonicIndex current = getOne(session.execute(statement), MonotonicIndex::map);
+        MonotonicIndex start = null;
+
+        while (start == null) {
+            start = incrementMonotonicValue(count);
+        }
+
+        return LongStream.range(start.get(), start.get() + count)
+                         .mapToObj(MonotonicIndex::valueOf)
+                         .collect(toList());
+    }
+
+    @Override
+    public MonotonLease leaseMonotonics(final int count, final Duration ttl) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must lease at least one monoton");
+        }
+
+        while (true) {
+            final long current = getCurrent().get();
+
+            final MonotonLease lease = new MonotonLease(MonotonicIndex.valueOf(current), MonotonicIndex.valueOf(current + count));
+
+            // record the lease before moving the monoton so nobody can see the
+            // monoton past a bucket without also seeing the lease covering it
+            writeLease(lease, ttl);
+
+            if (tryMoveMonoton(current, current + count)) {
+                return lease;
+            }
+
+            deleteLease(lease);
+        }
+    }
+
+    @Override
+    public void releaseLease(final MonotonLease lease) {
+        deleteLease(lease);
+
+        // readers hold off closing buckets under a lease, so they have something to do again
+        emptyQueues.published(queueId);
+    }
+
+    @Override
+    public List<MonotonLease> getLeases() {
+        if (!publishConfig.getMonotonLeasingEnabled()) {
+            return Collections.emptyList();
+        }
+
+        final Statement statement = QueryBuilder.select()
+                                                .all()
+                                                .from(Tables.MonotonLease.TABLE_NAME)
+                                                .where(eq(Tables.MonotonLease.QUEUE_ID, queueId.get()));
+
+        return session.execute(statement)
+                      .all()
+                      .stream()
+                      .map(MonotonLease::fromRow)
+                      .collect(toList());
+    }
+
+    @Override
+    public MonotonicIndex getCurrent() {
+        MonotonicIndex current = getOne(session.execute(getCurrentStatement()), MonotonicIndex::map);
 
         return current == null ? MonotonicIndex.valueOf(0) : current;
     }
 
+    private CompletableFuture<MonotonicIndex> getCurrentAsync() {
+        return asyncSession.execute(getCurrentStatement()).thenApply(resultSet -> {
+            final MonotonicIndex current = getOne(resultSet, MonotonicIndex::map);
+
+            return current == null ? MonotonicIndex.valueOf(0) : current;
+        });
+    }
+
+    private Statement getCurrentStatement() {
+        return preparedStatements.bind(READ_MONOTON, queueId.get());
+    }
+
     @Override
     public void deleteAll() {
         final Statement delete = QueryBuilder.delete().all()
@@ -52,22 +175,54 @@ public class MonotonicRepoImpl extends RepositoryBase implements MonotonicReposi
                                              .where(eq(Tables.Monoton.QUEUE_ID, queueId.get()));
 
         session.execute(delete);
+
+        final Statement deleteLeases = QueryBuilder.delete().all()
+                                                   .from(Tables.MonotonLease.TABLE_NAME)
+                                                   .where(eq(Tables.MonotonLease.QUEUE_ID, queueId.get()));
+
+        session.execute(deleteLeases);
     }
 
-    private MonotonicIndex incrementMonotonicValue() {
-        Long current = getCurrent().get();
+    private void writeLease(final MonotonLease lease, final Duration ttl) {
+        final Statement insert = QueryBuilder.insertInto(Tables.MonotonLease.TABLE_NAME)
+                                             .value(Tables.MonotonLease.QUEUE_ID, queueId.get())
+                                             .value(Tables.MonotonLease.LEASE_START, lease.getStart().get())
+                                             .value(Tables.MonotonLease.LEASE_END, lease.getEnd().get())
+                                             .using(ttl((int) ttl.getStandardSeconds()));
 
-        final long next = current + 1;
+        session.execute(insert);
+    }
 
-        Statement stat = QueryBuilder.update(Tables.Monoton.TABLE_NAME)
-                                     .with(set(Tables.Monoton.VALUE, next))
-                                     .where(eq(Tables.Monoton.QUEUE_ID, queueId.get()))
-                                     .onlyIf(eq(Tables.Monoton.VALUE, current));
+    private void deleteLease(final MonotonLease lease) {
+        final Statement delete = QueryBuilder.delete().all()
+                                             .from(Tables.MonotonLease.TABLE_NAME)
+                                             .where(eq(Tables.MonotonLease.QUEUE_ID, queueId.get()))
+                                             .and(eq(Tables.MonotonLease.LEASE_START, lease.getStart().get()));
+
+        session.execute(delete);
+    }
 
-        if (session.execute(stat).wasApplied()) {
+    /**
+     * Moves the monoton forward by the amount, returning the first index of the claimed range
+     *
+     * @param amount
+     * @return null if someone else moved the monoton first
+     */
+    private MonotonicIndex incrementMonotonicValue(long amount) {
+        Long current = getCurrent().get();
+
+        if (tryMoveMonoton(current, current + amount)) {
             return MonotonicIndex.valueOf(current);
         }
 
         return null;
     }
+
+    private boolean tryMoveMonoton(long current, long next) {
+        return session.execute(getMoveMonotonStatement(current, next)).wasApplied();
+    }
+
+    private Statement getMoveMonotonStatement(long current, long next) {
+        return preparedStatements.bind(MOVE_MONOTON, next, queueId.get(), current);
+    }
 }
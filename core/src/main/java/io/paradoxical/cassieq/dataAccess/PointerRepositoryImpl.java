@@ -1,9 +1,9 @@
 package io.paradoxical.cassieq.dataAccess;
 
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
-import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.godaddy.logging.Logger;
 import com.google.inject.Inject;
@@ -20,13 +20,36 @@ import lombok.NonNull;
 
 import java.util.function.Function;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
 import static com.godaddy.logging.LoggerFactory.getLogger;
 
 public class PointerRepositoryImpl extends RepositoryBase implements PointerRepository {
+    private static final RegularStatement READ_POINTER =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Pointer.TABLE_NAME)
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()));
+
+    private static final RegularStatement MOVE_POINTER_IF_EQUALS =
+            QueryBuilder.update(Tables.Pointer.TABLE_NAME)
+                        .with(set(Tables.Pointer.VALUE, bindMarker()))
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()))
+                        .onlyIf(eq(Tables.Pointer.VALUE, bindMarker()));
+
+    private static final RegularStatement MOVE_POINTER_IF_GREATER =
+            QueryBuilder.update(Tables.Pointer.TABLE_NAME)
+                        .with(set(Tables.Pointer.VALUE, bindMarker()))
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()))
+                        .onlyIf(gt(Tables.Pointer.VALUE, bindMarker()));
+
     private final Session session;
+    private final PreparedStatementCache preparedStatements;
     private final QueueId id;
 
     private static final Logger logger = getLogger(PointerRepositoryImpl.class);
@@ -34,16 +57,18 @@ public class PointerRepositoryImpl extends RepositoryBase implements PointerRepo
     @Inject
     public PointerRepositoryImpl(
             @NonNull Provider<Session> session,
+            @NonNull PreparedStatementCache preparedStatements,
             @NonNull @Assisted QueueId id) {
         this.id = id;
         this.session = session.get();
+        this.preparedStatements = preparedStatements;
     }
 
     @Override
     public ReaderBucketPointer advanceMessageBucketPointer(
             @NonNull final ReaderBucketPointer original,
             @NonNull final ReaderBucketPointer next) {
-        if (tryMovePointer(PointerType.BUCKET_POINTER, next, pointerEqualsClause(original))) {
+        if (tryMovePointer(MOVE_POINTER_IF_EQUALS, PointerType.BUCKET_POINTER, next, original)) {
             logger.with("original", original).with("destination", next).info("Moved bucket pointer");
 
             return next;
@@ -60,7 +85,7 @@ public class PointerRepositoryImpl extends RepositoryBase implements PointerRepo
 
         final Logger moveLogger = logger.with("original", original).with("destination", destination);
         //If the destination is less than the current pointer value, move the pointer.
-        if (tryMovePointer(PointerType.INVISIBILITY_POINTER, destination, pointerGreaterThanClause(destination))) {
+        if (tryMovePointer(MOVE_POINTER_IF_GREATER, PointerType.INVISIBILITY_POINTER, destination, destination)) {
 
             moveLogger.info("Moved because destination is less than original");
 
@@ -68,7 +93,7 @@ public class PointerRepositoryImpl extends RepositoryBase implements PointerRepo
         }
 
         //If the pointer was not moved, attempt to move the pointer to the destination if the original pointer value equals the current pointer value.
-        if (tryMovePointer(PointerType.INVISIBILITY_POINTER, destination, pointerEqualsClause(original))) {
+        if (tryMovePointer(MOVE_POINTER_IF_EQUALS, PointerType.INVISIBILITY_POINTER, destination, original)) {
             moveLogger.info("Moved because original equals what is in the db");
 
             return destination;
@@ -82,7 +107,7 @@ public class PointerRepositoryImpl extends RepositoryBase implements PointerRepo
 
     @Override
     public RepairBucketPointer advanceRepairBucketPointer(@NonNull final RepairBucketPointer original, @NonNull final RepairBucketPointer next) {
-        if (tryMovePointer(PointerType.REPAIR_BUCKET, next, pointerEqualsClause(original))) {
+        if (tryMovePointer(MOVE_POINTER_IF_EQUALS, PointerType.REPAIR_BUCKET, next, original)) {
             return next;
         }
 
@@ -121,32 +146,18 @@ public class PointerRepositoryImpl extends RepositoryBase implements PointerRepo
     }
 
     private <T extends Pointer> T getPointer(PointerType pointerType, Function<Row, T> mapper) {
-        Statement query = QueryBuilder.select()
-                                      .all()
-                                      .from(Tables.Pointer.TABLE_NAME)
-                                      .where(eq(Tables.Pointer.QUEUE_ID, id.get()))
-                                      .and(eq(Tables.Pointer.POINTER_TYPE, pointerType.toString()));
+        Statement query = preparedStatements.bind(READ_POINTER, id.get(), pointerType.toString());
 
         return getOne(session.execute(query), mapper);
     }
 
-    private <T extends Pointer> boolean tryMovePointer(PointerType pointerType, T destination, Clause clause) {
-
-        Statement statement = QueryBuilder.update(Tables.Pointer.TABLE_NAME)
-                                          .with(set(Tables.Pointer.VALUE, destination.get()))
-                                          .where(eq(Tables.Pointer.QUEUE_ID, id.get()))
-                                          .and(eq(Tables.Pointer.POINTER_TYPE, pointerType.toString()))
-                                          .onlyIf(clause);
+    /**
+     * @param move      one of the move shapes, its condition is checked against the comparand
+     * @param comparand the value the current pointer is compared with
+     */
+    private <T extends Pointer> boolean tryMovePointer(RegularStatement move, PointerType pointerType, T destination, Pointer comparand) {
+        Statement statement = preparedStatements.bind(move, destination.get(), id.get(), pointerType.toString(), comparand.get());
 
         return session.execute(statement).wasApplied();
     }
-
-
-    private Clause pointerEqualsClause(Pointer pointer) {
-        return eq(Tables.Pointer.VALUE, pointer.get());
-    }
-
-    private Clause pointerGreaterThanClause(Pointer pointer) {
-        return gt(Tables.Pointer.VALUE, pointer.get());
-    }
 }
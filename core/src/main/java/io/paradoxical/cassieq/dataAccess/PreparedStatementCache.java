@@ -0,0 +1,34 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.google.inject.Inject;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Prepares each query shape once per session. Repositories keep their query shapes
+ * as static bind marker statements and only bind values on the hot path
+ */
+public class PreparedStatementCache {
+    private final Session session;
+
+    // shapes are static constants, so identity is the key
+    private final ConcurrentMap<RegularStatement, PreparedStatement> preparedStatements = new ConcurrentHashMap<>();
+
+    @Inject
+    public PreparedStatementCache(Session session) {
+        this.session = session;
+    }
+
+    public BoundStatement bind(RegularStatement shape, Object... values) {
+        return prepare(shape).bind(values);
+    }
+
+    public PreparedStatement prepare(RegularStatement shape) {
+        return preparedStatements.computeIfAbsent(shape, session::prepare);
+    }
+}
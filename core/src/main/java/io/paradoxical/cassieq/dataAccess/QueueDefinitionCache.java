@@ -0,0 +1,149 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
+import io.paradoxical.cassieq.clustering.eventing.EventListener;
+import io.paradoxical.cassieq.configurations.QueueCacheConfig;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.model.events.QueueAddedEvent;
+import io.paradoxical.cassieq.model.events.QueueDeletingEvent;
+import io.paradoxical.cassieq.model.events.QueueEvent;
+import io.paradoxical.cassieq.model.events.QueueUpdatedEvent;
+import lombok.Value;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Node local cache of active queue definitions.
+ *
+ * Only active queues are cached so a newly created queue is visible right away. Local changes
+ * invalidate synchronously and every node drops its entry when a queue event comes over the bus
+ */
+public class QueueDefinitionCache {
+    private final Cache<QueueKey, QueueDefinition> cache;
+
+    private final QueueCacheConfig config;
+
+    /**
+     * Bumped before every invalidation so a load that raced one isn't left in the cache
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Inject
+    public QueueDefinitionCache(EventBus eventBus, QueueCacheConfig config) {
+        this.config = config;
+
+        cache = CacheBuilder.newBuilder()
+                            .maximumSize(config.getMaxSize())
+                            .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+                            .build();
+
+        eventBus.register(QueueAddedEvent.class, invalidator());
+        eventBus.register(QueueDeletingEvent.class, invalidator());
+        eventBus.register(QueueUpdatedEvent.class, invalidator());
+    }
+
+    public Optional<QueueDefinition> getActiveQueue(
+            AccountName accountName,
+            QueueName queueName,
+            Supplier<Optional<QueueDefinition>> loader) {
+        if (!config.getEnabled()) {
+            return loader.get();
+        }
+
+        final QueueKey key = new QueueKey(accountName, queueName);
+
+        final QueueDefinition cached = cache.getIfPresent(key);
+
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        final long loadGeneration = generation.get();
+
+        final Optional<QueueDefinition> loaded = loader.get();
+
+        loaded.ifPresent(definition -> cacheLoaded(key, definition, loadGeneration));
+
+        return loaded;
+    }
+
+    public CompletableFuture<Optional<QueueDefinition>> getActiveQueueAsync(
+            AccountName accountName,
+            QueueName queueName,
+            Supplier<CompletableFuture<Optional<QueueDefinition>>> loader) {
+        if (!config.getEnabled()) {
+            return loader.get();
+        }
+
+        final QueueKey key = new QueueKey(accountName, queueName);
+
+        final QueueDefinition cached = cache.getIfPresent(key);
+
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+
+        final long loadGeneration = generation.get();
+
+        return loader.get().thenApply(loaded -> {
+            loaded.ifPresent(definition -> cacheLoaded(key, definition, loadGeneration));
+
+            return loaded;
+        });
+    }
+
+    public void invalidate(AccountName accountName, QueueName queueName) {
+        generation.incrementAndGet();
+
+        cache.invalidate(new QueueKey(accountName, queueName));
+    }
+
+    /**
+     * The definition may have been read before an invalidation landed. Checking after the put
+     * covers an invalidation that comes in between the check and the put
+     */
+    private void cacheLoaded(QueueKey key, QueueDefinition definition, long loadGeneration) {
+        if (generation.get() != loadGeneration) {
+            return;
+        }
+
+        cache.put(key, definition);
+
+        if (generation.get() != loadGeneration) {
+            cache.invalidate(key);
+        }
+    }
+
+    private <T extends QueueEvent> EventListener<T> invalidator() {
+        return new EventListener<T>() {
+            @Override
+            public void onMessage(final T item) {
+                if (item.getAccountName() == null || item.getQueueName() == null) {
+                    generation.incrementAndGet();
+
+                    cache.invalidateAll();
+
+                    return;
+                }
+
+                invalidate(AccountName.valueOf(item.getAccountName()), QueueName.valueOf(item.getQueueName()));
+            }
+        };
+    }
+
+    @Value
+    private static class QueueKey {
+        private final AccountName accountName;
+
+        private final QueueName queueName;
+    }
+}
@@ -20,11 +20,13 @@ import io.paradoxical.cassieq.model.QueueStatus;
 import io.paradoxical.cassieq.model.accounts.AccountName;
 import io.paradoxical.cassieq.model.events.QueueAddedEvent;
 import io.paradoxical.cassieq.model.events.QueueDeletingEvent;
+import io.paradoxical.cassieq.model.events.QueueUpdatedEvent;
 import lombok.NonNull;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
@@ -39,19 +41,31 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
 
     private final Session session;
 
+    private final AsyncSession asyncSession;
+
     private final EventBus eventBus;
 
+    private final QueueDefinitionCache queueDefinitionCache;
+
+    private final QueueSizeAccumulator queueSizes;
+
     private final AccountName accountName;
 
     @Inject
     public QueueRepositoryImpl(
             @NonNull final Session session,
+            @NonNull final AsyncSession asyncSession,
             final EventBus eventBus,
+            @NonNull final QueueDefinitionCache queueDefinitionCache,
+            @NonNull final QueueSizeAccumulator queueSizes,
             @NonNull
             @Assisted AccountName accountName) {
         this.session = session;
+        this.asyncSession = asyncSession;
         this.accountName = accountName;
         this.eventBus = eventBus;
+        this.queueDefinitionCache = queueDefinitionCache;
+        this.queueSizes = queueSizes;
     }
 
 
@@ -75,7 +89,7 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
 
                 logger.with("definition", definition).success("Marked for deletion");
 
-                eventBus.publish(new QueueDeletingEvent());
+                eventBus.publish(new QueueDeletingEvent(definition));
 
                 return deletionJob;
             }
@@ -86,6 +100,9 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
 
     @Override
     public Optional<Long> getQueueSize(final QueueDefinition definition) {
+        // changes pending on other nodes show up once they flush
+        queueSizes.flush(definition.getQueueStatsId());
+
         final Statement where = QueryBuilder.select(Tables.QueueStats.SIZE)
                                             .from(Tables.QueueStats.TABLE_NAME)
                                             .where(eq(Tables.QueueStats.QUEUE_STATS_ID, definition.getQueueStatsId().get()));
@@ -102,7 +119,9 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                                              .value(Tables.DeletionJob.ACCOUNT_NAME, accountName.get())
                                              .value(Tables.DeletionJob.VERSION, deletionJob.getVersion())
                                              .value(Tables.DeletionJob.QUEUE_STATS_ID, definition.getQueueStatsId().get())
-                                             .value(Tables.DeletionJob.BUCKET_SIZE, deletionJob.getBucketSize().get());
+                                             .value(Tables.DeletionJob.BUCKET_SIZE, deletionJob.getBucketSize().get())
+                                             .value(Tables.DeletionJob.SHARD_COUNT, deletionJob.getShardCount())
+                                             .value(Tables.DeletionJob.PRIORITY_LANES, deletionJob.getPriorityLanes());
 
         if (session.execute(insert).wasApplied()) {
             return Optional.of(deletionJob);
@@ -114,7 +133,7 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
     @Override
     public Optional<QueueDefinition> createQueue(@NonNull final QueueDefinition definition) {
         if (tryUpsertQueueDefinition(definition)) {
-            eventBus.publish(new QueueAddedEvent());
+            eventBus.publish(new QueueAddedEvent(accountName, definition.getQueueName()));
 
             return getActiveQueue(definition.getQueueName());
         }
@@ -150,6 +169,8 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                       .with("new-status", status)
                       .success("Advancing queue status");
 
+                queueDefinitionChanged(queueName);
+
                 return true;
             }
 
@@ -181,6 +202,10 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                             .value(Tables.Queue.MAX_DELIVERY_COUNT, initDefinition.getMaxDeliveryCount())
                             .value(Tables.Queue.DLQ_NAME, initDefinition.getDlqName().map(QueueName::get).orElse(null))
                             .value(Tables.Queue.STRICT_FIFO, initDefinition.isStrictFifo())
+                            .value(Tables.Queue.SPLIT_MESSAGE_BODY, initDefinition.isSplitMessageBody())
+                            .value(Tables.Queue.COMPRESS_MESSAGES, initDefinition.isCompressMessages())
+                            .value(Tables.Queue.SHARD_COUNT, initDefinition.getShardCount())
+                            .value(Tables.Queue.PRIORITY_LANES, initDefinition.getPriorityLanes())
                             .value(Tables.Queue.STATUS, QueueStatus.Provisioning.ordinal());
 
         final boolean queueInserted = session.execute(insertQueue).wasApplied();
@@ -262,6 +287,10 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                             .and(set(Tables.Queue.QUEUE_STATS_ID, newQueueCounterId.get()))
                             .and(set(Tables.Queue.DLQ_NAME, nextQueueDefinition.getDlqName().map(QueueName::get).orElse(null)))
                             .and(set(Tables.Queue.STRICT_FIFO, nextQueueDefinition.isStrictFifo()))
+                            .and(set(Tables.Queue.SPLIT_MESSAGE_BODY, nextQueueDefinition.isSplitMessageBody()))
+                            .and(set(Tables.Queue.COMPRESS_MESSAGES, nextQueueDefinition.isCompressMessages()))
+                            .and(set(Tables.Queue.SHARD_COUNT, nextQueueDefinition.getShardCount()))
+                            .and(set(Tables.Queue.PRIORITY_LANES, nextQueueDefinition.getPriorityLanes()))
                             .onlyIf(eq(Tables.Queue.VERSION, currentVersion))
                             .and(gte(Tables.Queue.STATUS, QueueStatus.Deleting.ordinal()));
 
@@ -269,6 +298,8 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
 
         if (queueUpdateApplied) {
             upsertLogger.success("Update queue to active");
+
+            queueDefinitionChanged(nextQueueDefinition.getQueueName());
         }
 
         return queueUpdateApplied;
@@ -279,9 +310,11 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
     }
 
     private void ensurePointers(final QueueDefinition queueDefinition) {
-        insertQueueMonotonicValueIfNotExists(queueDefinition.getId());
+        queueDefinition.allPartitions().forEach(partition -> {
+            insertQueueMonotonicValueIfNotExists(partition.getId());
 
-        insertQueuePointerIfNotExists(queueDefinition.getId());
+            insertQueuePointerIfNotExists(partition.getId());
+        });
     }
 
     private void insertQueuePointerIfNotExists(@NonNull final QueueId queueId) {
@@ -317,17 +350,18 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
      */
     @Override
     public Optional<QueueDefinition> getQueueUnsafe(@NonNull final QueueName queueName) {
-        final Select.Where queryOne =
-                QueryBuilder.select().all()
-                            .from(Tables.Queue.TABLE_NAME)
-                            .where(eq(Tables.Queue.QUEUE_NAME, queueName.get()))
-                            .and(eq(Tables.Queue.ACCOUNT_NAME, accountName.get()));
-
-        final QueueDefinition result = getOne(session.execute(queryOne), QueueDefinition::fromRow);
+        final QueueDefinition result = getOne(session.execute(getQueueQuery(queueName)), QueueDefinition::fromRow);
 
         return Optional.ofNullable(result);
     }
 
+    private Select.Where getQueueQuery(final QueueName queueName) {
+        return QueryBuilder.select().all()
+                           .from(Tables.Queue.TABLE_NAME)
+                           .where(eq(Tables.Queue.QUEUE_NAME, queueName.get()))
+                           .and(eq(Tables.Queue.ACCOUNT_NAME, accountName.get()));
+    }
+
 
     @Override
     public List<QueueDefinition> getQueues(QueueStatus status) {
@@ -348,6 +382,23 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
         return queue.filter(queueDef -> queueDef.getStatus() == QueueStatus.Active);
     }
 
+    @Override
+    public CompletableFuture<Optional<QueueDefinition>> getActiveQueueAsync(@NonNull final QueueName name) {
+        return asyncSession.execute(getQueueQuery(name))
+                           .thenApply(resultSet -> Optional.ofNullable(getOne(resultSet, QueueDefinition::fromRow))
+                                                           .filter(queueDef -> queueDef.getStatus() == QueueStatus.Active));
+    }
+
+    @Override
+    public Optional<QueueDefinition> getActiveQueueCached(@NonNull final QueueName name) {
+        return queueDefinitionCache.getActiveQueue(accountName, name, () -> getActiveQueue(name));
+    }
+
+    @Override
+    public CompletableFuture<Optional<QueueDefinition>> getActiveQueueCachedAsync(@NonNull final QueueName name) {
+        return queueDefinitionCache.getActiveQueueAsync(accountName, name, () -> getActiveQueueAsync(name));
+    }
+
     @Override
     public void deleteCompletionJob(final DeletionJob job) {
         final Statement delete = QueryBuilder.delete()
@@ -373,6 +424,9 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                                              .from(Tables.QueueStats.TABLE_NAME)
                                              .where(eq(Tables.QueueStats.QUEUE_STATS_ID, counterId.get()));
 
+        // anything still pending on this node would bring the row back on the next flush
+        queueSizes.forget(counterId);
+
         if (session.execute(delete).wasApplied()) {
             logger.with("counter_id", counterId)
                   .success("Deleted queue stats");
@@ -387,6 +441,21 @@ public class QueueRepositoryImpl extends RepositoryBase implements QueueReposito
                                              .where(eq(Tables.Queue.ACCOUNT_NAME, accountName.get()))
                                              .and(eq(Tables.Queue.QUEUE_NAME, queueName.get()));
 
-        return session.execute(delete).wasApplied();
+        if (session.execute(delete).wasApplied()) {
+            queueDefinitionChanged(queueName);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Drop our own cached copy right away, other nodes drop theirs when the event arrives
+     */
+    private void queueDefinitionChanged(final QueueName queueName) {
+        queueDefinitionCache.invalidate(accountName, queueName);
+
+        eventBus.publish(new QueueUpdatedEvent(accountName, queueName));
     }
 }
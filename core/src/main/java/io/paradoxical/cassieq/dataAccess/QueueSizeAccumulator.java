@@ -0,0 +1,184 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.godaddy.logging.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
+import io.paradoxical.cassieq.clustering.eventing.EventListener;
+import io.paradoxical.cassieq.configurations.QueueStatsConfig;
+import io.paradoxical.cassieq.model.QueueStatsId;
+import io.paradoxical.cassieq.model.events.QueueDeletingEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.incr;
+import static com.godaddy.logging.LoggerFactory.getLogger;
+
+/**
+ * Sums queue size changes made on this node and writes them to the size counters on an interval.
+ *
+ * Counter writes are a read before write on the replicas, so a put or ack only touches an in
+ * memory adder and each queue costs at most one counter write per flush.
+ *
+ * Queues with nothing left to write are dropped after their flush, and deleted queues are forgotten
+ * so a late flush doesn't bring their counter row back
+ */
+public class QueueSizeAccumulator {
+    private static final Logger logger = getLogger(QueueSizeAccumulator.class);
+
+    private static final RegularStatement UPDATE_QUEUE_SIZE =
+            QueryBuilder.update(Tables.QueueStats.TABLE_NAME)
+                        .with(incr(Tables.QueueStats.SIZE, bindMarker()))
+                        .where(eq(Tables.QueueStats.QUEUE_STATS_ID, bindMarker()));
+
+    private final ConcurrentMap<QueueStatsId, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Stats ids are never reused, this only has to outlast changes still on their way in when the queue goes
+     */
+    private final Cache<QueueStatsId, Boolean> deleted = CacheBuilder.newBuilder()
+                                                                     .expireAfterWrite(1, TimeUnit.HOURS)
+                                                                     .build();
+
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                 .setNameFormat("queue-size-flusher-%d")
+                                                                                 .build());
+
+    private final Session session;
+
+    private final AsyncSession asyncSession;
+
+    private final PreparedStatementCache preparedStatements;
+
+    private final QueueStatsConfig config;
+
+    @Inject
+    public QueueSizeAccumulator(
+            Session session,
+            AsyncSession asyncSession,
+            PreparedStatementCache preparedStatements,
+            QueueStatsConfig config,
+            EventBus eventBus) {
+        this.session = session;
+        this.asyncSession = asyncSession;
+        this.preparedStatements = preparedStatements;
+        this.config = config;
+
+        eventBus.register(QueueDeletingEvent.class, new EventListener<QueueDeletingEvent>() {
+            @Override
+            public void onMessage(final QueueDeletingEvent item) {
+                if (item.getQueueStatsId() != null) {
+                    forget(QueueStatsId.valueOf(item.getQueueStatsId()));
+                }
+            }
+        });
+
+        if (config.getAggregationEnabled()) {
+            flusher.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void add(QueueStatsId queueStatsId, long amount) {
+        if (!config.getAggregationEnabled()) {
+            session.execute(getUpdateQueueSizeStatement(queueStatsId, amount));
+
+            return;
+        }
+
+        if (deleted.getIfPresent(queueStatsId) != null) {
+            return;
+        }
+
+        // the add happens under the map's lock for the key, so a flush can't drop the adder out from under it
+        pending.compute(queueStatsId, (key, adder) -> {
+            final LongAdder sum = adder == null ? new LongAdder() : adder;
+
+            sum.add(amount);
+
+            return sum;
+        });
+    }
+
+    /**
+     * Drops whatever this node has pending for a deleted queue and ignores anything that still comes in for it
+     */
+    public void forget(QueueStatsId queueStatsId) {
+        deleted.put(queueStatsId, true);
+
+        pending.remove(queueStatsId);
+    }
+
+    public CompletableFuture<Void> addAsync(QueueStatsId queueStatsId, long amount) {
+        if (!config.getAggregationEnabled()) {
+            return asyncSession.execute(getUpdateQueueSizeStatement(queueStatsId, amount)).thenApply(ignored -> null);
+        }
+
+        add(queueStatsId, amount);
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Write out everything pending on this node
+     */
+    public void flush() {
+        pending.keySet().forEach(this::flush);
+    }
+
+    /**
+     * Write out this node's pending changes to a queue, so a read of the counter includes them
+     */
+    public void flush(QueueStatsId queueStatsId) {
+        final LongAdder adder = pending.get(queueStatsId);
+
+        if (adder == null) {
+            return;
+        }
+
+        synchronized (adder) {
+            // take back exactly what gets written, adds racing with the flush stay pending for the next one
+            final long amount = adder.sum();
+
+            if (amount != 0 && deleted.getIfPresent(queueStatsId) == null) {
+                adder.add(-amount);
+
+                try {
+                    session.execute(getUpdateQueueSizeStatement(queueStatsId, amount));
+                }
+                catch (Exception e) {
+                    adder.add(amount);
+
+                    logger.with("queue-stats-id", queueStatsId).error(e, "Error flushing queue size");
+
+                    return;
+                }
+            }
+        }
+
+        // nothing left to write (or nowhere to write it), a later add starts a new entry
+        pending.computeIfPresent(queueStatsId, (key, current) -> {
+            final boolean done = current == adder && current.sum() == 0;
+
+            return done || deleted.getIfPresent(key) != null ? null : current;
+        });
+    }
+
+    private Statement getUpdateQueueSizeStatement(QueueStatsId queueStatsId, long amount) {
+        return preparedStatements.bind(UPDATE_QUEUE_SIZE, amount, queueStatsId.get());
+    }
+}
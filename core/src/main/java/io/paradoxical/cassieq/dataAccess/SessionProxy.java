@@ -45,13 +45,7 @@ public class SessionProxy implements Session {
 
         final Retryer<ResultSet> retrier =
                 RetryerBuilder.<ResultSet>newBuilder()
-                        .retryIfException(ex -> {
-                            if (ex instanceof WriteTimeoutException) {
-                                return ((WriteTimeoutException) ex).getWriteType() == WriteType.CAS;
-                            }
-
-                            return ex instanceof UnavailableException;
-                        })
+                        .retryIfException(SessionProxy::isRetryable)
                         .withWaitStrategy(waitStrategy)
                         .withStopStrategy(stopStrategy)
                         .build();
@@ -63,4 +57,18 @@ public class SessionProxy implements Session {
             throw new RuntimeException("Error executing session retry!", e);
         }
     }
+
+    /**
+     * Timed out CAS writes and unavailable replicas are safe to try again
+     *
+     * @param ex
+     * @return
+     */
+    static boolean isRetryable(Throwable ex) {
+        if (ex instanceof WriteTimeoutException) {
+            return ((WriteTimeoutException) ex).getWriteType() == WriteType.CAS;
+        }
+
+        return ex instanceof UnavailableException;
+    }
 }
@@ -15,6 +15,13 @@ public final class Tables {
         public static final String VALUE = "value";
     }
 
+    public static class MonotonLease {
+        public static final String TABLE_NAME = "monoton_lease";
+        public static final String QUEUE_ID = "queueid";
+        public static final String LEASE_START = "lease_start";
+        public static final String LEASE_END = "lease_end";
+    }
+
     public static class Account {
         public static final String TABLE_NAME = "account";
 
@@ -39,6 +46,10 @@ public final class Tables {
         public static final String DELETE_BUCKETS_AFTER_FINALIZATION = "delete_buckets_after_finalization";
         public static final String DLQ_NAME = "dlq_queue_name";
         public static final String STRICT_FIFO = "strict_fifo";
+        public static final String SPLIT_MESSAGE_BODY = "split_message_body";
+        public static final String COMPRESS_MESSAGES = "compress_messages";
+        public static final String SHARD_COUNT = "shard_count";
+        public static final String PRIORITY_LANES = "priority_lanes";
     }
 
     public static class QueueStats {
@@ -53,6 +64,8 @@ public final class Tables {
         public static final String BUCKET_NUM = "bucket_num";
         public static final String MONOTON = "monoton";
         public static final String MESSAGE = "message";
+        public static final String MESSAGE_DATA = "message_data";
+        public static final String CODEC = "codec";
         public static final String VERSION = "version";
         public static final String DELIVERY_COUNT = "delivery_count";
         public static final String ACKED = "acked";
@@ -60,6 +73,43 @@ public final class Tables {
         public static final String TAG = "tag";
         public static final String CREATED_DATE = "created_date";
         public static final String UPDATED_DATE = "updated_date";
+        public static final String ACKED_MONOTONS = "acked_monotons";
+        public static final String TOMBSTONED_AT = "tombstoned_at";
+        public static final String FINALIZED_AT = "finalized_at";
+        public static final String BODY_VERSION = "body_version";
+    }
+
+    public static class MessageBody {
+        public static final String TABLE_NAME = "message_body";
+        public static final String QUEUE_ID = "queueid";
+        public static final String BUCKET_NUM = "bucket_num";
+        public static final String MONOTON = "monoton";
+
+        /**
+         * Holds the message's body version, or its tag while the body was never updated
+         */
+        public static final String TAG = "tag";
+        public static final String MESSAGE = "message";
+        public static final String MESSAGE_DATA = "message_data";
+        public static final String CODEC = "codec";
+    }
+
+    public static class DelayedMessage {
+        public static final String TABLE_NAME = "delayed_message";
+        public static final String QUEUE_ID = "queueid";
+        public static final String SLOT = "slot";
+        public static final String DUE_AT = "due_at";
+        public static final String ID = "id";
+        public static final String MESSAGE = "message";
+        public static final String MESSAGE_DATA = "message_data";
+    }
+
+    public static class VisibilityIndex {
+        public static final String TABLE_NAME = "visibility_index";
+        public static final String QUEUE_ID = "queueid";
+        public static final String SLOT = "slot";
+        public static final String VISIBLE_AT = "visible_at";
+        public static final String MONOTON = "monoton";
     }
 
     public static class DeletionJob {
@@ -69,5 +119,7 @@ public final class Tables {
         public static final String VERSION = "version";
         public static final String QUEUE_STATS_ID = "queue_stats_id";
         public static final String BUCKET_SIZE = "bucket_size";
+        public static final String SHARD_COUNT = "shard_count";
+        public static final String PRIORITY_LANES = "priority_lanes";
     }
 }
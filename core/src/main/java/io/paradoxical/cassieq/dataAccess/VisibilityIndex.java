@@ -0,0 +1,72 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.VisibilityIndexConfig;
+import io.paradoxical.cassieq.dataAccess.interfaces.VisibilityIndexRepository;
+import io.paradoxical.cassieq.factories.VisibilityIndexRepoFactory;
+import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.VisibilityIndexEntry;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes an entry for every message that is hidden until some later time, when the index is enabled.
+ *
+ * Entries go in before the write that hides the message, so a hidden message always has one.
+ * If that write doesn't go through the entry is simply stale, readers drop those when they come across them
+ */
+public class VisibilityIndex {
+    /**
+     * Queues this node has made sure have a slot pointer, so it's only set up once per queue
+     */
+    private final Set<QueueId> initializedQueues = ConcurrentHashMap.newKeySet();
+
+    private final VisibilityIndexRepoFactory visibilityIndexRepoFactory;
+    private final VisibilityIndexConfig config;
+    private final Clock clock;
+
+    @Inject
+    public VisibilityIndex(VisibilityIndexRepoFactory visibilityIndexRepoFactory, VisibilityIndexConfig config, Clock clock) {
+        this.visibilityIndexRepoFactory = visibilityIndexRepoFactory;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return config.getEnabled();
+    }
+
+    public void track(QueueId queueId, MonotonicIndex index, Instant visibleAt) {
+        trackAsync(queueId, index, visibleAt).join();
+    }
+
+    public CompletableFuture<Void> trackAsync(QueueId queueId, MonotonicIndex index, Instant visibleAt) {
+        final Instant now = clock.now();
+
+        if (!config.getEnabled() || !visibleAt.isAfter(now)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final VisibilityIndexRepository repository = visibilityIndexRepoFactory.forQueue(queueId);
+
+        // the pointer has to exist before anything is written behind it, nothing
+        // being hidden now can come due before the current slot
+        if (initializedQueues.add(queueId)) {
+            repository.initializeSlot(slotOf(now));
+        }
+
+        final Duration ttl = new Duration(now, visibleAt).plus(Duration.standardSeconds(config.getRetentionSeconds()));
+
+        return repository.addEntryAsync(slotOf(visibleAt), new VisibilityIndexEntry(index, visibleAt), ttl);
+    }
+
+    public long slotOf(Instant instant) {
+        return instant.getMillis() / Duration.standardSeconds(config.getSlotSeconds()).getMillis();
+    }
+}
@@ -0,0 +1,135 @@
+package io.paradoxical.cassieq.dataAccess;
+
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.dataAccess.interfaces.VisibilityIndexRepository;
+import io.paradoxical.cassieq.model.PointerType;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.VisibilityIndexEntry;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static java.util.stream.Collectors.toList;
+
+public class VisibilityIndexRepositoryImpl extends RepositoryBase implements VisibilityIndexRepository {
+    private static final RegularStatement READ_SLOT_POINTER =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.Pointer.TABLE_NAME)
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()));
+
+    private static final RegularStatement MOVE_SLOT_POINTER =
+            QueryBuilder.update(Tables.Pointer.TABLE_NAME)
+                        .with(set(Tables.Pointer.VALUE, bindMarker()))
+                        .where(eq(Tables.Pointer.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.Pointer.POINTER_TYPE, bindMarker()));
+
+    private static final RegularStatement INSERT_ENTRY =
+            QueryBuilder.insertInto(Tables.VisibilityIndex.TABLE_NAME)
+                        .value(Tables.VisibilityIndex.QUEUE_ID, bindMarker())
+                        .value(Tables.VisibilityIndex.SLOT, bindMarker())
+                        .value(Tables.VisibilityIndex.VISIBLE_AT, bindMarker())
+                        .value(Tables.VisibilityIndex.MONOTON, bindMarker())
+                        .using(ttl(bindMarker()));
+
+    private static final RegularStatement READ_DUE_ENTRIES =
+            QueryBuilder.select()
+                        .all()
+                        .from(Tables.VisibilityIndex.TABLE_NAME)
+                        .where(eq(Tables.VisibilityIndex.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.VisibilityIndex.SLOT, bindMarker()))
+                        .and(lte(Tables.VisibilityIndex.VISIBLE_AT, bindMarker()))
+                        .limit(bindMarker());
+
+    private static final RegularStatement DELETE_ENTRY =
+            QueryBuilder.delete()
+                        .all()
+                        .from(Tables.VisibilityIndex.TABLE_NAME)
+                        .where(eq(Tables.VisibilityIndex.QUEUE_ID, bindMarker()))
+                        .and(eq(Tables.VisibilityIndex.SLOT, bindMarker()))
+                        .and(eq(Tables.VisibilityIndex.VISIBLE_AT, bindMarker()))
+                        .and(eq(Tables.VisibilityIndex.MONOTON, bindMarker()));
+
+    private final Session session;
+    private final AsyncSession asyncSession;
+    private final PreparedStatementCache preparedStatements;
+    private final QueueId queueId;
+
+    @Inject
+    public VisibilityIndexRepositoryImpl(
+            Session session,
+            AsyncSession asyncSession,
+            PreparedStatementCache preparedStatements,
+            @Assisted QueueId queueId) {
+        this.session = session;
+        this.asyncSession = asyncSession;
+        this.preparedStatements = preparedStatements;
+        this.queueId = queueId;
+    }
+
+    @Override
+    public Optional<Long> getCurrentSlot() {
+        final Statement query = preparedStatements.bind(READ_SLOT_POINTER, queueId.get(), PointerType.INVISIBILITY_SLOT.toString());
+
+        return Optional.ofNullable(getOne(session.execute(query), row -> row.getLong(Tables.Pointer.VALUE)));
+    }
+
+    @Override
+    public void initializeSlot(final long slot) {
+        final Statement insert = QueryBuilder.insertInto(Tables.Pointer.TABLE_NAME)
+                                             .ifNotExists()
+                                             .value(Tables.Pointer.VALUE, slot)
+                                             .value(Tables.Pointer.POINTER_TYPE, PointerType.INVISIBILITY_SLOT.toString())
+                                             .value(Tables.Pointer.QUEUE_ID, queueId.get());
+
+        session.execute(insert);
+    }
+
+    @Override
+    public void advanceSlot(final long slot) {
+        // readers racing on this only ever set it to slots that are already drained, the worst a stale write does is cause a rescan
+        session.execute(preparedStatements.bind(MOVE_SLOT_POINTER, slot, queueId.get(), PointerType.INVISIBILITY_SLOT.toString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> addEntryAsync(final long slot, final VisibilityIndexEntry entry, final Duration ttl) {
+        final Statement insert = preparedStatements.bind(INSERT_ENTRY,
+                                                         queueId.get(),
+                                                         slot,
+                                                         entry.getVisibleAt().toDate(),
+                                                         entry.getIndex().get(),
+                                                         (int) Math.max(1, ttl.getStandardSeconds()));
+
+        return asyncSession.execute(insert).thenApply(resultSet -> null);
+    }
+
+    @Override
+    public List<VisibilityIndexEntry> getDueEntries(final long slot, final Instant now, final int limit) {
+        final Statement query = preparedStatements.bind(READ_DUE_ENTRIES, queueId.get(), slot, now.toDate(), limit);
+
+        return session.execute(query)
+                      .all()
+                      .stream()
+                      .map(VisibilityIndexEntry::fromRow)
+                      .collect(toList());
+    }
+
+    @Override
+    public void removeEntry(final long slot, final VisibilityIndexEntry entry) {
+        session.execute(preparedStatements.bind(DELETE_ENTRY, queueId.get(), slot, entry.getVisibleAt().toDate(), entry.getIndex().get()));
+    }
+}
@@ -4,4 +4,8 @@ public class ExistingMonotonFoundException extends Exception {
     public ExistingMonotonFoundException(final String message) {
         super(message);
     }
+
+    public ExistingMonotonFoundException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
 }
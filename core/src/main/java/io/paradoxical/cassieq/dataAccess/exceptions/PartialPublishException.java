@@ -0,0 +1,18 @@
+package io.paradoxical.cassieq.dataAccess.exceptions;
+
+import lombok.Getter;
+
+/**
+ * A batch publish stopped part way through. The first publishedCount messages of the batch
+ * are live, the rest were not written (or, when the cause was a timeout, may not have been)
+ */
+public class PartialPublishException extends ExistingMonotonFoundException {
+    @Getter
+    private final int publishedCount;
+
+    public PartialPublishException(final int publishedCount, final Throwable cause) {
+        super(String.format("Only the first %s messages of the batch were published", publishedCount), cause);
+
+        this.publishedCount = publishedCount;
+    }
+}
@@ -1,6 +1,8 @@
 package io.paradoxical.cassieq.dataAccess.interfaces;
 
+import com.google.common.collect.ImmutableList;
 import io.paradoxical.cassieq.model.accounts.AccountDefinition;
+import io.paradoxical.cassieq.model.accounts.AccountKey;
 import io.paradoxical.cassieq.model.accounts.AccountName;
 
 import java.util.List;
@@ -12,6 +14,11 @@ public interface AccountRepository {
 
     Optional<AccountDefinition> getAccount(AccountName accountName);
 
+    /**
+     * The account's keys from the node local cache, for request authentication
+     */
+    Optional<ImmutableList<AccountKey>> getAccountKeysCached(AccountName accountName);
+
     List<AccountDefinition> getAllAccounts();
 
     void deleteAccount(AccountName accountName);
@@ -0,0 +1,46 @@
+package io.paradoxical.cassieq.dataAccess.interfaces;
+
+import io.paradoxical.cassieq.model.DelayedMessage;
+import org.joda.time.Duration;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Messages waiting to be moved into a queue, grouped into coarse time slots by when they are due
+ */
+public interface DelayedMessageRepository {
+    /**
+     * The first slot that hasn't been moved yet, if anything was ever delayed on the queue
+     */
+    Optional<Long> getCurrentSlot();
+
+    /**
+     * Sets the slot the mover starts from, unless one was set already
+     *
+     * @param slot
+     */
+    void initializeSlot(long slot);
+
+    void advanceSlot(long slot);
+
+    /**
+     * @param slot
+     * @param message
+     * @param ttl     how long the message is kept if it is never moved
+     */
+    CompletableFuture<Void> putMessageAsync(long slot, DelayedMessage message, Duration ttl);
+
+    /**
+     * Streams the slot in due order, handing the messages over a page at a time
+     *
+     * @param slot
+     * @param batchSize
+     * @param batch
+     */
+    void forEachBatch(long slot, int batchSize, Consumer<List<DelayedMessage>> batch);
+
+    void deleteSlot(long slot);
+}
@@ -1,10 +1,13 @@
 package io.paradoxical.cassieq.dataAccess.interfaces;
 
 import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.model.AckResult;
 import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.BucketSummary;
 import io.paradoxical.cassieq.model.Message;
 import io.paradoxical.cassieq.model.MessagePointer;
 import io.paradoxical.cassieq.model.MessageUpdateRequest;
+import io.paradoxical.cassieq.model.PopReceipt;
 import io.paradoxical.cassieq.model.ReaderBucketPointer;
 import io.paradoxical.cassieq.model.RepairBucketPointer;
 import org.joda.time.DateTime;
@@ -12,16 +15,33 @@ import org.joda.time.Duration;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.stream.Collectors.toList;
 
 public interface MessageRepository {
     void putMessage(final Message message, final Duration initialInvisibility) throws ExistingMonotonFoundException;
 
+    /**
+     * Completes exceptionally with {@link ExistingMonotonFoundException} if the monoton is taken
+     * @param message
+     * @param initialInvisibility
+     * @return
+     */
+    CompletableFuture<Void> putMessageAsync(final Message message, final Duration initialInvisibility);
+
     default void putMessage(final Message message) throws ExistingMonotonFoundException {
         putMessage(message, Duration.ZERO);
     }
 
+    /**
+     * Inserts all the messages, batching together messages that share a bucket
+     * @param messages
+     * @param initialInvisibility
+     * @throws ExistingMonotonFoundException
+     */
+    void putMessages(final List<Message> messages, final Duration initialInvisibility) throws ExistingMonotonFoundException;
+
     /**
      * Strictly consumes, applies no business logic
      * @param message
@@ -32,22 +52,89 @@ public interface MessageRepository {
 
     boolean ackMessage(final Message message);
 
+    CompletableFuture<Boolean> ackMessageAsync(final Message message);
+
+    /**
+     * Acks straight off the pop receipts (no read first), running the conditional updates concurrently
+     * and adjusting the queue size once for the whole set. An ack that errors is checked against the
+     * message row, and reported as errored if that can't settle whether it went through
+     * @param popReceipts
+     * @return the pop receipts that were acked and the ones that errored
+     */
+    CompletableFuture<AckResult> ackMessagesAsync(final List<PopReceipt> popReceipts);
+
+    default AckResult ackMessages(final List<PopReceipt> popReceipts) {
+        return ackMessagesAsync(popReceipts).join();
+    }
+
     default List<Message> getMessages(final BucketPointer bucketPointer) {
         return getBucketContents(bucketPointer).stream().filter(Message::isNotSpecial).collect(toList());
     }
 
+    /**
+     * Always reads the bucket, refreshing this node's snapshot of it.
+     * Bucket reads leave out the body on queues that keep bodies apart, see {@link #withBody(Message)}
+     * @param bucketPointer
+     * @return
+     */
     List<Message> getBucketContents(final BucketPointer bucketPointer);
 
+    default CompletableFuture<List<Message>> getMessagesAsync(final BucketPointer bucketPointer) {
+        return getBucketContentsAsync(bucketPointer).thenApply(messages -> messages.stream().filter(Message::isNotSpecial).collect(toList()));
+    }
+
+    CompletableFuture<List<Message>> getBucketContentsAsync(final BucketPointer bucketPointer);
+
+    default List<Message> getMessagesSnapshot(final BucketPointer bucketPointer) {
+        return getBucketSnapshot(bucketPointer).stream().filter(Message::isNotSpecial).collect(toList());
+    }
+
+    /**
+     * Reads the bucket from this node's snapshot if there is a recent one. Consumes and acks
+     * made on this node are reflected in it, writes from other nodes may not be yet
+     * @param bucketPointer
+     * @return
+     */
+    List<Message> getBucketSnapshot(final BucketPointer bucketPointer);
+
+    /**
+     * Fills in the body of a message read from a bucket, if it was left out
+     * @param message
+     * @return
+     */
+    Message withBody(final Message message);
+
     boolean finalize(RepairBucketPointer bucketPointer);
 
+    CompletableFuture<Boolean> finalizeAsync(RepairBucketPointer bucketPointer);
+
     boolean tombstone(final ReaderBucketPointer bucketPointer);
 
+    CompletableFuture<Boolean> tombstoneAsync(final ReaderBucketPointer bucketPointer);
+
     Message getMessage(final MessagePointer pointer);
 
+    CompletableFuture<Optional<Message>> getMessageAsync(final MessagePointer pointer);
+
     Optional<DateTime> tombstoneExists(final BucketPointer bucketPointer);
 
+    /**
+     * Reads just the bucket's summary cells, none of its messages
+     * @param bucketPointer
+     * @return
+     */
+    BucketSummary getBucketSummary(final BucketPointer bucketPointer);
+
+    CompletableFuture<BucketSummary> getBucketSummaryAsync(final BucketPointer bucketPointer);
+
     void deleteAllMessages(BucketPointer bucket);
 
+    /**
+     * Deletes several buckets with one statement per table
+     * @param buckets
+     */
+    void deleteAllMessages(List<? extends BucketPointer> buckets);
+
     Optional<Message> updateMessage(MessageUpdateRequest message);
 
     boolean finalizedExists(BucketPointer bucketPointer);
@@ -1,10 +1,57 @@
 package io.paradoxical.cassieq.dataAccess.interfaces;
 
+import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.BucketSize;
+import io.paradoxical.cassieq.model.MonotonLease;
 import io.paradoxical.cassieq.model.MonotonicIndex;
+import org.joda.time.Duration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MonotonicRepository {
     MonotonicIndex nextMonotonic();
 
+    CompletableFuture<MonotonicIndex> nextMonotonicAsync();
+
+    /**
+     * Reserves a contiguous block of monotons with a single conditional update
+     *
+     * @param count
+     * @return the reserved indexes in ascending order
+     */
+    List<MonotonicIndex> nextMonotonics(int count);
+
+    /**
+     * Reserves a block of monotons for a single node and records the lease so that
+     * readers and repair workers know the block may still be written to
+     *
+     * @param count
+     * @param ttl how long the lease record is kept around
+     * @return
+     */
+    MonotonLease leaseMonotonics(int count, Duration ttl);
+
+    /**
+     * Drops the lease record once the holder stops handing out indexes from it. Any index
+     * that wasn't handed out by then will never be written and is treated like any other gap
+     *
+     * @param lease
+     */
+    void releaseLease(MonotonLease lease);
+
+    /**
+     * Every bucket check on the read and repair paths goes through here, so this
+     * doesn't touch cassandra at all when leasing is turned off
+     *
+     * @return
+     */
+    List<MonotonLease> getLeases();
+
+    default boolean isLeased(BucketPointer bucketPointer, BucketSize bucketSize) {
+        return getLeases().stream().anyMatch(lease -> lease.overlaps(bucketPointer, bucketSize));
+    }
+
     MonotonicIndex getCurrent();
 
     void deleteAll();
@@ -8,6 +8,7 @@ import io.paradoxical.cassieq.model.QueueStatus;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.stream.Collectors.toList;
 
@@ -41,6 +42,16 @@ public interface QueueRepository {
 
     Optional<QueueDefinition> getActiveQueue(QueueName name);
 
+    CompletableFuture<Optional<QueueDefinition>> getActiveQueueAsync(QueueName name);
+
+    /**
+     * Served from the node local queue cache, may briefly lag a change made on another node.
+     * Use {@link #getActiveQueue} when the answer has to be authoritative
+     */
+    Optional<QueueDefinition> getActiveQueueCached(QueueName name);
+
+    CompletableFuture<Optional<QueueDefinition>> getActiveQueueCachedAsync(QueueName name);
+
     default List<QueueName> getQueueNames() {
         return getActiveQueues().stream().map(QueueDefinition::getQueueName).collect(toList());
     }
@@ -0,0 +1,45 @@
+package io.paradoxical.cassieq.dataAccess.interfaces;
+
+import io.paradoxical.cassieq.model.VisibilityIndexEntry;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * When hidden messages come due, grouped into coarse time slots
+ */
+public interface VisibilityIndexRepository {
+    /**
+     * The first slot that may still have entries in it, if anything was ever indexed on the queue
+     */
+    Optional<Long> getCurrentSlot();
+
+    /**
+     * Sets the slot readers start from, unless one was set already
+     *
+     * @param slot
+     */
+    void initializeSlot(long slot);
+
+    void advanceSlot(long slot);
+
+    /**
+     * @param slot
+     * @param entry
+     * @param ttl   how long the entry is kept if nobody removes it
+     */
+    CompletableFuture<Void> addEntryAsync(long slot, VisibilityIndexEntry entry, Duration ttl);
+
+    /**
+     * @param slot
+     * @param now
+     * @param limit
+     * @return entries in the slot that are due by now, earliest first
+     */
+    List<VisibilityIndexEntry> getDueEntries(long slot, Instant now, int limit);
+
+    void removeEntry(long slot, VisibilityIndexEntry entry);
+}
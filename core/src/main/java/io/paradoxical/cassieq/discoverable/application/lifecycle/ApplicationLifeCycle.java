@@ -4,6 +4,8 @@ import com.godaddy.logging.Logger;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.dropwizard.lifecycle.Managed;
+import io.paradoxical.cassieq.dataAccess.QueueSizeAccumulator;
+import io.paradoxical.cassieq.workers.DelayedMessageMover;
 import io.paradoxical.cassieq.workers.repair.RepairWorkerManager;
 
 import static com.godaddy.logging.LoggerFactory.getLogger;
@@ -16,9 +18,18 @@ public class ApplicationLifeCycle implements Managed {
 
     private RepairWorkerManager repairWorkerManager;
 
+    private QueueSizeAccumulator queueSizeAccumulator;
+
+    private DelayedMessageMover delayedMessageMover;
+
     @Inject
-    public ApplicationLifeCycle(RepairWorkerManager repairWorkerManager) {
+    public ApplicationLifeCycle(
+            RepairWorkerManager repairWorkerManager,
+            QueueSizeAccumulator queueSizeAccumulator,
+            DelayedMessageMover delayedMessageMover) {
         this.repairWorkerManager = repairWorkerManager;
+        this.queueSizeAccumulator = queueSizeAccumulator;
+        this.delayedMessageMover = delayedMessageMover;
     }
 
     @Override public void start() throws Exception {
@@ -26,12 +37,18 @@ public class ApplicationLifeCycle implements Managed {
 
         repairWorkerManager.start();
 
+        delayedMessageMover.start();
+
         logger.success("Started!");
     }
 
     @Override public void stop() throws Exception {
         repairWorkerManager.stop();
 
+        delayedMessageMover.stop();
+
+        queueSizeAccumulator.flush();
+
         logger.dashboard("STOPPED");
     }
 }
\ No newline at end of file
@@ -20,7 +20,7 @@ public abstract class SignedAuthParametersBase implements RequestAuthParameters
             return false;
         }
 
-        return verifySignature(MacProviders.HmacSha256(context.getAccountKey()));
+        return verifySignature(MacProviders.pooledHmacSha256(context.getAccountKey()));
     }
 
     private boolean verifySignature(Mac hmac) {
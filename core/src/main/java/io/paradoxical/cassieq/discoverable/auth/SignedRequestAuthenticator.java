@@ -2,13 +2,14 @@ package io.paradoxical.cassieq.discoverable.auth;
 
 import com.godaddy.logging.Logger;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
 import io.paradoxical.cassieq.configurations.AuthConfig;
 import io.paradoxical.cassieq.dataAccess.interfaces.AccountRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
-import io.paradoxical.cassieq.model.accounts.AccountDefinition;
+import io.paradoxical.cassieq.model.accounts.AccountKey;
 import io.paradoxical.cassieq.model.time.Clock;
 import org.joda.time.Duration;
 
@@ -36,15 +37,15 @@ public class SignedRequestAuthenticator implements Authenticator<AuthorizedReque
     public Optional<AccountPrincipal> authenticate(final AuthorizedRequestCredentials credentials) throws AuthenticationException {
         final RequestAuthParameters requestAuthParameters = credentials.getRequestAuthParameters();
 
-        final java.util.Optional<AccountDefinition> account = accountRepository.getAccount(requestAuthParameters.getAccountName());
+        final java.util.Optional<ImmutableList<AccountKey>> accountKeys = accountRepository.getAccountKeysCached(requestAuthParameters.getAccountName());
 
-        if (account.isPresent()) {
+        if (accountKeys.isPresent()) {
 
             final Duration allowedClockSkew = Duration.millis(authConfig.getAllowedClockSkew().toMilliseconds());
 
             final CredentialsVerificationContext credentialsVerificationContext =
                     new CredentialsVerificationContext(
-                            account.get().getKeys().values(),
+                            accountKeys.get(),
                             clock,
                             allowedClockSkew);
 
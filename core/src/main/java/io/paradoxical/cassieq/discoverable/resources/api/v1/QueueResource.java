@@ -2,10 +2,12 @@ package io.paradoxical.cassieq.discoverable.resources.api.v1;
 
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.godaddy.logging.Logger;
 import com.godaddy.logging.LoggerFactory;
 import com.google.inject.Inject;
-import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.dataAccess.exceptions.PartialPublishException;
 import io.paradoxical.cassieq.dataAccess.exceptions.QueueAlreadyDeletingException;
 import io.paradoxical.cassieq.discoverable.auth.AccountAuth;
 import io.paradoxical.cassieq.discoverable.auth.AuthLevelRequired;
@@ -21,25 +23,43 @@ import io.paradoxical.cassieq.metrics.QueueTimer;
 import io.paradoxical.cassieq.model.*;
 import io.paradoxical.cassieq.model.accounts.AccountName;
 import io.paradoxical.cassieq.model.auth.AuthorizationLevel;
+import io.paradoxical.cassieq.model.mappers.Mappers;
 import io.paradoxical.cassieq.model.validators.StringTypeValid;
 import io.paradoxical.cassieq.resources.api.BaseQueueResource;
 import io.paradoxical.cassieq.workers.MessagePublisher;
 import io.paradoxical.cassieq.workers.QueueDeleter;
+import io.paradoxical.cassieq.workers.reader.LongPoller;
+import io.paradoxical.cassieq.workers.reader.MessageStreamer;
+import io.paradoxical.cassieq.workers.reader.Reader;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.glassfish.jersey.server.ChunkedOutput;
 import org.joda.time.Duration;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.stream.Collectors.toList;
 
 @AccountAuth
 @Path("/api/v1/accounts/{accountName}/queues")
@@ -48,8 +68,16 @@ import java.util.Optional;
 public class QueueResource extends BaseQueueResource {
 
     private static final Logger logger = LoggerFactory.getLogger(QueueResource.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String NDJSON = "application/x-ndjson";
+
+    // each message has to fit on its own line
+    private static final ObjectWriter STREAM_WRITER = Mappers.getJson().writer().without(SerializationFeature.INDENT_OUTPUT);
+
     private final QueueDeleter queueDeleter;
     private final MessagePublisher messagePublisher;
+    private final LongPoller longPoller;
+    private final MessageStreamer messageStreamer;
 
     @Inject
     public QueueResource(
@@ -59,9 +87,13 @@ public class QueueResource extends BaseQueueResource {
             DataContextFactory dataContextFactory,
             MessagePublisher messagePublisher,
             QueueDeleter.Factory queueDeleterFactory,
+            LongPoller longPoller,
+            MessageStreamer messageStreamer,
             @StringTypeValid @PathParam("accountName") AccountName accountName) {
         super(readerFactory, messageRepoFactory, monotonicRepoFactory, dataContextFactory.forAccount(accountName), accountName);
         this.messagePublisher = messagePublisher;
+        this.longPoller = longPoller;
+        this.messageStreamer = messageStreamer;
         this.queueDeleter = queueDeleterFactory.create(accountName);
     }
 
@@ -135,6 +167,10 @@ public class QueueResource extends BaseQueueResource {
                                    .repairWorkerPollFrequencySeconds(createOptions.getRepairWorkerPollSeconds())
                                    .repairWorkerTombstonedBucketTimeoutSeconds(createOptions.getRepairWorkerBucketFinalizeTimeSeconds())
                                    .deleteBucketsAfterFinalization(createOptions.getDeleteBucketsAfterFinalize())
+                                   .splitMessageBody(createOptions.getSplitMessageBody())
+                                   .compressMessages(createOptions.getCompressMessages())
+                                   .shardCount(createOptions.getShardCount())
+                                   .priorityLanes(createOptions.getPriorityLanes())
                                    .queueName(createOptions.getQueueName())
                                    .accountName(getAccountName())
                                    .build();
@@ -197,43 +233,172 @@ public class QueueResource extends BaseQueueResource {
             @ApiResponse(code = 404, message = "Queue doesn't exist"),
             @ApiResponse(code = 500, message = "Server Error")
     })
-    public Response getMessage(
+    public void getMessage(
+            @Suspended final AsyncResponse asyncResponse,
+            @StringTypeValid @PathParam("queueName") QueueName queueName,
+            @NotNull @Min(0) @QueryParam("invisibilityTimeSeconds") @DefaultValue("30") Long invisibilityTimeSeconds,
+            @ApiParam(value = "When set, up to this many messages are returned as a list")
+            @Min(1) @Max(MAX_BATCH_SIZE) @QueryParam("count") Integer count,
+            @ApiParam(value = "Wait up to this many seconds for a message to show up before returning no content")
+            @NotNull @Min(0) @QueryParam("waitSeconds") @DefaultValue("0") Integer waitSeconds) {
+
+        final Duration invisibility = Duration.standardSeconds(invisibilityTimeSeconds);
+
+        final CompletableFuture<QueueDefinition> definition = lookupQueueDefinitionAsync(queueName);
+
+        if (count != null) {
+            definition.thenCompose(found -> {
+                final Reader reader = getReaderFactory().forQueue(getAccountName(), found);
+
+                return longPoller.poll(found, waitSeconds, () -> reader.nextMessages(invisibility, count), messages -> !messages.isEmpty());
+            }).whenComplete(resume(asyncResponse, "GetMessages", queueName, this::toNextMessagesResponse));
+
+            return;
+        }
+
+        definition.thenCompose(found -> {
+            final Reader reader = getReaderFactory().forQueue(getAccountName(), found);
+
+            return longPoller.poll(found, waitSeconds, () -> reader.nextMessage(invisibility), Optional::isPresent);
+        }).whenComplete(resume(asyncResponse, "GetMessage", queueName, this::toNextMessageResponse));
+    }
+
+    @GET
+    @Path("/{queueName}/messages/next/raw")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @Timed
+    @AuthLevelRequired(level = AuthorizationLevel.ReadMessage)
+    @QueueTimer(actionName = "read")
+    @ApiOperation(value = "Get Message Bytes",
+                  notes = "Returns the message body as is, the pop receipt, delivery count and tag are sent as headers")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 204, message = "No message"),
+            @ApiResponse(code = 404, message = "Queue doesn't exist"),
+            @ApiResponse(code = 500, message = "Server Error")
+    })
+    public void getMessageBytes(
+            @Suspended final AsyncResponse asyncResponse,
+            @StringTypeValid @PathParam("queueName") QueueName queueName,
+            @NotNull @Min(0) @QueryParam("invisibilityTimeSeconds") @DefaultValue("30") Long invisibilityTimeSeconds,
+            @ApiParam(value = "Wait up to this many seconds for a message to show up before returning no content")
+            @NotNull @Min(0) @QueryParam("waitSeconds") @DefaultValue("0") Integer waitSeconds) {
+
+        final Duration invisibility = Duration.standardSeconds(invisibilityTimeSeconds);
+
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> {
+                    final Reader reader = getReaderFactory().forQueue(getAccountName(), definition);
+
+                    return longPoller.poll(definition, waitSeconds, () -> reader.nextMessage(invisibility), Optional::isPresent);
+                })
+                .whenComplete(resume(asyncResponse, "GetMessageBytes", queueName, this::toNextMessageBytesResponse));
+    }
+
+    @GET
+    @Path("/{queueName}/messages/stream")
+    @Produces(NDJSON)
+    @AuthLevelRequired(level = AuthorizationLevel.ReadMessage)
+    @ApiOperation(value = "Stream Messages",
+                  notes = "Holds the connection open and writes claimed messages as newline delimited json, " +
+                          "keeping at most maxInFlight unacked. Messages are acked through the regular ack endpoints")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 404, message = "Queue doesn't exist"),
+            @ApiResponse(code = 500, message = "Server Error")
+    })
+    public ChunkedOutput<String> streamMessages(
             @StringTypeValid @PathParam("queueName") QueueName queueName,
-            @NotNull @Min(0) @QueryParam("invisibilityTimeSeconds") @DefaultValue("30") Long invisibilityTimeSeconds) {
+            @NotNull @Min(0) @QueryParam("invisibilityTimeSeconds") @DefaultValue("30") Long invisibilityTimeSeconds,
+            @NotNull @Min(1) @Max(MAX_BATCH_SIZE) @QueryParam("maxInFlight") @DefaultValue("10") Integer maxInFlight) {
 
         final QueueDefinition definition = lookupQueueDefinition(queueName);
 
-        final Optional<Message> messageOptional;
+        final Reader reader = getReaderFactory().forQueue(getAccountName(), definition);
 
-        try {
-            messageOptional = getReaderFactory().forQueue(getAccountName(), definition)
-                                                .nextMessage(Duration.standardSeconds(invisibilityTimeSeconds));
+        final ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+
+        messageStreamer.stream(definition, reader, Duration.standardSeconds(invisibilityTimeSeconds), maxInFlight, new MessageStreamer.Sink() {
+            @Override
+            public boolean isOpen() {
+                return !output.isClosed();
+            }
+
+            @Override
+            public void send(final List<Message> messages) throws IOException {
+                for (final Message message : messages) {
+                    output.write(STREAM_WRITER.writeValueAsString(toGetMessageResponse(message)) + "\n");
+                }
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                output.write("\n");
+            }
+        }).whenComplete((ignored, error) -> {
+            try {
+                output.close();
+            }
+            catch (IOException e) {
+                logger.with("queue-name", queueName).warn(e, "Error closing message stream");
+            }
+        });
+
+        return output;
+    }
+
+    private Response toNextMessageResponse(final Optional<Message> message) {
+        if (!message.isPresent()) {
+            return Response.noContent().build();
         }
-        catch (Exception e) {
-            logger.error(e, "Error reading next message");
-            throw new QueueInternalServerError("GetMessage", queueName, e);
+
+        return Response.ok(toGetMessageResponse(message.get()))
+                       .status(Response.Status.OK)
+                       .build();
+    }
+
+    private Response toNextMessageBytesResponse(final Optional<Message> message) {
+        if (!message.isPresent()) {
+            return Response.noContent().build();
         }
 
-        if (!messageOptional.isPresent()) {
+        final Message messageInstance = message.get();
+
+        return Response.ok(messageInstance.getBodyBytes(), MediaType.APPLICATION_OCTET_STREAM_TYPE)
+                       .header(MessageHeaders.POP_RECEIPT, PopReceipt.from(messageInstance).toString())
+                       .header(MessageHeaders.DELIVERY_COUNT, messageInstance.getDeliveryCount())
+                       .header(MessageHeaders.MESSAGE_TAG, messageInstance.getTag().get())
+                       .build();
+    }
+
+    private Response toNextMessagesResponse(final List<Message> messages) {
+        if (messages.isEmpty()) {
             return Response.noContent().build();
         }
 
-        final Message messageInstance = messageOptional.get();
+        final List<GetMessageResponse> response = messages.stream()
+                                                          .map(this::toGetMessageResponse)
+                                                          .collect(toList());
+
+        return Response.ok(response)
+                       .status(Response.Status.OK)
+                       .build();
+    }
 
+    private GetMessageResponse toGetMessageResponse(final Message messageInstance) {
         final String popReceipt = PopReceipt.from(messageInstance).toString();
 
-        final String message = messageInstance.getBlob();
-        final GetMessageResponse response = new GetMessageResponse(
+        // json can't carry raw bytes, messages published that way are read here as base64
+        final String body = messageInstance.isBinary()
+                            ? Base64.getEncoder().encodeToString(messageInstance.getData())
+                            : messageInstance.getBlob();
+
+        return new GetMessageResponse(
                 popReceipt,
-                message,
+                body,
                 messageInstance.getDeliveryCount(),
                 messageInstance.getTag()
         );
-
-
-        return Response.ok(response)
-                       .status(Response.Status.OK)
-                       .build();
     }
 
 
@@ -254,9 +419,23 @@ public class QueueResource extends BaseQueueResource {
 
         final QueueDefinition definition = lookupQueueDefinition(queueName);
 
-        final MessageUpdateRequest updateRequest = MessageUpdateRequest.from(clientUpdateRequest, PopReceipt.valueOf(popReceiptRaw));
+        final PopReceipt popReceipt = PopReceipt.valueOf(popReceiptRaw);
+
+        if (popReceipt.getShard() < 0 || popReceipt.getShard() >= definition.getShardCount() ||
+            popReceipt.getLane() < 0 || popReceipt.getLane() >= definition.getPriorityLanes()) {
+            throw new ConflictException("UpdateMessage", "Pop receipt is stale.");
+        }
+
+        final MessageUpdateRequest updateRequest = MessageUpdateRequest.from(clientUpdateRequest, popReceipt);
 
-        final Optional<Message> message = getMessageRepoFactory().forQueue(definition).updateMessage(updateRequest);
+        final QueueDefinition partition = definition.forLane(popReceipt.getLane()).forShard(popReceipt.getShard());
+
+        final Optional<Message> message = getMessageRepoFactory().forQueue(partition)
+                                                                 .updateMessage(updateRequest)
+                                                                 .map(updated -> updated.toBuilder()
+                                                                                        .shard(popReceipt.getShard())
+                                                                                        .lane(popReceipt.getLane())
+                                                                                        .build());
 
         if (message.isPresent()) {
             final UpdateMessageResponse updateMessageResponse =
@@ -278,10 +457,12 @@ public class QueueResource extends BaseQueueResource {
     @ApiResponses(value = { @ApiResponse(code = 201, message = "Message Added"),
                             @ApiResponse(code = 404, message = "Queue doesn't exist"),
                             @ApiResponse(code = 500, message = "Server Error") })
-    public Response putMessage(
+    public void putMessage(
+            @Suspended final AsyncResponse asyncResponse,
             final @StringTypeValid @PathParam("queueName") QueueName queueName,
             final @ApiParam(hidden = true) @QueryParam("initialInvisiblityTime") Long initialInvisibilityTimeDeprecated,
             @QueryParam("initialInvisibilitySeconds") @DefaultValue("0") Long initialInvisibilityTime,
+            final @ApiParam(value = "Higher goes first, only used on queues with priority lanes") @QueryParam("priority") Integer priority,
             final String message) {
 
         if (initialInvisibilityTimeDeprecated != null && initialInvisibilityTime == null) {
@@ -296,18 +477,82 @@ public class QueueResource extends BaseQueueResource {
                                     "Only one may be used at a time (initialInvisibilitySeconds preferred)"));
         }
 
-        final QueueDefinition definition = lookupQueueDefinition(queueName);
+        final Long initialInvisibilitySeconds = initialInvisibilityTime;
 
-        try {
-            messagePublisher.put(definition, message, initialInvisibilityTime);
-        }
-        catch (ExistingMonotonFoundException e) {
-            logger.error(e, "Error");
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> messagePublisher.putAsync(definition.forPriority(priority), message, initialInvisibilitySeconds))
+                .whenComplete(resume(asyncResponse, "PutMessage", queueName,
+                                     ignored -> Response.status(Response.Status.CREATED).build()));
+    }
+
+    @POST
+    @Path("/{queueName}/messages/raw")
+    @Timed
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @AuthLevelRequired(level = AuthorizationLevel.PutMessage)
+    @QueueTimer(actionName = "publish")
+    @ApiOperation(value = "Put Message Bytes", notes = "Stores the request body as is, without any text or json handling")
+    @ApiResponses(value = { @ApiResponse(code = 201, message = "Message Added"),
+                            @ApiResponse(code = 404, message = "Queue doesn't exist"),
+                            @ApiResponse(code = 500, message = "Server Error") })
+    public void putMessageBytes(
+            @Suspended final AsyncResponse asyncResponse,
+            final @StringTypeValid @PathParam("queueName") QueueName queueName,
+            final @QueryParam("initialInvisibilitySeconds") @DefaultValue("0") Long initialInvisibilitySeconds,
+            final @ApiParam(value = "Higher goes first, only used on queues with priority lanes") @QueryParam("priority") Integer priority,
+            final @NotNull byte[] message) {
+
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> messagePublisher.putAsync(definition.forPriority(priority), message, initialInvisibilitySeconds))
+                .whenComplete(resume(asyncResponse, "PutMessageBytes", queueName,
+                                     ignored -> Response.status(Response.Status.CREATED).build()));
+    }
+
+    @POST
+    @Path("/{queueName}/messages/batch")
+    @Timed
+    @Consumes(MediaType.APPLICATION_JSON)
+    @AuthLevelRequired(level = AuthorizationLevel.PutMessage)
+    @QueueTimer(actionName = "publish-batch")
+    @ApiOperation(value = "Put Messages", notes = "Publishes a list of messages with a single monoton reservation")
+    @ApiResponses(value = { @ApiResponse(code = 201, message = "Messages Added", response = PutMessagesResponse.class),
+                            @ApiResponse(code = 404, message = "Queue doesn't exist"),
+                            @ApiResponse(code = 409, message = "CONFLICT: Only the first publishedCount messages were added", response = PutMessagesResponse.class),
+                            @ApiResponse(code = 500, message = "Server Error, no messages were added") })
+    public void putMessages(
+            @Suspended final AsyncResponse asyncResponse,
+            final @StringTypeValid @PathParam("queueName") QueueName queueName,
+            @QueryParam("initialInvisibilitySeconds") @DefaultValue("0") Long initialInvisibilityTime,
+            final @ApiParam(value = "Higher goes first, only used on queues with priority lanes") @QueryParam("priority") Integer priority,
+            final @NotNull @Size(min = 1, max = MAX_BATCH_SIZE) List<String> messages) {
+
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> messagePublisher.putAsync(definition.forPriority(priority), messages, initialInvisibilityTime))
+                .thenApply(ignored -> new PutMessagesResponse(messages.size(), 0))
+                .exceptionally(error -> partiallyPublished(error, messages.size()))
+                .whenComplete(resume(asyncResponse, "PutMessages", queueName, published -> {
+                    // retrying the whole batch would duplicate the published messages, so tell the caller where to resume from
+                    final Response.Status status = published.getUnpublishedCount() == 0 ? Response.Status.CREATED : Response.Status.CONFLICT;
+
+                    return Response.status(status).entity(published).build();
+                }));
+    }
+
+    /**
+     * A batch that stopped part way is answered with how much of it was published, anything else stays an error
+     */
+    private static PutMessagesResponse partiallyPublished(final Throwable error, final int batchSize) {
+        final Throwable cause = unwrap(error);
 
-            throw new QueueInternalServerError("PutMessage", queueName, e);
+        if (!(cause instanceof PartialPublishException)) {
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
         }
 
-        return Response.status(Response.Status.CREATED).build();
+        logger.error(cause, "Batch was partially published");
+
+        final int publishedCount = ((PartialPublishException) cause).getPublishedCount();
+
+        return new PutMessagesResponse(publishedCount, batchSize - publishedCount);
     }
 
     @DELETE
@@ -320,29 +565,71 @@ public class QueueResource extends BaseQueueResource {
                             @ApiResponse(code = 404, message = "Queue doesn't exist"),
                             @ApiResponse(code = 409, message = "CONFLICT: PopReceipt is stale"),
                             @ApiResponse(code = 500, message = "Server Error") })
-    public Response ackMessage(
+    public void ackMessage(
+            @Suspended final AsyncResponse asyncResponse,
             @StringTypeValid @PathParam("queueName") QueueName queueName,
             @NotNull @QueryParam("popReceipt") String popReceiptRaw) {
 
-        final QueueDefinition definition = lookupQueueDefinition(queueName);
-
         final PopReceipt popReceipt = PopReceipt.valueOf(popReceiptRaw);
 
-        boolean messageAcked;
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> getReaderFactory().forQueue(getAccountName(), definition)
+                                                             .ackMessageAsync(popReceipt)
+                                                             .thenApply(messageAcked -> {
+                                                                 if (messageAcked) {
+                                                                     messageStreamer.acked(definition, Collections.singletonList(popReceipt));
+                                                                 }
+
+                                                                 return messageAcked;
+                                                             }))
+                .whenComplete(resume(asyncResponse, "AckMessage", queueName, messageAcked -> {
+                    if (messageAcked) {
+                        return Response.noContent().build();
+                    }
+
+                    throw new ConflictException("AckMessage", "The message is already being reprocessed.");
+                }));
+    }
 
-        try {
-            messageAcked = getReaderFactory().forQueue(getAccountName(), definition)
-                                             .ackMessage(popReceipt);
-        }
-        catch (Exception e) {
-            logger.error(e, "Error");
-            throw new QueueInternalServerError("AckMessage", queueName, e);
-        }
+    @DELETE
+    @Path("/{queueName}/messages/batch")
+    @Timed
+    @Consumes(MediaType.APPLICATION_JSON)
+    @AuthLevelRequired(level = AuthorizationLevel.AckMessage)
+    @QueueTimer(actionName = "ack-batch")
+    @ApiOperation(value = "Ack Messages", notes = "Acks a list of pop receipts, returning the ones that were stale and the ones that errored")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "OK", response = AckMessagesResponse.class),
+                            @ApiResponse(code = 404, message = "Queue doesn't exist"),
+                            @ApiResponse(code = 500, message = "Server Error") })
+    public void ackMessages(
+            @Suspended final AsyncResponse asyncResponse,
+            @StringTypeValid @PathParam("queueName") QueueName queueName,
+            @NotNull @Size(min = 1, max = MAX_BATCH_SIZE) List<String> popReceiptsRaw) {
 
-        if (messageAcked) {
-            return Response.noContent().build();
-        }
+        final List<PopReceipt> popReceipts = popReceiptsRaw.stream().map(PopReceipt::valueOf).collect(toList());
+
+        lookupQueueDefinitionAsync(queueName)
+                .thenCompose(definition -> getReaderFactory().forQueue(getAccountName(), definition)
+                                                             .ackMessagesAsync(popReceipts)
+                                                             .thenApply(result -> {
+                                                                 messageStreamer.acked(definition, result.getAcked());
+
+                                                                 return result;
+                                                             }))
+                .whenComplete(resume(asyncResponse, "AckMessages", queueName, result -> {
+                    final Set<PopReceipt> settled = new HashSet<>(result.getAcked());
+
+                    settled.addAll(result.getErrored());
+
+                    final List<String> stale = popReceipts.stream()
+                                                          .filter(popReceipt -> !settled.contains(popReceipt))
+                                                          .map(PopReceipt::toString)
+                                                          .distinct()
+                                                          .collect(toList());
+
+                    final List<String> errored = result.getErrored().stream().map(PopReceipt::toString).collect(toList());
 
-        throw new ConflictException("AckMessage", "The message is already being reprocessed.");
+                    return Response.ok().entity(new AckMessagesResponse(result.getAcked().size(), stale, errored)).build();
+                }));
     }
 }
@@ -0,0 +1,8 @@
+package io.paradoxical.cassieq.factories;
+
+import io.paradoxical.cassieq.dataAccess.interfaces.DelayedMessageRepository;
+import io.paradoxical.cassieq.model.QueueId;
+
+public interface DelayedMessageRepoFactory {
+    DelayedMessageRepository forQueue(QueueId queueId);
+}
@@ -0,0 +1,33 @@
+package io.paradoxical.cassieq.factories;
+
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.VisibilityIndexConfig;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.workers.reader.IndexedInvisStrategy;
+import io.paradoxical.cassieq.workers.reader.InvisStrategy;
+import io.paradoxical.cassieq.workers.reader.PointerBasedInvisStrategy;
+
+public class InvisStrategyFactoryImpl implements InvisStrategy.Factory {
+    private final PointerBasedInvisStrategy.Factory pointerBasedFactory;
+    private final IndexedInvisStrategy.Factory indexedFactory;
+    private final VisibilityIndexConfig config;
+
+    @Inject
+    public InvisStrategyFactoryImpl(
+            PointerBasedInvisStrategy.Factory pointerBasedFactory,
+            IndexedInvisStrategy.Factory indexedFactory,
+            VisibilityIndexConfig config) {
+        this.pointerBasedFactory = pointerBasedFactory;
+        this.indexedFactory = indexedFactory;
+        this.config = config;
+    }
+
+    @Override
+    public InvisStrategy forQueue(final QueueDefinition definition) {
+        if (config.getEnabled()) {
+            return indexedFactory.forQueue(definition);
+        }
+
+        return pointerBasedFactory.forQueue(definition);
+    }
+}
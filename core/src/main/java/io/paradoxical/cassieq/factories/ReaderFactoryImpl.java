@@ -0,0 +1,44 @@
+package io.paradoxical.cassieq.factories;
+
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.workers.reader.PriorityLaneReader;
+import io.paradoxical.cassieq.workers.reader.Reader;
+import io.paradoxical.cassieq.workers.reader.ReaderImpl;
+import io.paradoxical.cassieq.workers.reader.ShardedReader;
+
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+public class ReaderFactoryImpl implements ReaderFactory {
+    private final ReaderImpl.Factory shardReaderFactory;
+
+    @Inject
+    public ReaderFactoryImpl(ReaderImpl.Factory shardReaderFactory) {
+        this.shardReaderFactory = shardReaderFactory;
+    }
+
+    @Override
+    public Reader forQueue(final AccountName accountName, final QueueDefinition definition) {
+        if (!definition.hasPriorityLanes()) {
+            return forLane(accountName, definition);
+        }
+
+        return new PriorityLaneReader(IntStream.range(0, definition.getPriorityLanes())
+                                               .mapToObj(lane -> forLane(accountName, definition.forLane(lane)))
+                                               .collect(toList()));
+    }
+
+    private Reader forLane(final AccountName accountName, final QueueDefinition lane) {
+        if (!lane.isSharded()) {
+            return shardReaderFactory.forQueue(accountName, lane);
+        }
+
+        return new ShardedReader(lane.allShards()
+                                     .stream()
+                                     .map(shard -> shardReaderFactory.forQueue(accountName, shard))
+                                     .collect(toList()));
+    }
+}
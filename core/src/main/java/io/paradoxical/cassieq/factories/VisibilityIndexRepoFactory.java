@@ -0,0 +1,8 @@
+package io.paradoxical.cassieq.factories;
+
+import io.paradoxical.cassieq.dataAccess.interfaces.VisibilityIndexRepository;
+import io.paradoxical.cassieq.model.QueueId;
+
+public interface VisibilityIndexRepoFactory {
+    VisibilityIndexRepository forQueue(QueueId queueId);
+}
@@ -0,0 +1,34 @@
+package io.paradoxical.cassieq.model;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a batch ack. Pop receipts in neither list were stale
+ */
+@Value
+public class AckResult {
+    List<PopReceipt> acked;
+
+    /**
+     * The ack hit an error and it isn't known whether it went through, acking these again is safe
+     */
+    List<PopReceipt> errored;
+
+    public static AckResult empty() {
+        return new AckResult(Collections.emptyList(), Collections.emptyList());
+    }
+
+    public AckResult combine(AckResult other) {
+        final List<PopReceipt> allAcked = new ArrayList<>(acked);
+        allAcked.addAll(other.getAcked());
+
+        final List<PopReceipt> allErrored = new ArrayList<>(errored);
+        allErrored.addAll(other.getErrored());
+
+        return new AckResult(allAcked, allErrored);
+    }
+}
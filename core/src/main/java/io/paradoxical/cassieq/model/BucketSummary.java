@@ -0,0 +1,40 @@
+package io.paradoxical.cassieq.model;
+
+import com.datastax.driver.core.Row;
+import io.paradoxical.cassieq.dataAccess.Tables;
+import lombok.Value;
+import org.joda.time.DateTime;
+
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * What a bucket's partition keeps about itself, read without reading any of its messages.
+ *
+ * Acks are recorded by the write that acks, so the count only ever falls short (acks from before
+ * the summary existed aren't in it). A summary can say a bucket is done, never that it isn't
+ */
+@Value
+public class BucketSummary {
+    public static final BucketSummary EMPTY = new BucketSummary(0, Optional.empty(), Optional.empty());
+
+    private final int ackedCount;
+
+    private final Optional<DateTime> tombstonedAt;
+
+    private final Optional<DateTime> finalizedAt;
+
+    public boolean isFullyAcked(BucketSize bucketSize) {
+        return ackedCount >= bucketSize.get();
+    }
+
+    public static BucketSummary fromRow(Row row) {
+        return new BucketSummary(row.getSet(Tables.Message.ACKED_MONOTONS, Long.class).size(),
+                                 toDateTime(row.getTimestamp(Tables.Message.TOMBSTONED_AT)),
+                                 toDateTime(row.getTimestamp(Tables.Message.FINALIZED_AT)));
+    }
+
+    private static Optional<DateTime> toDateTime(Date date) {
+        return Optional.ofNullable(date).map(DateTime::new);
+    }
+}
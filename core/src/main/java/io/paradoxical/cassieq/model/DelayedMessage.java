@@ -0,0 +1,48 @@
+package io.paradoxical.cassieq.model;
+
+import com.datastax.driver.core.Row;
+import io.paradoxical.cassieq.dataAccess.Tables;
+import lombok.Builder;
+import lombok.Value;
+import org.joda.time.Instant;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A message parked until it is due, it only gets an index once it is moved into the live queue
+ */
+@Value
+@Builder
+public class DelayedMessage {
+    private final UUID id;
+
+    private final Instant dueAt;
+
+    private final String blob;
+
+    private final byte[] data;
+
+    public boolean isBinary() {
+        return data != null;
+    }
+
+    public static DelayedMessage fromRow(Row row) {
+        final ByteBuffer data = row.getBytes(Tables.DelayedMessage.MESSAGE_DATA);
+
+        byte[] bytes = null;
+
+        if (data != null) {
+            bytes = new byte[data.remaining()];
+
+            data.duplicate().get(bytes);
+        }
+
+        return DelayedMessage.builder()
+                             .id(row.getUUID(Tables.DelayedMessage.ID))
+                             .dueAt(new Instant(row.getTimestamp(Tables.DelayedMessage.DUE_AT)))
+                             .blob(row.getString(Tables.DelayedMessage.MESSAGE))
+                             .data(bytes)
+                             .build();
+    }
+}
@@ -4,6 +4,7 @@ import com.datastax.driver.core.Row;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.godaddy.logging.LoggingScope;
 import com.godaddy.logging.Scope;
+import io.paradoxical.cassieq.dataAccess.MessageCodec;
 import io.paradoxical.cassieq.dataAccess.SpecialIndex;
 import io.paradoxical.cassieq.dataAccess.Tables;
 import io.paradoxical.cassieq.model.time.Clock;
@@ -11,6 +12,9 @@ import lombok.Builder;
 import lombok.Data;
 import org.joda.time.DateTime;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 @Data
 @Builder(toBuilder = true)
 public class Message {
@@ -19,6 +23,26 @@ public class Message {
     @LoggingScope(scope = Scope.HASH)
     private final String blob;
 
+    /**
+     * The body of a message published as raw bytes, blob is null for those
+     */
+    @LoggingScope(scope = Scope.HASH)
+    private final byte[] data;
+
+    /**
+     * The body exactly as it was read from its data column. It is only decoded when the body itself is
+     * asked for, so reads that just look at a message's state don't pay for inflating it
+     */
+    @JsonIgnore
+    @LoggingScope(scope = Scope.SKIP)
+    private final ByteBuffer encodedBody;
+
+    /**
+     * How encodedBody is encoded, null when the body is plain text
+     */
+    @JsonIgnore
+    private final MessageCodec codec;
+
     private DateTime nextVisiblityAt;
 
     private DateTime createdDate;
@@ -31,8 +55,24 @@ public class Message {
 
     private MessageTag tag;
 
+    /**
+     * Which body row a message kept apart from its body points at, null until its body is first updated.
+     * Updates move this rather than the tag, so the message keeps its identity
+     */
+    private String bodyVersion;
+
     private final QueueId queueId;
 
+    /**
+     * The shard of a sharded queue the message was read from, it isn't stored with the message
+     */
+    private final int shard;
+
+    /**
+     * The priority lane the message was read from, it isn't stored with the message either
+     */
+    private final int lane;
+
     public boolean isVisible(Clock clock) {
         return nextVisiblityAt == null ||
                nextVisiblityAt.isBefore(clock.now()) ||
@@ -61,25 +101,70 @@ public class Message {
     @JsonIgnore
     public boolean isNotSpecial() { return !isTombstone() && !isFinalizer(); }
 
+    @JsonIgnore
+    public boolean isBinary() {
+        return data != null || (encodedBody != null && codec != null && codec.isBinary());
+    }
+
+    /**
+     * Whether the body has been read in, without decoding it
+     */
+    @JsonIgnore
+    public boolean hasBody() {
+        return blob != null || data != null || encodedBody != null;
+    }
+
+    public String getBlob() {
+        if (blob == null && encodedBody != null && codec != null && !codec.isBinary()) {
+            return codec.decodeText(encodedBody);
+        }
+
+        return blob;
+    }
+
+    public byte[] getData() {
+        if (data == null && encodedBody != null && codec != null && codec.isBinary()) {
+            return codec.decode(encodedBody);
+        }
+
+        return data;
+    }
+
+    /**
+     * The body as bytes, whichever way it was published
+     */
+    @JsonIgnore
+    public byte[] getBodyBytes() {
+        if (isBinary()) {
+            return getData();
+        }
+
+        final String text = getBlob();
+
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
     public PopReceipt getPopReceipt() {
         return PopReceipt.from(this);
     }
 
     public Message createNewWithIndex(MonotonicIndex index) {
-        return toBuilder().index(index).build();
+        return toBuilder().index(index).bodyVersion(null).build();
     }
 
     public static Message fromRow(final Row row) {
 
-        return Message.builder()
-                      .blob(row.getString(Tables.Message.MESSAGE))
-                      .index(MonotonicIndex.valueOf(row.getLong(Tables.Message.MONOTON)))
-                      .isAcked(row.getBool(Tables.Message.ACKED))
-                      .version(row.getInt(Tables.Message.VERSION))
-                      .deliveryCount(row.getInt(Tables.Message.DELIVERY_COUNT))
-                      .nextVisiblityAt(new DateTime(row.getTimestamp(Tables.Message.NEXT_VISIBLE_ON)))
-                      .createdDate(new DateTime(row.getTimestamp(Tables.Message.CREATED_DATE)))
-                      .tag(MessageTag.valueOf(row.getString(Tables.Message.TAG)))
-                      .build();
+        final MessageBuilder message = Message.builder()
+                                              .index(MonotonicIndex.valueOf(row.getLong(Tables.Message.MONOTON)))
+                                              .isAcked(row.getBool(Tables.Message.ACKED))
+                                              .version(row.getInt(Tables.Message.VERSION))
+                                              .deliveryCount(row.getInt(Tables.Message.DELIVERY_COUNT))
+                                              .nextVisiblityAt(new DateTime(row.getTimestamp(Tables.Message.NEXT_VISIBLE_ON)))
+                                              .createdDate(new DateTime(row.getTimestamp(Tables.Message.CREATED_DATE)))
+                                              .tag(MessageTag.valueOf(row.getString(Tables.Message.TAG)))
+                                              .bodyVersion(row.getString(Tables.Message.BODY_VERSION));
+
+        return MessageCodec.readBody(message, row, Tables.Message.MESSAGE, Tables.Message.MESSAGE_DATA, Tables.Message.CODEC)
+                           .build();
     }
 }
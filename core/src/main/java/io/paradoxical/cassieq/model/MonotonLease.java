@@ -0,0 +1,37 @@
+package io.paradoxical.cassieq.model;
+
+import com.datastax.driver.core.Row;
+import io.paradoxical.cassieq.dataAccess.Tables;
+import lombok.Data;
+
+/**
+ * A block of monotons reserved by a single node. Indexes in [start, end) may
+ * still be written by the lease holder, so buckets overlapping a live lease
+ * should not be closed just because the monoton has moved past them
+ */
+@Data
+public final class MonotonLease {
+    private final MonotonicIndex start;
+
+    /**
+     * Exclusive
+     */
+    private final MonotonicIndex end;
+
+    public long size() {
+        return end.get() - start.get();
+    }
+
+    public boolean overlaps(BucketPointer bucketPointer, BucketSize bucketSize) {
+        final long bucketStart = bucketPointer.startOf(bucketSize).get();
+
+        final long bucketEnd = bucketStart + bucketSize.get();
+
+        return start.get() < bucketEnd && end.get() > bucketStart;
+    }
+
+    public static MonotonLease fromRow(Row row) {
+        return new MonotonLease(MonotonicIndex.valueOf(row.getLong(Tables.MonotonLease.LEASE_START)),
+                                MonotonicIndex.valueOf(row.getLong(Tables.MonotonLease.LEASE_END)));
+    }
+}
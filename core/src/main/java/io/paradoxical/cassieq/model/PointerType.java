@@ -3,5 +3,7 @@ package io.paradoxical.cassieq.model;
 public enum PointerType {
     BUCKET_POINTER,
     INVISIBILITY_POINTER,
-    REPAIR_BUCKET
+    REPAIR_BUCKET,
+    DELAYED_SLOT,
+    INVISIBILITY_SLOT
 }
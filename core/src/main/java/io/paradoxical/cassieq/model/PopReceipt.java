@@ -23,12 +23,39 @@ public final class PopReceipt {
 
     private final MessageTag messageTag;
 
+    /**
+     * Receipts for unsharded queues leave this off, so they read the same as they always have
+     */
+    private final int shard;
+
+    /**
+     * Left off the same way for lane 0
+     */
+    private final int lane;
+
+    public PopReceipt(final MonotonicIndex messageIndex, final int messageVersion, final MessageTag messageTag) {
+        this(messageIndex, messageVersion, messageTag, 0, 0);
+    }
+
+    public PopReceipt(
+            final MonotonicIndex messageIndex,
+            final int messageVersion,
+            final MessageTag messageTag,
+            final int shard,
+            final int lane) {
+        this.messageIndex = messageIndex;
+        this.messageVersion = messageVersion;
+        this.messageTag = messageTag;
+        this.shard = shard;
+        this.lane = lane;
+    }
+
     public static PopReceipt valueOf(String string) {
         return parsePopReceipt(string);
     }
 
     public static PopReceipt from(Message message) {
-        return new PopReceipt(message.getIndex(), message.getVersion(), message.getTag());
+        return new PopReceipt(message.getIndex(), message.getVersion(), message.getTag(), message.getShard(), message.getLane());
     }
 
     @Override
@@ -37,7 +64,15 @@ public final class PopReceipt {
     }
 
     private String getPopReceipt() {
-        final String receiptString = String.format("%s:%s:%s", getMessageIndex(), getMessageVersion(), getMessageTag());
+        String receiptString = String.format("%s:%s:%s", getMessageIndex(), getMessageVersion(), getMessageTag());
+
+        if (shard != 0 || lane != 0) {
+            receiptString += ":" + shard;
+        }
+
+        if (lane != 0) {
+            receiptString += ":" + lane;
+        }
 
         return Base64.getEncoder().withoutPadding().encodeToString(receiptString.getBytes());
     }
@@ -52,8 +87,10 @@ public final class PopReceipt {
         final MonotonicIndex monotonicIndex = MonotonicIndex.valueOf(Long.parseLong(components[0]));
         final Integer messageVersion = Integer.parseInt(components[1]);
         final MessageTag messageTag = MessageTag.valueOf(components[2]);
+        final int shard = components.length > 3 ? Integer.parseInt(components[3]) : 0;
+        final int lane = components.length > 4 ? Integer.parseInt(components[4]) : 0;
 
-        return new PopReceipt(monotonicIndex, messageVersion, messageTag);
+        return new PopReceipt(monotonicIndex, messageVersion, messageTag, shard, lane);
     }
 
     public static class JsonDeserializeAdapater extends JsonDeserializer<PopReceipt> {
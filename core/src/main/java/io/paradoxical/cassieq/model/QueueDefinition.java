@@ -7,7 +7,11 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
 
 @Data
 @Builder(toBuilder = true)
@@ -30,8 +34,107 @@ public class QueueDefinition {
      */
     private final boolean strictFifo;
 
+    /**
+     * Keep message bodies apart from message state, so bucket scans don't have to read them.
+     * The body is read only for the message that gets claimed
+     */
+    private final boolean splitMessageBody;
+
+    /**
+     * Deflate message bodies before storing them
+     */
+    private final boolean compressMessages;
+
+    /**
+     * How many physical queues back this one. Each shard has its own monoton, pointers and buckets,
+     * messages are only in order within a shard
+     */
+    private final int shardCount;
+
+    /**
+     * Which shard this definition addresses, shard 0 shares its id with an unsharded queue
+     */
+    private final int shard;
+
+    /**
+     * How many priority lanes the queue has. Every lane is kept like a queue of its own (sharded the same way),
+     * readers favor higher lanes. Messages published without a priority go to lane 0, the lowest
+     */
+    private final int priorityLanes;
+
+    /**
+     * Which lane this definition addresses, lane 0 shares its id with a queue without lanes
+     */
+    private final int lane;
+
     public QueueId getId() {
-        return QueueId.valueOf(accountName, queueName, version);
+        QueueId id = QueueId.valueOf(accountName, queueName, version);
+
+        if (lane > 0) {
+            id = id.forLane(lane);
+        }
+
+        if (shard > 0) {
+            id = id.forShard(shard);
+        }
+
+        return id;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public boolean hasPriorityLanes() {
+        return priorityLanes > 1;
+    }
+
+    public QueueDefinition forShard(final int shard) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException(String.format("Queue %s has no shard %s", queueName, shard));
+        }
+
+        return toBuilder().shard(shard).build();
+    }
+
+    public QueueDefinition forLane(final int lane) {
+        if (lane < 0 || lane >= priorityLanes) {
+            throw new IllegalArgumentException(String.format("Queue %s has no lane %s", queueName, lane));
+        }
+
+        return toBuilder().lane(lane).build();
+    }
+
+    /**
+     * The lane messages with the given priority go to, priorities past the lanes the queue has are clamped
+     */
+    public QueueDefinition forPriority(final Integer priority) {
+        if (priority == null) {
+            return this;
+        }
+
+        return forLane(Math.max(0, Math.min(priority, priorityLanes - 1)));
+    }
+
+    /**
+     * @return a definition per shard of this lane, just this queue if it isn't sharded
+     */
+    public List<QueueDefinition> allShards() {
+        return IntStream.range(0, shardCount).mapToObj(this::forShard).collect(toList());
+    }
+
+    /**
+     * @return a definition per lane, highest priority first
+     */
+    public List<QueueDefinition> allLanes() {
+        return IntStream.range(0, priorityLanes).map(i -> priorityLanes - 1 - i).mapToObj(this::forLane).collect(toList());
+    }
+
+    /**
+     * @return every physical queue backing this one, each shard of each lane
+     */
+    public List<QueueDefinition> allPartitions() {
+        return allLanes().stream().flatMap(lane -> lane.allShards().stream()).collect(toList());
     }
 
     public QueueDefinition(
@@ -46,7 +149,13 @@ public class QueueDefinition {
             final Boolean deleteBucketsAfterFinalization,
             final QueueStatsId queueStatsId,
             final Optional<QueueName> dlqName,
-            final Boolean strictFifo) {
+            final Boolean strictFifo,
+            final Boolean splitMessageBody,
+            final Boolean compressMessages,
+            final Integer shardCount,
+            final Integer shard,
+            final Integer priorityLanes,
+            final Integer lane) {
         this.accountName = accountName;
         this.queueName = queueName;
         this.queueStatsId = queueStatsId;
@@ -59,6 +168,12 @@ public class QueueDefinition {
         this.repairWorkerPollFrequencySeconds = repairWorkerPollFrequencySeconds == null ? 5 : repairWorkerPollFrequencySeconds;
         this.repairWorkerTombstonedBucketTimeoutSeconds = repairWorkerTombstonedBucketTimeoutSeconds == null ? 15 : repairWorkerTombstonedBucketTimeoutSeconds;
         this.strictFifo = strictFifo == null ? true : strictFifo;
+        this.splitMessageBody = splitMessageBody == null ? false : splitMessageBody;
+        this.compressMessages = compressMessages == null ? false : compressMessages;
+        this.shardCount = shardCount == null || shardCount < 1 ? 1 : shardCount;
+        this.shard = shard == null ? 0 : shard;
+        this.priorityLanes = priorityLanes == null || priorityLanes < 1 ? 1 : priorityLanes;
+        this.lane = lane == null ? 0 : lane;
     }
 
     public static QueueDefinition fromRow(final Row row) {
@@ -74,6 +189,10 @@ public class QueueDefinition {
                               .repairWorkerTombstonedBucketTimeoutSeconds(row.getInt(Tables.Queue.REPAIR_WORKER_TOMBSTONE_BUCKET_TIMEOUT_SECONDS))
                               .deleteBucketsAfterFinalization(row.getBool(Tables.Queue.DELETE_BUCKETS_AFTER_FINALIZATION))
                               .strictFifo(row.getBool(Tables.Queue.STRICT_FIFO))
+                              .splitMessageBody(row.getBool(Tables.Queue.SPLIT_MESSAGE_BODY))
+                              .compressMessages(row.getBool(Tables.Queue.COMPRESS_MESSAGES))
+                              .shardCount(row.getInt(Tables.Queue.SHARD_COUNT))
+                              .priorityLanes(row.getInt(Tables.Queue.PRIORITY_LANES))
                               .dlqName(getDlqName(row))
                               .build();
     }
@@ -37,6 +37,14 @@ public final class QueueId extends StringValue {
         return QueueId.valueOf(accountName + ":" + name + "_v" + version);
     }
 
+    public QueueId forLane(int lane) {
+        return QueueId.valueOf(get() + "_p" + lane);
+    }
+
+    public QueueId forShard(int shard) {
+        return QueueId.valueOf(get() + "_s" + shard);
+    }
+
     public static class XmlAdapter extends JaxbStringValueAdapter<QueueId> {
         @Override
         protected QueueId createNewInstance(String value) {
@@ -0,0 +1,22 @@
+package io.paradoxical.cassieq.model;
+
+import com.datastax.driver.core.Row;
+import io.paradoxical.cassieq.dataAccess.Tables;
+import lombok.Value;
+import org.joda.time.Instant;
+
+/**
+ * Records that the message at index was hidden until visibleAt. A message that was hidden again
+ * since has a newer entry, so an entry only means something while it matches the message
+ */
+@Value
+public class VisibilityIndexEntry {
+    private final MonotonicIndex index;
+
+    private final Instant visibleAt;
+
+    public static VisibilityIndexEntry fromRow(Row row) {
+        return new VisibilityIndexEntry(MonotonicIndex.valueOf(row.getLong(Tables.VisibilityIndex.MONOTON)),
+                                        new Instant(row.getTimestamp(Tables.VisibilityIndex.VISIBLE_AT)));
+    }
+}
@@ -0,0 +1,19 @@
+package io.paradoxical.cassieq.model.events;
+
+import io.paradoxical.cassieq.clustering.eventing.Event;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An account's keys changed or the account was removed
+ */
+@Data
+@NoArgsConstructor
+public class AccountUpdatedEvent implements Event {
+    private String accountName;
+
+    public AccountUpdatedEvent(AccountName accountName) {
+        this.accountName = accountName.get();
+    }
+}
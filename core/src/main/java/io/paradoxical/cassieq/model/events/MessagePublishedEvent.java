@@ -0,0 +1,23 @@
+package io.paradoxical.cassieq.model.events;
+
+import io.paradoxical.cassieq.model.QueueDefinition;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Messages were published to a queue, wakes any readers parked on it
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class MessagePublishedEvent extends QueueEvent {
+    private String queueId;
+
+    public MessagePublishedEvent() {
+    }
+
+    public MessagePublishedEvent(final QueueDefinition queueDefinition) {
+        super(queueDefinition.getAccountName(), queueDefinition.getQueueName());
+
+        queueId = queueDefinition.getId().get();
+    }
+}
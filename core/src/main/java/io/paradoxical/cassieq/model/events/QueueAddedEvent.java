@@ -1,5 +1,13 @@
 package io.paradoxical.cassieq.model.events;
 
-import io.paradoxical.cassieq.clustering.eventing.Event;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
 
-public class QueueAddedEvent implements Event {};
+public class QueueAddedEvent extends QueueEvent {
+    public QueueAddedEvent() {
+    }
+
+    public QueueAddedEvent(final AccountName accountName, final QueueName queueName) {
+        super(accountName, queueName);
+    }
+}
@@ -1,5 +1,35 @@
 package io.paradoxical.cassieq.model.events;
 
-import io.paradoxical.cassieq.clustering.eventing.Event;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
 
-public class QueueDeletingEvent implements Event {}
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class QueueDeletingEvent extends QueueEvent {
+    /**
+     * Lets nodes drop queue size changes they haven't written yet, null when not known
+     */
+    private String queueStatsId;
+
+    /**
+     * Lets nodes drop what they remember about the deleted version of the queue, null when not known
+     */
+    private String queueId;
+
+    public QueueDeletingEvent() {
+    }
+
+    public QueueDeletingEvent(final AccountName accountName, final QueueName queueName) {
+        super(accountName, queueName);
+    }
+
+    public QueueDeletingEvent(final QueueDefinition queueDefinition) {
+        super(queueDefinition.getAccountName(), queueDefinition.getQueueName());
+
+        queueStatsId = queueDefinition.getQueueStatsId().get();
+        queueId = queueDefinition.getId().get();
+    }
+}
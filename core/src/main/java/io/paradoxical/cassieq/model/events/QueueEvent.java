@@ -0,0 +1,24 @@
+package io.paradoxical.cassieq.model.events;
+
+import io.paradoxical.cassieq.clustering.eventing.Event;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change to a queue definition. Names are carried as raw strings so the event
+ * stays plain java serializable across the cluster
+ */
+@Data
+@NoArgsConstructor
+public abstract class QueueEvent implements Event {
+    private String accountName;
+
+    private String queueName;
+
+    protected QueueEvent(AccountName accountName, QueueName queueName) {
+        this.accountName = accountName.get();
+        this.queueName = queueName.get();
+    }
+}
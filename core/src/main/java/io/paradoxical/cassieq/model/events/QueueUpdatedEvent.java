@@ -0,0 +1,16 @@
+package io.paradoxical.cassieq.model.events;
+
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+
+/**
+ * The stored definition of a queue changed (status or version)
+ */
+public class QueueUpdatedEvent extends QueueEvent {
+    public QueueUpdatedEvent() {
+    }
+
+    public QueueUpdatedEvent(final AccountName accountName, final QueueName queueName) {
+        super(accountName, queueName);
+    }
+}
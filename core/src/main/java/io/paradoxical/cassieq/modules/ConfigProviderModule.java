@@ -4,8 +4,19 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import io.paradoxical.cassieq.ServiceConfiguration;
 import io.paradoxical.cassieq.configurations.AllocationConfig;
+import io.paradoxical.cassieq.configurations.AuthConfig;
+import io.paradoxical.cassieq.configurations.BucketSnapshotConfig;
 import io.paradoxical.cassieq.configurations.ClusteringConfig;
+import io.paradoxical.cassieq.configurations.DelayedDeliveryConfig;
+import io.paradoxical.cassieq.configurations.EmptyQueueCacheConfig;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.configurations.PublishConfig;
+import io.paradoxical.cassieq.configurations.QueueCacheConfig;
+import io.paradoxical.cassieq.configurations.QueueStatsConfig;
+import io.paradoxical.cassieq.configurations.ReaderCatchUpConfig;
 import io.paradoxical.cassieq.configurations.RepairConfig;
+import io.paradoxical.cassieq.configurations.VisibilityIndexConfig;
+import io.paradoxical.cassieq.configurations.cassandra.CassandraConfiguration;
 
 public class ConfigProviderModule extends AbstractModule {
     @Override
@@ -27,4 +38,59 @@ public class ConfigProviderModule extends AbstractModule {
     public AllocationConfig getAllocationConfig(ServiceConfiguration config) {
         return config.getAllocationConfig();
     }
+
+    @Provides
+    public AuthConfig getAuthConfig(ServiceConfiguration config) {
+        return config.getAuthConfig();
+    }
+
+    @Provides
+    public PublishConfig getPublishConfig(ServiceConfiguration config) {
+        return config.getPublishConfig();
+    }
+
+    @Provides
+    public QueueCacheConfig getQueueCacheConfig(ServiceConfiguration config) {
+        return config.getQueueCacheConfig();
+    }
+
+    @Provides
+    public BucketSnapshotConfig getBucketSnapshotConfig(ServiceConfiguration config) {
+        return config.getBucketSnapshotConfig();
+    }
+
+    @Provides
+    public LongPollConfig getLongPollConfig(ServiceConfiguration config) {
+        return config.getLongPollConfig();
+    }
+
+    @Provides
+    public EmptyQueueCacheConfig getEmptyQueueCacheConfig(ServiceConfiguration config) {
+        return config.getEmptyQueueCacheConfig();
+    }
+
+    @Provides
+    public QueueStatsConfig getQueueStatsConfig(ServiceConfiguration config) {
+        return config.getQueueStatsConfig();
+    }
+
+    @Provides
+    public DelayedDeliveryConfig getDelayedDeliveryConfig(ServiceConfiguration config) {
+        return config.getDelayedDeliveryConfig();
+    }
+
+    @Provides
+    public VisibilityIndexConfig getVisibilityIndexConfig(ServiceConfiguration config) {
+        return config.getVisibilityIndexConfig();
+    }
+
+    @Provides
+    public ReaderCatchUpConfig getReaderCatchUpConfig(ServiceConfiguration config) {
+        return config.getReaderCatchUpConfig();
+    }
+
+    @Provides
+    public CassandraConfiguration getCassandraConfig(ServiceConfiguration config) {
+        return config.getCassandra();
+    }
 }
@@ -1,22 +1,36 @@
 package io.paradoxical.cassieq.modules;
 
+import io.paradoxical.cassieq.dataAccess.AccountKeyCache;
+import io.paradoxical.cassieq.dataAccess.BucketSnapshotCache;
+import io.paradoxical.cassieq.dataAccess.DelayedMessageRepositoryImpl;
+import io.paradoxical.cassieq.dataAccess.EmptyQueueCache;
 import io.paradoxical.cassieq.dataAccess.AccountRepositoryImpl;
 import io.paradoxical.cassieq.dataAccess.MessageRepositoryImpl;
 import io.paradoxical.cassieq.dataAccess.MonotonicRepoImpl;
 import io.paradoxical.cassieq.dataAccess.PointerRepositoryImpl;
+import io.paradoxical.cassieq.dataAccess.PreparedStatementCache;
+import io.paradoxical.cassieq.dataAccess.QueueDefinitionCache;
 import io.paradoxical.cassieq.dataAccess.QueueRepositoryImpl;
+import io.paradoxical.cassieq.dataAccess.QueueSizeAccumulator;
+import io.paradoxical.cassieq.dataAccess.VisibilityIndex;
+import io.paradoxical.cassieq.dataAccess.VisibilityIndexRepositoryImpl;
 import io.paradoxical.cassieq.dataAccess.interfaces.AccountRepository;
+import io.paradoxical.cassieq.dataAccess.interfaces.DelayedMessageRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.MonotonicRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.PointerRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.QueueRepository;
+import io.paradoxical.cassieq.dataAccess.interfaces.VisibilityIndexRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.factories.DataContextFactoryImpl;
+import io.paradoxical.cassieq.factories.DelayedMessageRepoFactory;
 import io.paradoxical.cassieq.factories.MessageRepoFactory;
 import io.paradoxical.cassieq.factories.MonotonicRepoFactory;
 import io.paradoxical.cassieq.factories.PointerRepoFactory;
+import io.paradoxical.cassieq.factories.VisibilityIndexRepoFactory;
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.netflix.governator.guice.lazy.LazySingleton;
 import io.paradoxical.cassieq.factories.QueueRepositoryFactory;
 
 public class DataAccessModule extends AbstractModule {
@@ -35,6 +49,14 @@ public class DataAccessModule extends AbstractModule {
                         .build(MonotonicRepoFactory.class));
 
 
+        install(new FactoryModuleBuilder()
+                        .implement(DelayedMessageRepository.class, DelayedMessageRepositoryImpl.class)
+                        .build(DelayedMessageRepoFactory.class));
+
+        install(new FactoryModuleBuilder()
+                        .implement(VisibilityIndexRepository.class, VisibilityIndexRepositoryImpl.class)
+                        .build(VisibilityIndexRepoFactory.class));
+
         install(new FactoryModuleBuilder()
                         .implement(QueueRepository.class, QueueRepositoryImpl.class)
                         .build(QueueRepositoryFactory.class));
@@ -42,5 +64,20 @@ public class DataAccessModule extends AbstractModule {
         bind(AccountRepository.class).to(AccountRepositoryImpl.class);
 
         bind(DataContextFactory.class).to(DataContextFactoryImpl.class);
+
+        // statements are prepared against the session, so share them for the session's lifetime
+        bind(PreparedStatementCache.class).in(LazySingleton.class);
+
+        bind(QueueDefinitionCache.class).in(LazySingleton.class);
+
+        bind(AccountKeyCache.class).in(LazySingleton.class);
+
+        bind(BucketSnapshotCache.class).in(LazySingleton.class);
+
+        bind(EmptyQueueCache.class).in(LazySingleton.class);
+
+        bind(QueueSizeAccumulator.class).in(LazySingleton.class);
+
+        bind(VisibilityIndex.class).in(LazySingleton.class);
     }
 }
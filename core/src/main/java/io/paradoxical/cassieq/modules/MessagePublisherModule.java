@@ -1,12 +1,24 @@
 package io.paradoxical.cassieq.modules;
 
 import com.google.inject.AbstractModule;
+import com.netflix.governator.guice.lazy.LazySingleton;
 import io.paradoxical.cassieq.workers.DefaultMessagePublisher;
+import io.paradoxical.cassieq.workers.DelayedMessageMover;
+import io.paradoxical.cassieq.workers.DelayedMessageScheduler;
 import io.paradoxical.cassieq.workers.MessagePublisher;
+import io.paradoxical.cassieq.workers.MonotonLeaseManager;
 
 public class MessagePublisherModule extends AbstractModule {
     @Override
     protected void configure() {
-        bind(MessagePublisher.class).to(DefaultMessagePublisher.class);
+        // owns the pool batch publishes are written on
+        bind(MessagePublisher.class).to(DefaultMessagePublisher.class).in(LazySingleton.class);
+
+        // leases are tracked per node, so everyone has to share the same manager
+        bind(MonotonLeaseManager.class).in(LazySingleton.class);
+
+        bind(DelayedMessageScheduler.class).in(LazySingleton.class);
+
+        bind(DelayedMessageMover.class).in(LazySingleton.class);
     }
 }
@@ -2,11 +2,18 @@ package io.paradoxical.cassieq.modules;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.netflix.governator.guice.lazy.LazySingleton;
+import io.paradoxical.cassieq.factories.InvisStrategyFactoryImpl;
 import io.paradoxical.cassieq.factories.ReaderFactory;
+import io.paradoxical.cassieq.factories.ReaderFactoryImpl;
 import io.paradoxical.cassieq.workers.DefaultMessageConsumer;
 import io.paradoxical.cassieq.workers.MessageConsumer;
+import io.paradoxical.cassieq.workers.reader.IndexedInvisStrategy;
 import io.paradoxical.cassieq.workers.reader.InvisStrategy;
+import io.paradoxical.cassieq.workers.reader.LongPoller;
+import io.paradoxical.cassieq.workers.reader.MessageStreamer;
 import io.paradoxical.cassieq.workers.reader.PointerBasedInvisStrategy;
+import io.paradoxical.cassieq.workers.reader.PublishNotifier;
 import io.paradoxical.cassieq.workers.reader.Reader;
 import io.paradoxical.cassieq.workers.reader.ReaderImpl;
 
@@ -15,15 +22,31 @@ public class ReaderModule extends AbstractModule {
     protected void configure() {
         install(new FactoryModuleBuilder()
                         .implement(Reader.class, ReaderImpl.class)
-                        .build(ReaderFactory.class));
+                        .build(ReaderImpl.Factory.class));
+
+        bind(ReaderFactory.class).to(ReaderFactoryImpl.class);
 
         install(new FactoryModuleBuilder()
                         .implement(InvisStrategy.class, PointerBasedInvisStrategy.class)
-                        .build(InvisStrategy.Factory.class));
+                        .build(PointerBasedInvisStrategy.Factory.class));
+
+        install(new FactoryModuleBuilder()
+                        .implement(InvisStrategy.class, IndexedInvisStrategy.class)
+                        .build(IndexedInvisStrategy.Factory.class));
+
+        // picks between the two by whether the visibility index is on
+        bind(InvisStrategy.Factory.class).to(InvisStrategyFactoryImpl.class);
 
         install(new FactoryModuleBuilder()
                         .implement(MessageConsumer.class, DefaultMessageConsumer.class)
                         .build(MessageConsumer.Factory.class));
+
+        // parked readers on this node all wait on the same notifier
+        bind(PublishNotifier.class).in(LazySingleton.class);
+
+        bind(LongPoller.class).in(LazySingleton.class);
+
+        bind(MessageStreamer.class).in(LazySingleton.class);
     }
 }
 
@@ -1,5 +1,6 @@
 package io.paradoxical.cassieq.resources.api;
 
+import com.godaddy.logging.Logger;
 import io.paradoxical.cassieq.dataAccess.interfaces.QueueRepository;
 import io.paradoxical.cassieq.exceptions.QueueInternalServerError;
 import io.paradoxical.cassieq.exceptions.QueueNotFoundException;
@@ -15,13 +16,23 @@ import lombok.AccessLevel;
 import lombok.Getter;
 
 import javax.ws.rs.PathParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ResourceContext;
 import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static com.godaddy.logging.LoggerFactory.getLogger;
 
 public abstract class BaseQueueResource extends BaseAccountResource {
+    private static final Logger logger = getLogger(BaseQueueResource.class);
 
     @Getter(AccessLevel.PROTECTED)
     private final ReaderFactory readerFactory;
@@ -59,11 +70,66 @@ public abstract class BaseQueueResource extends BaseAccountResource {
         final String resourceMethodName = resourceContext.getResourceMethod().getName();
 
         final Optional<QueueDefinition> queueDefinitionOption =
-                Try.of(() -> queueRepository.getActiveQueue(queueName))
+                Try.of(() -> queueRepository.getActiveQueueCached(queueName))
                    .orElseThrow(error -> new QueueInternalServerError(resourceMethodName, queueName, error));
 
         return queueDefinitionOption.orElseThrow(() -> new QueueNotFoundException(resourceMethodName, queueName));
     }
 
+    protected CompletableFuture<QueueDefinition> lookupQueueDefinitionAsync(final QueueName queueName) {
+        // the resource info is request scoped, grab it before leaving the request thread
+        final String resourceMethodName = resourceContext.getResourceMethod().getName();
+
+        return queueRepository.getActiveQueueCachedAsync(queueName).handle((queueDefinitionOption, error) -> {
+            if (error != null) {
+                throw new QueueInternalServerError(resourceMethodName, queueName, unwrap(error));
+            }
+
+            return queueDefinitionOption.orElseThrow(() -> new QueueNotFoundException(resourceMethodName, queueName));
+        });
+    }
+
+    /**
+     * Completes a suspended request, passing web errors through and turning anything else into a queue server error
+     */
+    protected <T> BiConsumer<T, Throwable> resume(
+            final AsyncResponse asyncResponse,
+            final String operation,
+            final QueueName queueName,
+            final Function<T, Response> onSuccess) {
+        return (result, error) -> {
+            if (error == null) {
+                try {
+                    asyncResponse.resume(onSuccess.apply(result));
+                }
+                catch (WebApplicationException e) {
+                    asyncResponse.resume(e);
+                }
+
+                return;
+            }
+
+            final Throwable cause = unwrap(error);
+
+            if (cause instanceof WebApplicationException) {
+                asyncResponse.resume(cause);
+
+                return;
+            }
+
+            logger.error(cause, "Error");
+
+            asyncResponse.resume(new QueueInternalServerError(operation, queueName, cause));
+        };
+    }
+
+    protected static Throwable unwrap(final Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+
+        return error;
+    }
+
 
 }
@@ -88,7 +88,14 @@ public class DefaultMessageConsumer implements MessageConsumer {
 
                     // publish this message to the DLQ
                     try {
-                        messagePublisher.put(dlqDefinition, message.getBlob(), 0L);
+                        final Message dead = messageRepository.withBody(message);
+
+                        if (dead.isBinary()) {
+                            messagePublisher.put(dlqDefinition, dead.getData(), 0L);
+                        }
+                        else {
+                            messagePublisher.put(dlqDefinition, dead.getBlob(), 0L);
+                        }
                     }
                     catch (ExistingMonotonFoundException e) {
                         logger.error(e, "Error republishing message to dlq!");
@@ -1,47 +1,189 @@
 package io.paradoxical.cassieq.workers;
 
 import com.godaddy.logging.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.PublishConfig;
 import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
 import io.paradoxical.cassieq.factories.MessageRepoFactory;
-import io.paradoxical.cassieq.factories.MonotonicRepoFactory;
 import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.MonotonicIndex;
 import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.workers.reader.PublishNotifier;
 import org.joda.time.Duration;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
 import static com.godaddy.logging.LoggerFactory.getLogger;
+import static java.util.stream.Collectors.toList;
 
 public class DefaultMessagePublisher implements MessagePublisher {
 
     private static final Logger logger = getLogger(DefaultMessagePublisher.class);
 
-    private final MonotonicRepoFactory monotonicRepository;
     private final MessageRepoFactory messageRepoFactory;
+    private final MonotonLeaseManager monotonLeaseManager;
+    private final PublishNotifier publishNotifier;
+    private final DelayedMessageScheduler delayedMessageScheduler;
+    private final ExecutorService batchWriters;
 
     @Inject
     public DefaultMessagePublisher(
-            MonotonicRepoFactory monotonicRepository,
-            MessageRepoFactory messageRepoFactory) {
-        this.monotonicRepository = monotonicRepository;
+            MessageRepoFactory messageRepoFactory,
+            MonotonLeaseManager monotonLeaseManager,
+            PublishNotifier publishNotifier,
+            DelayedMessageScheduler delayedMessageScheduler,
+            PublishConfig publishConfig) {
         this.messageRepoFactory = messageRepoFactory;
+        this.monotonLeaseManager = monotonLeaseManager;
+        this.publishNotifier = publishNotifier;
+        this.delayedMessageScheduler = delayedMessageScheduler;
+
+        batchWriters = Executors.newFixedThreadPool(publishConfig.getBatchPublishThreads(),
+                                                    new ThreadFactoryBuilder().setDaemon(true)
+                                                                              .setNameFormat("batch-publisher-%d")
+                                                                              .build());
     }
 
     @Override
     public void put(final QueueDefinition queueDefinition, final String message, final Long initialInvisibilityTimeSeconds) throws ExistingMonotonFoundException {
-        final Message messageToInsert = Message.builder()
-                                               .blob(message)
-                                               .index(monotonicRepository.forQueue(queueDefinition.getId())
-                                                                         .nextMonotonic())
-                                               .build();
+        put(queueDefinition, Message.builder().blob(message), initialInvisibilityTimeSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(final QueueDefinition queueDefinition, final String message, final Long initialInvisibilityTimeSeconds) {
+        return putAsync(queueDefinition, Message.builder().blob(message), initialInvisibilityTimeSeconds);
+    }
+
+    @Override
+    public void put(final QueueDefinition queueDefinition, final byte[] message, final Long initialInvisibilityTimeSeconds) throws ExistingMonotonFoundException {
+        put(queueDefinition, Message.builder().data(message), initialInvisibilityTimeSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(final QueueDefinition queueDefinition, final byte[] message, final Long initialInvisibilityTimeSeconds) {
+        return putAsync(queueDefinition, Message.builder().data(message), initialInvisibilityTimeSeconds);
+    }
+
+    private void put(final QueueDefinition logicalQueue, final Message.MessageBuilder body, final Long initialInvisibilityTimeSeconds) throws ExistingMonotonFoundException {
+        if (delayedMessageScheduler.shouldDelay(initialInvisibilityTimeSeconds)) {
+            delayedMessageScheduler.scheduleAsync(logicalQueue, body.build(), Duration.standardSeconds(initialInvisibilityTimeSeconds)).join();
+
+            return;
+        }
+
+        final QueueDefinition queueDefinition = pickShard(logicalQueue);
+
+        final Message messageToInsert = body.index(monotonLeaseManager.nextMonotonic(queueDefinition.getId()))
+                                            .build();
 
         final Duration initialInvisibility = Duration.standardSeconds(initialInvisibilityTimeSeconds);
 
         messageRepoFactory.forQueue(queueDefinition)
                           .putMessage(messageToInsert, initialInvisibility);
 
+        publishNotifier.published(queueDefinition);
+
         logger.with("index", messageToInsert.getIndex())
               .with("tag", messageToInsert.getTag())
               .with("queue-id", queueDefinition.getId())
               .debug("Adding message");
     }
+
+    private CompletableFuture<Void> putAsync(final QueueDefinition logicalQueue, final Message.MessageBuilder body, final Long initialInvisibilityTimeSeconds) {
+        if (delayedMessageScheduler.shouldDelay(initialInvisibilityTimeSeconds)) {
+            return delayedMessageScheduler.scheduleAsync(logicalQueue, body.build(), Duration.standardSeconds(initialInvisibilityTimeSeconds));
+        }
+
+        final QueueDefinition queueDefinition = pickShard(logicalQueue);
+
+        final Duration initialInvisibility = Duration.standardSeconds(initialInvisibilityTimeSeconds);
+
+        return monotonLeaseManager.nextMonotonicAsync(queueDefinition.getId()).thenCompose(index -> {
+            final Message messageToInsert = body.index(index).build();
+
+            logger.with("index", messageToInsert.getIndex())
+                  .with("queue-id", queueDefinition.getId())
+                  .debug("Adding message");
+
+            return messageRepoFactory.forQueue(queueDefinition)
+                                     .putMessageAsync(messageToInsert, initialInvisibility);
+        }).thenRun(() -> publishNotifier.published(queueDefinition));
+    }
+
+    @Override
+    public void put(final QueueDefinition logicalQueue, final List<String> messages, final Long initialInvisibilityTimeSeconds) throws ExistingMonotonFoundException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        if (delayedMessageScheduler.shouldDelay(initialInvisibilityTimeSeconds)) {
+            final Duration delay = Duration.standardSeconds(initialInvisibilityTimeSeconds);
+
+            CompletableFuture.allOf(messages.stream()
+                                            .map(message -> delayedMessageScheduler.scheduleAsync(logicalQueue, Message.builder().blob(message).build(), delay))
+                                            .toArray(CompletableFuture[]::new))
+                             .join();
+
+            return;
+        }
+
+        // a batch stays together on one shard, so it keeps its order
+        final QueueDefinition queueDefinition = pickShard(logicalQueue);
+
+        // claim the whole range up front, from this node's lease when leasing is on
+        final List<MonotonicIndex> indexes = monotonLeaseManager.nextMonotonics(queueDefinition.getId(), messages.size());
+
+        final List<Message> messagesToInsert =
+                IntStream.range(0, messages.size())
+                         .mapToObj(i -> Message.builder()
+                                               .blob(messages.get(i))
+                                               .index(indexes.get(i))
+                                               .build())
+                         .collect(toList());
+
+        final Duration initialInvisibility = Duration.standardSeconds(initialInvisibilityTimeSeconds);
+
+        messageRepoFactory.forQueue(queueDefinition)
+                          .putMessages(messagesToInsert, initialInvisibility);
+
+        publishNotifier.published(queueDefinition);
+
+        logger.with("start-index", indexes.get(0))
+              .with("count", messagesToInsert.size())
+              .with("queue-id", queueDefinition.getId())
+              .debug("Adding messages");
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(final QueueDefinition logicalQueue, final List<String> messages, final Long initialInvisibilityTimeSeconds) {
+        // a batch is written as conditional batches in bucket order, which the sync session does best,
+        // so the request thread is let go and the batch waits for a writer instead
+        return CompletableFuture.runAsync(() -> {
+            try {
+                put(logicalQueue, messages, initialInvisibilityTimeSeconds);
+            }
+            catch (ExistingMonotonFoundException e) {
+                throw new CompletionException(e);
+            }
+        }, batchWriters);
+    }
+
+    /**
+     * Publishers spread over the shards at random, which keeps them off each other's monoton rows
+     * without any coordination
+     */
+    private static QueueDefinition pickShard(final QueueDefinition queueDefinition) {
+        if (!queueDefinition.isSharded()) {
+            return queueDefinition;
+        }
+
+        return queueDefinition.forShard(ThreadLocalRandom.current().nextInt(queueDefinition.getShardCount()));
+    }
 }
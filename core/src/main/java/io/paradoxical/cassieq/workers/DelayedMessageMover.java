@@ -0,0 +1,180 @@
+package io.paradoxical.cassieq.workers;
+
+import com.godaddy.logging.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.election.LeadershipProvider;
+import io.paradoxical.cassieq.configurations.DelayedDeliveryConfig;
+import io.paradoxical.cassieq.dataAccess.interfaces.DelayedMessageRepository;
+import io.paradoxical.cassieq.factories.DataContextFactory;
+import io.paradoxical.cassieq.factories.DelayedMessageRepoFactory;
+import io.paradoxical.cassieq.model.DelayedMessage;
+import io.paradoxical.cassieq.model.LeadershipRole;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.accounts.AccountDefinition;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Instant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.godaddy.logging.LoggerFactory.getLogger;
+
+/**
+ * Moves delayed messages into their queue a slot at a time as the slots come due.
+ *
+ * Only the leader moves anything. A slot is published before it is cleared, so a mover that
+ * dies part way through a slot means some of it is published twice, never that it is lost
+ */
+public class DelayedMessageMover {
+    private static final Logger logger = getLogger(DelayedMessageMover.class);
+
+    private static final LeadershipRole MOVER_ROLE = LeadershipRole.valueOf("delayed-message-mover");
+
+    private final ScheduledExecutorService mover =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                 .setNameFormat("delayed-message-mover-%d")
+                                                                                 .build());
+
+    private final DataContextFactory dataContextFactory;
+    private final DelayedMessageRepoFactory delayedMessageRepoFactory;
+    private final DelayedMessageScheduler delayedMessageScheduler;
+    private final MessagePublisher messagePublisher;
+    private final LeadershipProvider leadershipProvider;
+    private final DelayedDeliveryConfig config;
+    private final Clock clock;
+
+    private ScheduledFuture<?> cancellationToken;
+
+    @Inject
+    public DelayedMessageMover(
+            DataContextFactory dataContextFactory,
+            DelayedMessageRepoFactory delayedMessageRepoFactory,
+            DelayedMessageScheduler delayedMessageScheduler,
+            MessagePublisher messagePublisher,
+            LeadershipProvider leadershipProvider,
+            DelayedDeliveryConfig config,
+            Clock clock) {
+        this.dataContextFactory = dataContextFactory;
+        this.delayedMessageRepoFactory = delayedMessageRepoFactory;
+        this.delayedMessageScheduler = delayedMessageScheduler;
+        this.messagePublisher = messagePublisher;
+        this.leadershipProvider = leadershipProvider;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        if (!config.getEnabled() || cancellationToken != null) {
+            return;
+        }
+
+        logger.info("Starting delayed message mover");
+
+        cancellationToken = mover.scheduleWithFixedDelay(this::tryMove, 0, config.getMoveIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (cancellationToken == null) {
+            return;
+        }
+
+        logger.info("Stopping delayed message mover");
+
+        cancellationToken.cancel(false);
+
+        cancellationToken = null;
+
+        leadershipProvider.tryRelinquishLeadership(MOVER_ROLE);
+    }
+
+    private void tryMove() {
+        try {
+            if (leadershipProvider.tryAcquireLeader(MOVER_ROLE)) {
+                moveDueMessages();
+            }
+        }
+        catch (Exception e) {
+            logger.error(e, "Error moving delayed messages");
+        }
+    }
+
+    /**
+     * Moves everything in the slots up to and including the current one
+     */
+    public void moveDueMessages() {
+        final long currentSlot = delayedMessageScheduler.slotOf(clock.now());
+
+        final List<AccountDefinition> allAccounts = dataContextFactory.getAccountRepository().getAllAccounts();
+
+        allAccounts.forEach(account -> dataContextFactory.forAccount(account.getAccountName())
+                                                         .getActiveQueues()
+                                                         .stream()
+                                                         .flatMap(queue -> queue.allLanes().stream())
+                                                         .forEach(lane -> moveDueMessages(lane, currentSlot)));
+    }
+
+    private void moveDueMessages(final QueueDefinition lane, final long currentSlot) {
+        final DelayedMessageRepository repository = delayedMessageRepoFactory.forQueue(lane.getId());
+
+        final Optional<Long> firstSlot = repository.getCurrentSlot();
+
+        if (!firstSlot.isPresent() || firstSlot.get() > currentSlot) {
+            return;
+        }
+
+        for (long slot = firstSlot.get(); slot <= currentSlot; slot++) {
+            final int[] moved = { 0 };
+
+            repository.forEachBatch(slot, config.getMoveBatchSize(), batch -> {
+                publish(lane, batch);
+
+                moved[0] += batch.size();
+            });
+
+            // empty slots are just skipped over, no need to leave a tombstone behind for them.
+            // new messages are always at least two slots out, so nothing lands in a slot while it is cleared
+            if (moved[0] > 0) {
+                repository.deleteSlot(slot);
+
+                logger.with("queue-id", lane.getId())
+                      .with("slot", slot)
+                      .with("count", moved[0])
+                      .info("Moved delayed messages");
+            }
+        }
+
+        repository.advanceSlot(currentSlot + 1);
+    }
+
+    private void publish(final QueueDefinition lane, final List<DelayedMessage> batch) {
+        final Instant now = clock.now();
+
+        CompletableFuture.allOf(batch.stream()
+                                     .map(message -> publish(lane, message, remainingSeconds(message, now)))
+                                     .toArray(CompletableFuture[]::new))
+                         .join();
+    }
+
+    private CompletableFuture<Void> publish(final QueueDefinition lane, final DelayedMessage message, final long remainingSeconds) {
+        if (message.isBinary()) {
+            return messagePublisher.putAsync(lane, message.getData(), remainingSeconds);
+        }
+
+        return messagePublisher.putAsync(lane, message.getBlob(), remainingSeconds);
+    }
+
+    /**
+     * Slots are moved whole, so whatever is left of the delay is served as initial invisibility in the queue
+     */
+    private static long remainingSeconds(final DelayedMessage message, final Instant now) {
+        final long remainingMillis = message.getDueAt().getMillis() - now.getMillis();
+
+        return remainingMillis <= 0 ? 0 : TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999);
+    }
+}
@@ -0,0 +1,90 @@
+package io.paradoxical.cassieq.workers;
+
+import com.godaddy.logging.Logger;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.DelayedDeliveryConfig;
+import io.paradoxical.cassieq.dataAccess.interfaces.DelayedMessageRepository;
+import io.paradoxical.cassieq.factories.DelayedMessageRepoFactory;
+import io.paradoxical.cassieq.model.DelayedMessage;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.godaddy.logging.LoggerFactory.getLogger;
+
+/**
+ * Parks long delayed messages by the slot they come due in, so they never sit in a live bucket.
+ * {@link DelayedMessageMover} moves them into the queue when their slot comes up
+ */
+public class DelayedMessageScheduler {
+    private static final Logger logger = getLogger(DelayedMessageScheduler.class);
+
+    /**
+     * Lanes this node has made sure have a slot pointer, so it's only set up once per lane
+     */
+    private final Set<QueueId> initializedLanes = ConcurrentHashMap.newKeySet();
+
+    private final DelayedMessageRepoFactory delayedMessageRepoFactory;
+    private final DelayedDeliveryConfig config;
+    private final Clock clock;
+
+    @Inject
+    public DelayedMessageScheduler(
+            DelayedMessageRepoFactory delayedMessageRepoFactory,
+            DelayedDeliveryConfig config,
+            Clock clock) {
+        this.delayedMessageRepoFactory = delayedMessageRepoFactory;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    public boolean shouldDelay(Long initialInvisibilityTimeSeconds) {
+        if (!config.getEnabled() || initialInvisibilityTimeSeconds == null) {
+            return false;
+        }
+
+        return initialInvisibilityTimeSeconds >= Math.max(config.getThresholdSeconds(), 2L * config.getSlotSeconds());
+    }
+
+    /**
+     * @param lane a lane of the queue, the message goes to a shard when it is moved
+     */
+    public CompletableFuture<Void> scheduleAsync(QueueDefinition lane, Message body, Duration delay) {
+        final Instant dueAt = clock.now().plus(delay);
+
+        final long slot = slotOf(dueAt);
+
+        final DelayedMessageRepository repository = delayedMessageRepoFactory.forQueue(lane.getId());
+
+        // the pointer has to exist before anything is written behind it, and starting it at the
+        // current slot is safe since nothing delayed can be due that soon
+        if (initializedLanes.add(lane.getId())) {
+            repository.initializeSlot(slotOf(clock.now()));
+        }
+
+        final DelayedMessage delayedMessage = DelayedMessage.builder()
+                                                            .id(UUID.randomUUID())
+                                                            .dueAt(dueAt)
+                                                            .blob(body.getBlob())
+                                                            .data(body.getData())
+                                                            .build();
+
+        logger.with("queue-id", lane.getId())
+              .with("slot", slot)
+              .debug("Delaying message");
+
+        return repository.putMessageAsync(slot, delayedMessage, delay.plus(Duration.standardSeconds(config.getRetentionSeconds())));
+    }
+
+    public long slotOf(Instant instant) {
+        return instant.getMillis() / Duration.standardSeconds(config.getSlotSeconds()).getMillis();
+    }
+}
@@ -3,7 +3,29 @@ package io.paradoxical.cassieq.workers;
 import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
 import io.paradoxical.cassieq.model.QueueDefinition;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface MessagePublisher {
     void put(QueueDefinition queueDefinition, String message, Long invisTimeSeconds) throws ExistingMonotonFoundException;
-}
 
+    /**
+     * Completes exceptionally with {@link ExistingMonotonFoundException} if the monoton was already used
+     */
+    CompletableFuture<Void> putAsync(QueueDefinition queueDefinition, String message, Long invisTimeSeconds);
+
+    /**
+     * Publishes the bytes as is, they're handed back as bytes rather than text
+     */
+    void put(QueueDefinition queueDefinition, byte[] message, Long invisTimeSeconds) throws ExistingMonotonFoundException;
+
+    CompletableFuture<Void> putAsync(QueueDefinition queueDefinition, byte[] message, Long invisTimeSeconds);
+
+    void put(QueueDefinition queueDefinition, List<String> messages, Long invisTimeSeconds) throws ExistingMonotonFoundException;
+
+    /**
+     * Writes the batch on a bounded pool. Completes exceptionally with {@link io.paradoxical.cassieq.dataAccess.exceptions.PartialPublishException}
+     * if only the start of the batch was published, or {@link ExistingMonotonFoundException} if none of it was
+     */
+    CompletableFuture<Void> putAsync(QueueDefinition queueDefinition, List<String> messages, Long invisTimeSeconds);
+}
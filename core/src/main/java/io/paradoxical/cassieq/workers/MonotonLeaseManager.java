@@ -0,0 +1,252 @@
+package io.paradoxical.cassieq.workers;
+
+import com.godaddy.logging.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.PublishConfig;
+import io.paradoxical.cassieq.dataAccess.interfaces.MonotonicRepository;
+import io.paradoxical.cassieq.factories.MonotonicRepoFactory;
+import io.paradoxical.cassieq.model.MonotonLease;
+import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static com.godaddy.logging.LoggerFactory.getLogger;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Hands out monotons from node local leases so a publish doesn't need a
+ * conditional update on the monoton row each time. Falls back to the
+ * monoton row directly when leasing is disabled
+ */
+public class MonotonLeaseManager {
+    private static final Logger logger = getLogger(MonotonLeaseManager.class);
+
+    /**
+     * A lease is claimed by whoever puts its future here first, everyone else publishing
+     * to the queue waits on that future instead of claiming one of their own
+     */
+    private final ConcurrentMap<QueueId, CompletableFuture<ActiveLease>> leases = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService expiry =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                 .setNameFormat("monoton-lease-expiry-%d")
+                                                                                 .build());
+
+    private final MonotonicRepoFactory monotonicRepoFactory;
+    private final PublishConfig config;
+    private final Clock clock;
+
+    @Inject
+    public MonotonLeaseManager(
+            MonotonicRepoFactory monotonicRepoFactory,
+            PublishConfig config,
+            Clock clock) {
+        this.monotonicRepoFactory = monotonicRepoFactory;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    public MonotonicIndex nextMonotonic(QueueId queueId) {
+        final MonotonicRepository monotonicRepository = monotonicRepoFactory.forQueue(queueId);
+
+        if (!config.getMonotonLeasingEnabled()) {
+            return monotonicRepository.nextMonotonic();
+        }
+
+        return MonotonicIndex.valueOf(takeFromLease(monotonicRepository, queueId, 1));
+    }
+
+    /**
+     * A contiguous range for a batch publish. A batch that fits in a lease is taken from one, if the
+     * current lease doesn't have room left it is released and a fresh one claimed. Batches larger than
+     * a lease go straight to the monoton row
+     */
+    public List<MonotonicIndex> nextMonotonics(QueueId queueId, int count) {
+        final MonotonicRepository monotonicRepository = monotonicRepoFactory.forQueue(queueId);
+
+        if (!config.getMonotonLeasingEnabled() || count > config.getMonotonLeaseSize()) {
+            return monotonicRepository.nextMonotonics(count);
+        }
+
+        final long start = takeFromLease(monotonicRepository, queueId, count);
+
+        return LongStream.range(start, start + count).mapToObj(MonotonicIndex::valueOf).collect(toList());
+    }
+
+    /**
+     * @return the first of count indexes taken together from this node's lease on the queue
+     */
+    private long takeFromLease(MonotonicRepository monotonicRepository, QueueId queueId, int count) {
+        while (true) {
+            final CompletableFuture<ActiveLease> claim = new CompletableFuture<>();
+
+            final CompletableFuture<ActiveLease> existing = leases.putIfAbsent(queueId, claim);
+
+            if (existing == null) {
+                claim(monotonicRepository, queueId, claim);
+
+                continue;
+            }
+
+            final ActiveLease lease = existing.join();
+
+            if (lease.isUsable(clock.now())) {
+                final Optional<Long> start = lease.take(count);
+
+                if (start.isPresent()) {
+                    return start.get();
+                }
+            }
+
+            // drained or past its time, whoever takes it out of the map releases it and the next pass claims another
+            retire(monotonicRepository, queueId, existing);
+        }
+    }
+
+    /**
+     * Only goes async when leasing is off, handing out a leased index is an in memory operation
+     * (renewing a lease blocks the caller for one round trip every monotonLeaseSize publishes)
+     */
+    public CompletableFuture<MonotonicIndex> nextMonotonicAsync(QueueId queueId) {
+        if (!config.getMonotonLeasingEnabled()) {
+            return monotonicRepoFactory.forQueue(queueId).nextMonotonicAsync();
+        }
+
+        final CompletableFuture<MonotonicIndex> result = new CompletableFuture<>();
+
+        try {
+            result.complete(nextMonotonic(queueId));
+        }
+        catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Does the round trips for a new lease outside of the map and schedules its release
+     * for when it runs out, whether or not anything is published to the queue by then
+     */
+    private void claim(MonotonicRepository monotonicRepository, QueueId queueId, CompletableFuture<ActiveLease> claim) {
+        final ActiveLease lease;
+
+        try {
+            lease = renew(monotonicRepository);
+        }
+        catch (RuntimeException e) {
+            leases.remove(queueId, claim);
+
+            claim.completeExceptionally(e);
+
+            throw e;
+        }
+
+        claim.complete(lease);
+
+        expiry.schedule(() -> {
+            try {
+                retire(monotonicRepository, queueId, claim);
+            }
+            catch (Exception e) {
+                logger.with("queue-id", queueId)
+                      .error(e, "Unable to release expired monoton lease");
+            }
+        }, getLeaseDuration().getMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void retire(MonotonicRepository monotonicRepository, QueueId queueId, CompletableFuture<ActiveLease> claim) {
+        if (leases.remove(queueId, claim)) {
+            release(monotonicRepository, claim.join());
+        }
+    }
+
+    private ActiveLease renew(MonotonicRepository monotonicRepository) {
+        final MonotonLease lease = monotonicRepository.leaseMonotonics(config.getMonotonLeaseSize(), getLeaseRecordTtl());
+
+        logger.with("lease-start", lease.getStart())
+              .with("lease-end", lease.getEnd())
+              .debug("Leased monotons");
+
+        return new ActiveLease(lease, clock.now().plus(getLeaseDuration()));
+    }
+
+    /**
+     * Stop handing out indexes and drop the lease record so readers don't wait on indexes that will never be written
+     */
+    private void release(MonotonicRepository monotonicRepository, ActiveLease lease) {
+        final long usedUntil = lease.close();
+
+        logger.with("lease-start", lease.getLease().getStart())
+              .with("abandoned", lease.getLease().getEnd().get() - usedUntil)
+              .debug("Releasing monoton lease");
+
+        monotonicRepository.releaseLease(lease.getLease());
+    }
+
+    private Duration getLeaseDuration() {
+        return Duration.standardSeconds(config.getMonotonLeaseDurationSeconds());
+    }
+
+    /**
+     * Leases are released once drained or when their duration is up, the ttl only matters
+     * if this node goes away while holding one
+     */
+    private Duration getLeaseRecordTtl() {
+        return getLeaseDuration().multipliedBy(2);
+    }
+
+    private static class ActiveLease {
+        private final MonotonLease lease;
+        private final Instant expiresAt;
+        private final AtomicLong next;
+
+        ActiveLease(final MonotonLease lease, final Instant expiresAt) {
+            this.lease = lease;
+            this.expiresAt = expiresAt;
+            next = new AtomicLong(lease.getStart().get());
+        }
+
+        MonotonLease getLease() {
+            return lease;
+        }
+
+        boolean isUsable(Instant now) {
+            return now.isBefore(expiresAt) && next.get() < lease.getEnd().get();
+        }
+
+        /**
+         * @return the first of count consecutive indexes, empty if fewer than that are left
+         */
+        Optional<Long> take(int count) {
+            final long end = lease.getEnd().get();
+
+            final long start = next.getAndUpdate(current -> current + count <= end ? current + count : current);
+
+            return start + count <= end ? Optional.of(start) : Optional.empty();
+        }
+
+        /**
+         * Stops handing out indexes
+         *
+         * @return the first index that was never handed out
+         */
+        long close() {
+            return Math.min(next.getAndSet(lease.getEnd().get()), lease.getEnd().get());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.godaddy.logging.Logger;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.configurations.VisibilityIndexConfig;
+import io.paradoxical.cassieq.dataAccess.VisibilityIndex;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
+import io.paradoxical.cassieq.dataAccess.interfaces.VisibilityIndexRepository;
+import io.paradoxical.cassieq.factories.MessageRepoFactory;
+import io.paradoxical.cassieq.factories.VisibilityIndexRepoFactory;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.VisibilityIndexEntry;
+import io.paradoxical.cassieq.model.time.Clock;
+import lombok.Cleanup;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.godaddy.logging.LoggerFactory.getLogger;
+
+/**
+ * Finds messages that have come back from invisibility by looking up the slots of the
+ * {@link VisibilityIndex} that are due, so the cost doesn't grow with how much is invisible.
+ *
+ * Entries are dropped once they no longer match their message (it was acked, or hidden again
+ * which wrote a newer entry). Slots that are done are skipped from then on
+ */
+public class IndexedInvisStrategy implements InvisStrategy {
+    private Logger logger = getLogger(IndexedInvisStrategy.class);
+
+    private final VisibilityIndexRepository visibilityIndexRepository;
+    private final MessageRepository messageRepository;
+    private final VisibilityIndex visibilityIndex;
+    private final VisibilityIndexConfig config;
+    private final Clock clock;
+    private final MetricRegistry metricRegistry;
+
+    @Inject
+    public IndexedInvisStrategy(
+            VisibilityIndexRepoFactory visibilityIndexRepoFactory,
+            MessageRepoFactory messageRepoFactory,
+            VisibilityIndex visibilityIndex,
+            VisibilityIndexConfig config,
+            Clock clock,
+            MetricRegistry metricRegistry,
+            @Assisted QueueDefinition queueDefinition) {
+        this.visibilityIndexRepository = visibilityIndexRepoFactory.forQueue(queueDefinition.getId());
+        this.messageRepository = messageRepoFactory.forQueue(queueDefinition);
+        this.visibilityIndex = visibilityIndex;
+        this.config = config;
+        this.clock = clock;
+        this.metricRegistry = metricRegistry;
+
+        logger = logger.with("q", queueDefinition.getQueueName()).with("version", queueDefinition.getVersion());
+    }
+
+    @Override
+    public Optional<Message> findNextVisibleMessage(final Duration invisiblity) {
+        @Cleanup("close")
+        @SuppressWarnings("unused")
+        final Timer.Context timer = metricRegistry.timer(name("reader", "invisibility", "try-consume")).time();
+
+        final Optional<Long> firstSlot = visibilityIndexRepository.getCurrentSlot();
+
+        if (!firstSlot.isPresent()) {
+            return Optional.empty();
+        }
+
+        final Instant now = clock.now();
+
+        final long currentSlot = visibilityIndex.slotOf(now);
+
+        long slot = firstSlot.get();
+
+        while (slot <= currentSlot) {
+            final List<VisibilityIndexEntry> dueEntries = visibilityIndexRepository.getDueEntries(slot, now, config.getScanLimit());
+
+            for (final VisibilityIndexEntry entry : dueEntries) {
+                final Message message = messageRepository.getMessage(entry.getIndex());
+
+                if (message != null && message.isNotAcked() && message.isVisible(clock)) {
+                    return Optional.of(message);
+                }
+
+                visibilityIndexRepository.removeEntry(slot, entry);
+            }
+
+            if (dueEntries.size() == config.getScanLimit()) {
+                // everything we looked at was stale, there may be more behind it
+                continue;
+            }
+
+            // leave the slot before the current one open too, a node with a clock
+            // running a little behind may still be writing entries into it
+            if (slot < currentSlot - 1) {
+                visibilityIndexRepository.advanceSlot(slot + 1);
+
+                logger.with("slot", slot).debug("Visibility slot drained");
+            }
+
+            slot++;
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Consuming hides the message again, which writes it a new entry. The entry it was found through
+     * no longer matches and is dropped the next time it is looked at
+     */
+    @Override
+    public void trackConsumedMessage(final ConsumableMessage message) {
+    }
+
+    public interface Factory {
+        InvisStrategy forQueue(QueueDefinition definition);
+    }
+}
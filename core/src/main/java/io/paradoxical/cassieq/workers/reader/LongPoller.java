@@ -0,0 +1,131 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Parks a read until something is published to the queue, a recheck is due, or the wait runs out.
+ *
+ * Nothing holds a thread while a read is parked. Every read, including one that doesn't wait,
+ * runs on a fixed size pool so callers never block on it
+ */
+public class LongPoller {
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                 .setNameFormat("long-poll-timer-%d")
+                                                                                 .build());
+
+    private final ExecutorService readers;
+
+    private final PublishNotifier publishNotifier;
+
+    private final LongPollConfig config;
+
+    private final Clock clock;
+
+    @Inject
+    public LongPoller(PublishNotifier publishNotifier, LongPollConfig config, Clock clock) {
+        this.publishNotifier = publishNotifier;
+        this.config = config;
+        this.clock = clock;
+
+        readers = Executors.newFixedThreadPool(config.getReaderThreads(),
+                                               new ThreadFactoryBuilder().setDaemon(true)
+                                                                         .setNameFormat("long-poll-reader-%d")
+                                                                         .build());
+    }
+
+    /**
+     * @param queueDefinition the queue being read
+     * @param waitSeconds     how long to wait for a result, clamped to the configured max
+     * @param read            a single read attempt
+     * @param found           whether an attempt got something
+     * @return the first attempt that found something, or the last empty one once the wait is up
+     */
+    public <T> CompletableFuture<T> poll(
+            QueueDefinition queueDefinition,
+            int waitSeconds,
+            Supplier<T> read,
+            Predicate<T> found) {
+        final Duration wait = Duration.standardSeconds(Math.min(waitSeconds, config.getMaxWaitSeconds()));
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        if (wait.getMillis() <= 0) {
+            readers.execute(() -> complete(result, read));
+
+            return result;
+        }
+
+        attempt(queueDefinition, clock.now().plus(wait), read, found, result);
+
+        return result;
+    }
+
+    private <T> void attempt(
+            QueueDefinition queueDefinition,
+            Instant deadline,
+            Supplier<T> read,
+            Predicate<T> found,
+            CompletableFuture<T> result) {
+        final CompletableFuture<Void> published = publishNotifier.nextPublish(queueDefinition.getAccountName(),
+                                                                              queueDefinition.getQueueName());
+
+        final T attempt;
+
+        try {
+            attempt = read.get();
+        }
+        catch (Exception e) {
+            published.cancel(false);
+
+            result.completeExceptionally(e);
+
+            return;
+        }
+
+        final long remainingMillis = deadline.getMillis() - clock.now().getMillis();
+
+        if (found.test(attempt) || remainingMillis <= 0) {
+            published.cancel(false);
+
+            result.complete(attempt);
+
+            return;
+        }
+
+        // the wait belongs to this attempt alone: a recheck cancels it, which also takes it off the notifier
+        final ScheduledFuture<?> recheck = timer.schedule(() -> published.cancel(false),
+                                                          Math.min(remainingMillis, config.getRecheckIntervalMillis()),
+                                                          TimeUnit.MILLISECONDS);
+
+        published.whenCompleteAsync((ignored, error) -> {
+            recheck.cancel(false);
+
+            attempt(queueDefinition, deadline, read, found, result);
+        }, readers);
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, Supplier<T> read) {
+        try {
+            result.complete(read.get());
+        }
+        catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
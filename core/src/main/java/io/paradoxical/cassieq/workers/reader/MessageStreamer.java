@@ -0,0 +1,278 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import com.godaddy.logging.Logger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
+import io.paradoxical.cassieq.factories.MessageRepoFactory;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.PopReceipt;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueId;
+import io.paradoxical.cassieq.model.time.Clock;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.godaddy.logging.LoggerFactory.getLogger;
+
+/**
+ * Pushes claimed messages down a long lived connection, keeping at most maxInFlight of them outstanding.
+ *
+ * A delivered message stops counting against the stream once it is acked or its invisibility runs out.
+ * Acks made through this node's ack endpoints are handed to its streams directly. Acks made on other
+ * nodes are found by reading back what is in flight, which only happens while the stream is full and
+ * backs off for as long as those reads free nothing, up to the stream's invisibility
+ */
+public class MessageStreamer {
+    private static final Logger logger = getLogger(MessageStreamer.class);
+
+    private final ExecutorService streams =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                                                                    .setNameFormat("message-stream-%d")
+                                                                    .build());
+
+    private final LongPoller longPoller;
+
+    private final MessageRepoFactory messageRepoFactory;
+
+    private final LongPollConfig config;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<QueueId, Set<ActiveStream>> active = new ConcurrentHashMap<>();
+
+    public interface Sink {
+        boolean isOpen();
+
+        void send(List<Message> messages) throws IOException;
+
+        /**
+         * Sent when nothing was delivered for a while, so a dropped connection is noticed
+         */
+        void heartbeat() throws IOException;
+    }
+
+    @Inject
+    public MessageStreamer(
+            LongPoller longPoller,
+            MessageRepoFactory messageRepoFactory,
+            LongPollConfig config,
+            Clock clock) {
+        this.longPoller = longPoller;
+        this.messageRepoFactory = messageRepoFactory;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * @return completes when the sink closes or delivery fails
+     */
+    public CompletableFuture<Void> stream(
+            QueueDefinition queueDefinition,
+            Reader reader,
+            Duration invisibility,
+            int maxInFlight,
+            Sink sink) {
+        final ActiveStream stream = new ActiveStream(queueDefinition, reader, invisibility, maxInFlight, sink);
+
+        active.computeIfAbsent(queueDefinition.getId(), id -> ConcurrentHashMap.newKeySet()).add(stream);
+
+        stream.done.whenComplete((ignored, error) -> active.computeIfPresent(queueDefinition.getId(), (id, queueStreams) -> {
+            queueStreams.remove(stream);
+
+            return queueStreams.isEmpty() ? null : queueStreams;
+        }));
+
+        streams.submit(stream::next);
+
+        return stream.done;
+    }
+
+    /**
+     * Lets this node's streams on the queue stop counting the receipts against themselves without reading them back
+     */
+    public void acked(QueueDefinition queueDefinition, Collection<PopReceipt> popReceipts) {
+        final Set<ActiveStream> queueStreams = active.get(queueDefinition.getId());
+
+        if (queueStreams == null || popReceipts.isEmpty()) {
+            return;
+        }
+
+        queueStreams.forEach(stream -> stream.acked.addAll(popReceipts));
+    }
+
+    private class ActiveStream {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Keyed by the receipt handed out, indexes alone aren't unique across the shards and lanes of a queue
+         */
+        private final Map<PopReceipt, Instant> inFlight = new HashMap<>();
+
+        /**
+         * Filled from request threads, drained by the stream on its next round
+         */
+        private final ConcurrentLinkedQueue<PopReceipt> acked = new ConcurrentLinkedQueue<>();
+
+        private Duration ackCheckBackoff = Duration.ZERO;
+
+        private Instant nextAckCheck = new Instant(0);
+
+        private final QueueDefinition queueDefinition;
+        private final Map<QueueId, MessageRepository> partitionRepositories = new HashMap<>();
+        private final Reader reader;
+        private final Duration invisibility;
+        private final int maxInFlight;
+        private final Sink sink;
+
+        ActiveStream(
+                final QueueDefinition queueDefinition,
+                final Reader reader,
+                final Duration invisibility,
+                final int maxInFlight,
+                final Sink sink) {
+            this.queueDefinition = queueDefinition;
+            this.reader = reader;
+            this.invisibility = invisibility;
+            this.maxInFlight = maxInFlight;
+            this.sink = sink;
+
+        }
+
+        void next() {
+            if (!sink.isOpen()) {
+                done.complete(null);
+
+                return;
+            }
+
+            longPoller.poll(queueDefinition, config.getStreamHeartbeatSeconds(), this::claim, claimed -> !claimed.isEmpty())
+                      .thenAcceptAsync(this::deliver, streams)
+                      .whenComplete((ignored, error) -> {
+                          if (error == null) {
+                              streams.submit(this::next);
+
+                              return;
+                          }
+
+                          logger.with("queue-name", queueDefinition.getQueueName()).warn(error, "Closing message stream");
+
+                          done.completeExceptionally(error);
+                      });
+        }
+
+        /**
+         * Only runs on one thread at a time, rounds of a stream are chained one after the other
+         */
+        private List<Message> claim() {
+            final Instant now = clock.now();
+
+            inFlight.values().removeIf(visibleAt -> !visibleAt.isAfter(now));
+
+            dropLocallyAcked();
+
+            if (inFlight.size() >= maxInFlight && !now.isBefore(nextAckCheck)) {
+                checkAcked(now);
+            }
+
+            if (inFlight.size() >= maxInFlight || !sink.isOpen()) {
+                return Collections.emptyList();
+            }
+
+            final List<Message> claimed = reader.nextMessages(invisibility, maxInFlight - inFlight.size());
+
+            final Instant visibleAt = now.plus(invisibility);
+
+            claimed.forEach(message -> inFlight.put(message.getPopReceipt(), visibleAt));
+
+            return claimed;
+        }
+
+        private void dropLocallyAcked() {
+            final List<PopReceipt> drained = new ArrayList<>();
+
+            PopReceipt popReceipt;
+
+            while ((popReceipt = acked.poll()) != null) {
+                drained.add(popReceipt);
+            }
+
+            inFlight.keySet().removeAll(drained);
+        }
+
+        /**
+         * Reads back everything in flight, and waits twice as long before the next read each time nothing had been acked
+         */
+        private void checkAcked(final Instant now) {
+            final int before = inFlight.size();
+
+            dropAcked();
+
+            final Duration recheckInterval = Duration.millis(config.getRecheckIntervalMillis());
+
+            if (inFlight.size() < before) {
+                ackCheckBackoff = recheckInterval;
+            }
+            else {
+                final Duration doubled = ackCheckBackoff.isShorterThan(recheckInterval) ? recheckInterval : ackCheckBackoff.multipliedBy(2);
+
+                ackCheckBackoff = doubled.isLongerThan(invisibility) ? invisibility : doubled;
+            }
+
+            nextAckCheck = now.plus(ackCheckBackoff);
+        }
+
+        private void dropAcked() {
+            final Map<PopReceipt, CompletableFuture<Optional<Message>>> current = new HashMap<>();
+
+            inFlight.keySet().forEach(delivered -> current.put(delivered, repositoryFor(delivered).getMessageAsync(delivered.getMessageIndex())));
+
+            current.forEach((delivered, message) -> {
+                final Optional<Message> stored = message.join();
+
+                // acked, or the receipt we handed out went stale, either way it no longer counts against us
+                if (!stored.isPresent() || stored.get().isAcked() || stored.get().getVersion() != delivered.getMessageVersion()) {
+                    inFlight.remove(delivered);
+                }
+            });
+        }
+
+        private MessageRepository repositoryFor(final PopReceipt delivered) {
+            final QueueDefinition partition = queueDefinition.forLane(delivered.getLane()).forShard(delivered.getShard());
+
+            return partitionRepositories.computeIfAbsent(partition.getId(), id -> messageRepoFactory.forQueue(partition));
+        }
+
+        private void deliver(List<Message> claimed) {
+            try {
+                if (claimed.isEmpty()) {
+                    sink.heartbeat();
+                }
+                else {
+                    sink.send(claimed);
+                }
+            }
+            catch (IOException e) {
+                // the client went away, anything we just claimed comes back once its invisibility runs out
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -202,8 +202,15 @@ public class PointerBasedInvisStrategy implements InvisStrategy {
         // check all the messages in the bucket the invis pointer is currently on
         final BucketPointer invisBucketPointer = activePointer.toBucketPointer(queueDefinition.getBucketSize());
 
+        // a bucket the reader is done with whose summary has everything acked has nothing
+        // invisible in it, skip it without reading the messages
+        if (currentReaderBucketPointer.get() > invisBucketPointer.get() &&
+            dataContext.getMessageRepository().getBucketSummary(invisBucketPointer).isFullyAcked(queueDefinition.getBucketSize())) {
+            return InvisBucketProcessResult.nextBucket();
+        }
+
         final List<Message> messagesInBucket = dataContext.getMessageRepository()
-                                                          .getMessages(invisBucketPointer);
+                                                          .getMessagesSnapshot(invisBucketPointer);
 
         // no messages
         if (messagesInBucket.isEmpty()) {
@@ -355,4 +362,8 @@ public class PointerBasedInvisStrategy implements InvisStrategy {
     private InvisibilityMessagePointer trySetNewInvisPointer(final InvisibilityMessagePointer currentInvis, MessagePointer potentialNextInvisPointer) {
         return dataContext.getPointerRepository().tryMoveInvisiblityPointerTo(currentInvis, InvisibilityMessagePointer.valueOf(potentialNextInvisPointer.get()));
     }
+
+    public interface Factory {
+        InvisStrategy forQueue(QueueDefinition definition);
+    }
 }
@@ -0,0 +1,148 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import io.paradoxical.cassieq.model.AckResult;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.PopReceipt;
+import org.joda.time.Duration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a queue with priority lanes through one reader per lane.
+ *
+ * Higher lanes are drained first, but each read is first offered to a lane picked at random with
+ * each lane weighted twice the one below it, so lower lanes keep getting a share while the higher
+ * ones are busy instead of starving
+ */
+public class PriorityLaneReader implements Reader {
+    /**
+     * Indexed by lane, lowest priority first
+     */
+    private final List<Reader> lanes;
+
+    public PriorityLaneReader(final List<Reader> lanes) {
+        this.lanes = lanes;
+    }
+
+    @Override
+    public Optional<Message> nextMessage(final Duration invisiblity) {
+        for (final int lane : readOrder()) {
+            final Optional<Message> message = lanes.get(lane).nextMessage(invisiblity);
+
+            if (message.isPresent()) {
+                return Optional.of(inLane(message.get(), lane));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Message> nextMessages(final Duration invisiblity, final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must ask for at least one message");
+        }
+
+        final List<Message> messages = new ArrayList<>(count);
+
+        for (final int lane : readOrder()) {
+            if (messages.size() == count) {
+                break;
+            }
+
+            lanes.get(lane)
+                 .nextMessages(invisiblity, count - messages.size())
+                 .forEach(message -> messages.add(inLane(message, lane)));
+        }
+
+        return messages;
+    }
+
+    @Override
+    public boolean ackMessage(final PopReceipt popReceipt) {
+        return hasLane(popReceipt) && lanes.get(popReceipt.getLane()).ackMessage(popReceipt);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> ackMessageAsync(final PopReceipt popReceipt) {
+        if (!hasLane(popReceipt)) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return lanes.get(popReceipt.getLane()).ackMessageAsync(popReceipt);
+    }
+
+    @Override
+    public CompletableFuture<AckResult> ackMessagesAsync(final List<PopReceipt> popReceipts) {
+        if (popReceipts.isEmpty()) {
+            return CompletableFuture.completedFuture(AckResult.empty());
+        }
+
+        final Map<Integer, List<PopReceipt>> byLane = new LinkedHashMap<>();
+
+        popReceipts.stream()
+                   .filter(this::hasLane)
+                   .forEach(receipt -> byLane.computeIfAbsent(receipt.getLane(), key -> new ArrayList<>()).add(receipt));
+
+        final List<CompletableFuture<AckResult>> results = byLane.entrySet()
+                                                                 .stream()
+                                                                 .map(receipts -> lanes.get(receipts.getKey()).ackMessagesAsync(receipts.getValue()))
+                                                                 .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                                .thenApply(ignored -> results.stream()
+                                                             .map(CompletableFuture::join)
+                                                             .reduce(AckResult.empty(), AckResult::combine));
+    }
+
+    /**
+     * The weighted pick first, then the rest from the highest lane down
+     */
+    private List<Integer> readOrder() {
+        final int first = pickLane();
+
+        final List<Integer> order = new ArrayList<>(lanes.size());
+
+        order.add(first);
+
+        for (int lane = lanes.size() - 1; lane >= 0; lane--) {
+            if (lane != first) {
+                order.add(lane);
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Lane n has weight 2^n, so the top lane gets about half the picks
+     */
+    private int pickLane() {
+        long remaining = ThreadLocalRandom.current().nextLong((1L << lanes.size()) - 1);
+
+        for (int lane = lanes.size() - 1; lane > 0; lane--) {
+            remaining -= 1L << lane;
+
+            if (remaining < 0) {
+                return lane;
+            }
+        }
+
+        return 0;
+    }
+
+    private boolean hasLane(final PopReceipt popReceipt) {
+        return popReceipt.getLane() >= 0 && popReceipt.getLane() < lanes.size();
+    }
+
+    private static Message inLane(final Message message, final int lane) {
+        return message.toBuilder().lane(lane).build();
+    }
+}
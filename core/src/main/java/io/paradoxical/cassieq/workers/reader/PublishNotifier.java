@@ -0,0 +1,175 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import io.paradoxical.cassieq.clustering.eventing.EventBus;
+import io.paradoxical.cassieq.clustering.eventing.EventListener;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.model.events.MessagePublishedEvent;
+import lombok.Data;
+import lombok.Value;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets parked readers wait on the next publish to a queue from any node.
+ *
+ * Every wait gets a future of its own which is dropped as soon as it completes, however that happens,
+ * so waits that end on a recheck or a timeout don't pile up behind a queue that never sees a publish.
+ *
+ * Wakeups are coalesced per queue, a busy queue sends one per notification window rather than one per publish
+ */
+public class PublishNotifier {
+    private final ConcurrentMap<QueueKey, Set<CompletableFuture<Void>>> pending = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<QueueKey, NotificationWindow> windows = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                 .setNameFormat("publish-notifier-%d")
+                                                                                 .build());
+
+    private final EventBus eventBus;
+
+    private final LongPollConfig config;
+
+    @Inject
+    public PublishNotifier(EventBus eventBus, LongPollConfig config) {
+        this.eventBus = eventBus;
+        this.config = config;
+
+        eventBus.register(MessagePublishedEvent.class, new EventListener<MessagePublishedEvent>() {
+            @Override
+            public void onMessage(final MessagePublishedEvent item) {
+                if (item.getAccountName() == null || item.getQueueName() == null) {
+                    return;
+                }
+
+                wake(new QueueKey(AccountName.valueOf(item.getAccountName()), QueueName.valueOf(item.getQueueName())));
+            }
+        });
+    }
+
+    /**
+     * Register before reading so a publish that lands between the read and the wait isn't missed
+     *
+     * @return completes on the next publish to the queue, cancel it to stop waiting
+     */
+    public CompletableFuture<Void> nextPublish(AccountName accountName, QueueName queueName) {
+        final QueueKey queueKey = new QueueKey(accountName, queueName);
+
+        final CompletableFuture<Void> waiter = new CompletableFuture<>();
+
+        pending.compute(queueKey, (key, waiters) -> {
+            final Set<CompletableFuture<Void>> registered = waiters == null ? ConcurrentHashMap.newKeySet() : waiters;
+
+            registered.add(waiter);
+
+            return registered;
+        });
+
+        waiter.whenComplete((ignored, error) -> forget(queueKey, waiter));
+
+        return waiter;
+    }
+
+    public void published(QueueDefinition queueDefinition) {
+        if (!config.getPublishNotificationsEnabled()) {
+            return;
+        }
+
+        if (config.getPublishNotificationWindowMillis() == 0) {
+            broadcast(queueDefinition);
+
+            return;
+        }
+
+        final QueueKey queueKey = new QueueKey(queueDefinition.getAccountName(), queueDefinition.getQueueName());
+
+        final NotificationWindow opened = new NotificationWindow();
+
+        final NotificationWindow window = windows.compute(queueKey, (key, existing) -> {
+            if (existing == null) {
+                return opened;
+            }
+
+            existing.setMissed(true);
+
+            return existing;
+        });
+
+        if (window == opened) {
+            broadcast(queueDefinition);
+
+            scheduleClose(queueKey, queueDefinition);
+        }
+    }
+
+    /**
+     * Publishes that came in while the window was open get one wakeup between them, which opens a new window
+     */
+    private void scheduleClose(QueueKey queueKey, QueueDefinition queueDefinition) {
+        timer.schedule(() -> {
+            final NotificationWindow window = windows.compute(queueKey, (key, existing) -> {
+                if (existing == null || !existing.isMissed()) {
+                    return null;
+                }
+
+                existing.setMissed(false);
+
+                return existing;
+            });
+
+            if (window != null) {
+                broadcast(queueDefinition);
+
+                scheduleClose(queueKey, queueDefinition);
+            }
+        }, config.getPublishNotificationWindowMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void broadcast(QueueDefinition queueDefinition) {
+        // the bus delivers to this node's listeners too, so local readers are woken the same way
+        eventBus.publish(new MessagePublishedEvent(queueDefinition));
+    }
+
+    private void wake(QueueKey key) {
+        final Set<CompletableFuture<Void>> waiters = pending.remove(key);
+
+        if (waiters != null) {
+            waiters.forEach(waiter -> waiter.complete(null));
+        }
+    }
+
+    private void forget(QueueKey queueKey, CompletableFuture<Void> waiter) {
+        pending.computeIfPresent(queueKey, (key, waiters) -> {
+            waiters.remove(waiter);
+
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+
+    @Data
+    private static class NotificationWindow {
+        /**
+         * Something was published after the window's wakeup went out
+         */
+        private boolean missed;
+    }
+
+    @Value
+    private static class QueueKey {
+        private final AccountName accountName;
+
+        private final QueueName queueName;
+    }
+}
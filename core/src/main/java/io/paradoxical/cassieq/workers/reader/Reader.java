@@ -1,13 +1,33 @@
 package io.paradoxical.cassieq.workers.reader;
 
+import io.paradoxical.cassieq.model.AckResult;
 import io.paradoxical.cassieq.model.Message;
 import io.paradoxical.cassieq.model.PopReceipt;
 import org.joda.time.Duration;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface Reader {
     Optional<Message> nextMessage(Duration invisiblity);
 
+    /**
+     * Claims up to count visible messages, reusing each loaded bucket for as many messages as it can provide
+     *
+     * @param invisiblity
+     * @param count
+     * @return the claimed messages, empty if nothing is visible
+     */
+    List<Message> nextMessages(Duration invisiblity, int count);
+
     boolean ackMessage(PopReceipt popReceipt);
+
+    CompletableFuture<Boolean> ackMessageAsync(PopReceipt popReceipt);
+
+    /**
+     * @param popReceipts
+     * @return the pop receipts that were acked and the ones that errored, stale ones are in neither
+     */
+    CompletableFuture<AckResult> ackMessagesAsync(List<PopReceipt> popReceipts);
 }
@@ -5,11 +5,17 @@ import com.codahale.metrics.Timer;
 import com.godaddy.logging.Logger;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.configurations.ReaderCatchUpConfig;
+import io.paradoxical.cassieq.dataAccess.EmptyQueueCache;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.QueueRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.factories.QueueDataContext;
+import io.paradoxical.cassieq.model.AckResult;
 import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.BucketSummary;
 import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.MonotonLease;
 import io.paradoxical.cassieq.model.MonotonicIndex;
 import io.paradoxical.cassieq.model.PopReceipt;
 import io.paradoxical.cassieq.model.QueueDefinition;
@@ -21,10 +27,13 @@ import io.paradoxical.cassieq.workers.MessageConsumer;
 import lombok.Cleanup;
 import org.joda.time.Duration;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -44,6 +53,8 @@ public class ReaderImpl implements Reader {
     private final QueueDefinition queueDefinition;
     private final MessageConsumer messageConsumer;
     private final Supplier<Timer.Context> timerSupplier;
+    private final EmptyQueueCache emptyQueues;
+    private final ReaderCatchUpConfig catchUpConfig;
 
     @Inject
     public ReaderImpl(
@@ -52,19 +63,26 @@ public class ReaderImpl implements Reader {
             MetricRegistry metricRegistry,
             DefaultMessageConsumer.Factory messageConsumerFactory,
             InvisStrategy.Factory invisStrategyFactory,
+            EmptyQueueCache emptyQueues,
+            ReaderCatchUpConfig catchUpConfig,
             @Assisted AccountName accountName,
             @Assisted QueueDefinition queueDefinition) {
         this.dataContextFactory = dataContextFactory;
         this.clock = clock;
         this.metricRegistry = metricRegistry;
         this.invisStrategyFactory = invisStrategyFactory;
+        this.emptyQueues = emptyQueues;
+        this.catchUpConfig = catchUpConfig;
         messageConsumer = messageConsumerFactory.forQueue(queueDefinition);
         this.queueDefinition = queueDefinition;
 
         dataContext = dataContextFactory.forQueue(queueDefinition);
         queueRepository = dataContextFactory.forAccount(accountName);
 
-        logger = logger.with("q", queueDefinition.getQueueName()).with("version", queueDefinition.getVersion());
+        logger = logger.with("q", queueDefinition.getQueueName())
+                       .with("version", queueDefinition.getVersion())
+                       .with("shard", queueDefinition.getShard())
+                       .with("lane", queueDefinition.getLane());
 
         timerSupplier = () -> metricRegistry.timer(name("reader", "queue", queueDefinition.getQueueName().get(), "v" + queueDefinition.getVersion()))
                                             .time();
@@ -72,7 +90,7 @@ public class ReaderImpl implements Reader {
 
     @Override
     public Optional<Message> nextMessage(Duration invisibility) {
-        if (!isActive()) {
+        if (knownEmpty() || !isActive()) {
             return Optional.empty();
         }
 
@@ -80,29 +98,75 @@ public class ReaderImpl implements Reader {
         @Cleanup("stop")
         final Timer.Context readerTimer = timerSupplier.get();
 
+        final long generation = emptyQueues.generation(queueDefinition.getId());
+
         final Optional<Message> nowVisibleMessage = getNewlyVisible(invisibility);
 
         if (nowVisibleMessage.isPresent()) {
             return nowVisibleMessage;
         }
 
-        return getNext(invisibility);
+        final Optional<Message> nextMessage = getNext(invisibility, 1).stream().findFirst();
+
+        if (!nextMessage.isPresent()) {
+            emptyQueues.markEmpty(queueDefinition.getId(), generation);
+        }
+
+        return nextMessage;
+    }
+
+    @Override
+    public List<Message> nextMessages(final Duration invisibility, final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must ask for at least one message");
+        }
+
+        if (knownEmpty() || !isActive()) {
+            return Collections.emptyList();
+        }
+
+        @SuppressWarnings("unused")
+        @Cleanup("stop")
+        final Timer.Context readerTimer = timerSupplier.get();
+
+        final long generation = emptyQueues.generation(queueDefinition.getId());
+
+        final List<Message> messages = new ArrayList<>(count);
+
+        while (messages.size() < count) {
+            final Optional<Message> nowVisibleMessage = getNewlyVisible(invisibility);
+
+            if (!nowVisibleMessage.isPresent()) {
+                break;
+            }
+
+            messages.add(nowVisibleMessage.get());
+        }
+
+        if (messages.size() < count) {
+            messages.addAll(getNext(invisibility, count - messages.size()));
+        }
+
+        if (messages.isEmpty()) {
+            emptyQueues.markEmpty(queueDefinition.getId(), generation);
+        }
+
+        return messages;
     }
 
     /**
-     * Gets the next visible message
+     * Gets up to count of the next visible messages
      *
      * @param invisibility
+     * @param count
      * @return
      */
-    private Optional<Message> getNext(Duration invisibility) {
-        final Optional<Message> nextMessage = getAndMark(getReaderCurrentBucket(), invisibility);
+    private List<Message> getNext(Duration invisibility, int count) {
+        final List<Message> nextMessages = getAndMark(getReaderCurrentBucket(), invisibility, count);
 
-        if (nextMessage.isPresent()) {
-            logger.with(nextMessage.get()).info("Got message");
-        }
+        nextMessages.forEach(message -> logger.with(message).info("Got message"));
 
-        return nextMessage;
+        return nextMessages;
     }
 
     /**
@@ -132,8 +196,22 @@ public class ReaderImpl implements Reader {
         return Optional.empty();
     }
 
+    /**
+     * Skip the pointer walk and bucket reads entirely when a recent read on this node came back empty
+     * and nothing has been published or come due since
+     */
+    private boolean knownEmpty() {
+        if (emptyQueues.isKnownEmpty(queueDefinition.getId())) {
+            metricRegistry.counter(name("reader", "known-empty", "skipped")).inc();
+
+            return true;
+        }
+
+        return false;
+    }
+
     private boolean isActive() {
-        return queueRepository.getActiveQueue(queueDefinition.getQueueName()).isPresent();
+        return queueRepository.getActiveQueueCached(queueDefinition.getQueueName()).isPresent();
     }
 
     @Override
@@ -149,47 +227,85 @@ public class ReaderImpl implements Reader {
         return dataContext.getMessageRepository().ackMessage(messageAt);
     }
 
+    @Override
+    public CompletableFuture<Boolean> ackMessageAsync(final PopReceipt popReceipt) {
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
+
+        return messageRepository.getMessageAsync(popReceipt.getMessageIndex()).thenCompose(messageAt -> {
+            if (!messageAt.isPresent() ||
+                messageAt.get().getVersion() != popReceipt.getMessageVersion() ||
+                !messageAt.get().getTag().equals(popReceipt.getMessageTag())) {
+
+                return CompletableFuture.completedFuture(false);
+            }
+
+            return messageRepository.ackMessageAsync(messageAt.get());
+        });
+    }
+
+    @Override
+    public CompletableFuture<AckResult> ackMessagesAsync(final List<PopReceipt> popReceipts) {
+        if (popReceipts.isEmpty()) {
+            return CompletableFuture.completedFuture(AckResult.empty());
+        }
+
+        return dataContext.getMessageRepository().ackMessagesAsync(popReceipts);
+    }
+
     private ReaderBucketPointer getReaderCurrentBucket() {
         return dataContext.getPointerRepository().getReaderCurrentBucket();
     }
 
-    private Optional<Message> getAndMark(ReaderBucketPointer currentBucket, Duration invisiblity) {
+    private List<Message> getAndMark(ReaderBucketPointer currentBucket, Duration invisiblity, int count) {
+        final List<Message> consumedMessages = new ArrayList<>(count);
 
-        while (true) {
-            final List<Message> allMessages = dataContext.getMessageRepository().getMessages(currentBucket);
+        while (consumedMessages.size() < count) {
+            final List<Message> allMessages = dataContext.getMessageRepository().getMessagesSnapshot(currentBucket);
 
             final boolean allComplete = allMessages.stream().allMatch(m -> m.isAcked() || m.isNotVisible(clock));
 
             if (allComplete) {
                 if (allMessages.size() == queueDefinition.getBucketSize().get() || monotonPastBucket(currentBucket)) {
+                    if (!bucketIsComplete(currentBucket)) {
+                        // the snapshot was behind, go again with the fresh read
+                        continue;
+                    }
+
                     tombstone(currentBucket);
 
-                    currentBucket = advanceBucket(currentBucket);
+                    currentBucket = advanceBucket(currentBucket, catchUp(currentBucket));
 
                     continue;
                 }
                 else {
                     // bucket not ready to be closed yet, but all current messages processed
-                    return Optional.empty();
+                    return consumedMessages;
                 }
             }
 
-            final Optional<Message> foundMessage = findRandom(allMessages.stream().filter(m -> m.isNotAcked() && m.isVisible(clock)).collect(Collectors.toList()));
+            final List<Message> availableMessages = orderForConsumption(allMessages.stream()
+                                                                                   .filter(m -> m.isNotAcked() && m.isVisible(clock))
+                                                                                   .collect(Collectors.toList()));
 
-            if (!foundMessage.isPresent()) {
-                return Optional.empty();
+            if (availableMessages.isEmpty()) {
+                return consumedMessages;
             }
 
-            final ConsumableMessage consumableMessage = new ConsumableMessage(foundMessage.get(), invisiblity, Source.Reader);
+            // take as many as we can out of the bucket we already loaded before going back to the db
+            for (final Message foundMessage : availableMessages) {
+                if (consumedMessages.size() == count) {
+                    break;
+                }
 
-            Optional<Message> consumedMessage = tryConsume(consumableMessage);
+                final ConsumableMessage consumableMessage = new ConsumableMessage(foundMessage, invisiblity, Source.Reader);
 
-            if (consumedMessage.isPresent()) {
-                return consumedMessage;
+                tryConsume(consumableMessage).ifPresent(consumedMessages::add);
             }
 
             // loop again
         }
+
+        return consumedMessages;
     }
 
     private Optional<Message> tryConsume(ConsumableMessage message) {
@@ -205,20 +321,32 @@ public class ReaderImpl implements Reader {
         return consumedMessage;
     }
 
-    private Optional<Message> findRandom(final List<Message> availableMessages) {
-        final int size = availableMessages.size();
-
-        if (size == 0) {
-            return Optional.empty();
+    private List<Message> orderForConsumption(final List<Message> availableMessages) {
+        if (queueDefinition.isStrictFifo() || availableMessages.size() <= 1) {
+            return availableMessages;
         }
 
-        if (queueDefinition.isStrictFifo()) {
-            return Optional.of(availableMessages.get(0));
-        }
+        final List<Message> shuffled = new ArrayList<>(availableMessages);
+
+        Collections.shuffle(shuffled, random);
 
-        final int i = random.nextInt(size);
+        return shuffled;
+    }
+
+    /**
+     * Never close a bucket off of a snapshot, a message published or revived on another node may not be in it yet.
+     * A bucket whose summary has every message acked is done without reading it again
+     */
+    private boolean bucketIsComplete(final ReaderBucketPointer currentBucket) {
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
 
-        return Optional.of(availableMessages.get(i));
+        if (messageRepository.getBucketSummary(currentBucket).isFullyAcked(queueDefinition.getBucketSize())) {
+            return true;
+        }
+
+        return messageRepository.getMessages(currentBucket)
+                          .stream()
+                          .allMatch(m -> m.isAcked() || m.isNotVisible(clock));
     }
 
     private void tombstone(final ReaderBucketPointer bucket) {
@@ -233,11 +361,114 @@ public class ReaderImpl implements Reader {
     private boolean monotonPastBucket(final ReaderBucketPointer currentBucket) {
         final BucketPointer currentMonotonicBucket = getLatestMonotonic().toBucketPointer(queueDefinition.getBucketSize());
 
-        return currentMonotonicBucket.get() > currentBucket.get();
+        if (currentMonotonicBucket.get() <= currentBucket.get()) {
+            return false;
+        }
+
+        // a node may still be handing out leased indexes that land in this bucket
+        return !bucketIsLeased(currentBucket);
     }
 
-    private ReaderBucketPointer advanceBucket(ReaderBucketPointer currentBucket) {
-        final ReaderBucketPointer nextBucket = dataContext.getPointerRepository().advanceMessageBucketPointer(currentBucket, currentBucket.next());
+    private boolean bucketIsLeased(final ReaderBucketPointer currentBucket) {
+        return dataContext.getMonotonicRepository().isLeased(currentBucket, queueDefinition.getBucketSize());
+    }
+
+    /**
+     * Tombstones the run of buckets after the one just closed that is already done, so a reader that
+     * fell behind gets past them with a single pointer move. Only buckets the monoton is past and no
+     * lease covers are looked at, nothing can land in those anymore.
+     *
+     * A reader that is keeping up only pays for the summary of the next bucket, the look ahead
+     * doubles each time a whole window turns out to be done
+     *
+     * @return the bucket the reader should move to
+     */
+    private ReaderBucketPointer catchUp(final ReaderBucketPointer closedBucket) {
+        if (catchUpConfig.getMaxBuckets() == 0) {
+            return closedBucket.next();
+        }
+
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
+
+        final BucketPointer currentMonotonicBucket = getLatestMonotonic().toBucketPointer(queueDefinition.getBucketSize());
+
+        if (closedBucket.next().get() >= currentMonotonicBucket.get()) {
+            return closedBucket.next();
+        }
+
+        final List<MonotonLease> leases = dataContext.getMonotonicRepository().getLeases();
+
+        final List<ReaderBucketPointer> completed = new ArrayList<>();
+
+        ReaderBucketPointer next = closedBucket.next();
+
+        int window = 1;
+
+        while (completed.size() < catchUpConfig.getMaxBuckets()) {
+            final List<ReaderBucketPointer> upcoming = new ArrayList<>();
+
+            final int windowSize = Math.min(window, catchUpConfig.getMaxBuckets() - completed.size());
+
+            for (ReaderBucketPointer bucket = next;
+                 upcoming.size() < windowSize && bucket.get() < currentMonotonicBucket.get();
+                 bucket = bucket.next()) {
+                final ReaderBucketPointer candidate = bucket;
+
+                if (leases.stream().anyMatch(lease -> lease.overlaps(candidate, queueDefinition.getBucketSize()))) {
+                    break;
+                }
+
+                upcoming.add(candidate);
+            }
+
+            if (upcoming.isEmpty()) {
+                break;
+            }
+
+            final List<CompletableFuture<BucketSummary>> summaries = upcoming.stream()
+                                                                             .map(messageRepository::getBucketSummaryAsync)
+                                                                             .collect(Collectors.toList());
+
+            int done = 0;
+
+            while (done < upcoming.size() && isDone(summaries.get(done).join())) {
+                completed.add(upcoming.get(done));
+
+                done++;
+            }
+
+            if (done < upcoming.size()) {
+                break;
+            }
+
+            next = upcoming.get(upcoming.size() - 1).next();
+
+            window *= 2;
+        }
+
+        if (completed.isEmpty()) {
+            return closedBucket.next();
+        }
+
+        // the repair worker expects every bucket the reader moved past to be tombstoned
+        CompletableFuture.allOf(completed.stream()
+                                         .map(messageRepository::tombstoneAsync)
+                                         .toArray(CompletableFuture[]::new))
+                         .join();
+
+        logger.with(closedBucket).with("count", completed.size()).info("Reader caught up past completed buckets");
+
+        return completed.get(completed.size() - 1).next();
+    }
+
+    private boolean isDone(final BucketSummary summary) {
+        return summary.isFullyAcked(queueDefinition.getBucketSize()) ||
+               summary.getTombstonedAt().isPresent() ||
+               summary.getFinalizedAt().isPresent();
+    }
+
+    private ReaderBucketPointer advanceBucket(ReaderBucketPointer currentBucket, ReaderBucketPointer destination) {
+        final ReaderBucketPointer nextBucket = dataContext.getPointerRepository().advanceMessageBucketPointer(currentBucket, destination);
 
         if (!Objects.equals(nextBucket.get(), currentBucket.get())) {
             logger.with(currentBucket).info("Advancing reader bucket");
@@ -249,4 +480,11 @@ public class ReaderImpl implements Reader {
     private MonotonicIndex getLatestMonotonic() {
         return dataContext.getMonotonicRepository().getCurrent();
     }
+
+    /**
+     * Reads a single shard, use {@link io.paradoxical.cassieq.factories.ReaderFactory} for a whole queue
+     */
+    public interface Factory {
+        Reader forQueue(AccountName accountName, QueueDefinition definition);
+    }
 }
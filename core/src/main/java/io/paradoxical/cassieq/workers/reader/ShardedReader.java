@@ -0,0 +1,116 @@
+package io.paradoxical.cassieq.workers.reader;
+
+import io.paradoxical.cassieq.model.AckResult;
+import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.PopReceipt;
+import org.joda.time.Duration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a sharded queue through one reader per shard.
+ *
+ * Each read starts at a random shard and moves on to the next one while it comes up short, so concurrent
+ * readers spread out over the shards. Shards recently found empty are skipped by their readers without
+ * going to cassandra, so walking all of them on a quiet queue stays cheap
+ */
+public class ShardedReader implements Reader {
+    private final List<Reader> shards;
+
+    public ShardedReader(final List<Reader> shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Optional<Message> nextMessage(final Duration invisiblity) {
+        final int start = ThreadLocalRandom.current().nextInt(shards.size());
+
+        for (int i = 0; i < shards.size(); i++) {
+            final int shard = (start + i) % shards.size();
+
+            final Optional<Message> message = shards.get(shard).nextMessage(invisiblity);
+
+            if (message.isPresent()) {
+                return Optional.of(inShard(message.get(), shard));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Message> nextMessages(final Duration invisiblity, final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must ask for at least one message");
+        }
+
+        final List<Message> messages = new ArrayList<>(count);
+
+        final int start = ThreadLocalRandom.current().nextInt(shards.size());
+
+        for (int i = 0; i < shards.size() && messages.size() < count; i++) {
+            final int shard = (start + i) % shards.size();
+
+            shards.get(shard)
+                  .nextMessages(invisiblity, count - messages.size())
+                  .forEach(message -> messages.add(inShard(message, shard)));
+        }
+
+        return messages;
+    }
+
+    @Override
+    public boolean ackMessage(final PopReceipt popReceipt) {
+        return hasShard(popReceipt) && shards.get(popReceipt.getShard()).ackMessage(popReceipt);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> ackMessageAsync(final PopReceipt popReceipt) {
+        if (!hasShard(popReceipt)) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return shards.get(popReceipt.getShard()).ackMessageAsync(popReceipt);
+    }
+
+    @Override
+    public CompletableFuture<AckResult> ackMessagesAsync(final List<PopReceipt> popReceipts) {
+        if (popReceipts.isEmpty()) {
+            return CompletableFuture.completedFuture(AckResult.empty());
+        }
+
+        final Map<Integer, List<PopReceipt>> byShard = new LinkedHashMap<>();
+
+        popReceipts.stream()
+                   .filter(this::hasShard)
+                   .forEach(receipt -> byShard.computeIfAbsent(receipt.getShard(), key -> new ArrayList<>()).add(receipt));
+
+        final List<CompletableFuture<AckResult>> results = byShard.entrySet()
+                                                                  .stream()
+                                                                  .map(receipts -> shards.get(receipts.getKey()).ackMessagesAsync(receipts.getValue()))
+                                                                  .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                                .thenApply(ignored -> results.stream()
+                                                             .map(CompletableFuture::join)
+                                                             .reduce(AckResult.empty(), AckResult::combine));
+    }
+
+    private boolean hasShard(final PopReceipt popReceipt) {
+        return popReceipt.getShard() >= 0 && popReceipt.getShard() < shards.size();
+    }
+
+    /**
+     * The shard goes into the pop receipt so acks and updates find their way back to it
+     */
+    private static Message inShard(final Message message, final int shard) {
+        return message.toBuilder().shard(shard).build();
+    }
+}
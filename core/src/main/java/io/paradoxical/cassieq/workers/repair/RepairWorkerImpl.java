@@ -2,39 +2,55 @@ package io.paradoxical.cassieq.workers.repair;
 
 import com.codahale.metrics.MetricRegistry;
 import com.godaddy.logging.Logger;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import io.paradoxical.cassieq.configurations.RepairConfig;
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.dataAccess.exceptions.PartialPublishException;
 import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
 import io.paradoxical.cassieq.factories.DataContext;
 import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.factories.QueueDataContext;
 import io.paradoxical.cassieq.model.BucketPointer;
+import io.paradoxical.cassieq.model.BucketSummary;
 import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.MonotonLease;
 import io.paradoxical.cassieq.model.MonotonicIndex;
+import io.paradoxical.cassieq.model.PopReceipt;
 import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.ReaderBucketPointer;
 import io.paradoxical.cassieq.model.RepairBucketPointer;
 import io.paradoxical.cassieq.model.time.Clock;
 import io.paradoxical.cassieq.model.time.SleepableClock;
 import io.paradoxical.cassieq.modules.annotations.RepairPool;
 import org.joda.time.DateTime;
 import org.joda.time.Instant;
-import org.joda.time.Seconds;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static com.godaddy.logging.LoggerFactory.getLogger;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 public class RepairWorkerImpl implements RepairWorker {
     private final SleepableClock clock;
     private final ScheduledExecutorService scheduledExecutorService;
     private final MetricRegistry metricRegistry;
     private final QueueDefinition queueDefinition;
+    private final RepairConfig config;
 
     private Logger logger = getLogger(RepairWorkerImpl.class);
 
@@ -56,8 +72,10 @@ public class RepairWorkerImpl implements RepairWorker {
             SleepableClock clock,
             @RepairPool ScheduledExecutorService executorService,
             MetricRegistry metricRegistry,
+            RepairConfig config,
             @Assisted QueueDefinition definition) {
         this.clock = clock;
+        this.config = config;
         scheduledExecutorService = executorService;
         this.metricRegistry = metricRegistry;
         queueDefinition = definition;
@@ -70,20 +88,23 @@ public class RepairWorkerImpl implements RepairWorker {
         deletingFinalizedCounter = () -> metricRegistry.counter(name(repairMetricKey, "deleting-finalized")).inc();
 
         logger = logger.with("queue-name", definition.getQueueName())
-                       .with("verison", definition.getVersion());
+                       .with("verison", definition.getVersion())
+                       .with("shard", definition.getShard())
+                       .with("lane", definition.getLane());
     }
 
     @Override
-    public void start() {
+    public synchronized void start() {
         isStarted = true;
 
         logger.success("Starting repairer");
 
-        schedule();
+        // randomly start within a 20 second range as a jitter
+        schedule(TimeUnit.SECONDS.toMillis(clock.jitter(20)));
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
         isStarted = false;
 
         if (activeSchedule != null) {
@@ -102,18 +123,41 @@ public class RepairWorkerImpl implements RepairWorker {
         }
     }
 
-    private void schedule() {
-        activeSchedule = scheduledExecutorService.scheduleWithFixedDelay(this::process,
-                                                                         clock.jitter(20), // randomly start within a 20 second range as a jitter
-                                                                         queueDefinition.getRepairWorkerPollFrequencySeconds(),
-                                                                         TimeUnit.SECONDS);
+    /**
+     * Each run schedules the next one, nothing ever waits on a pool thread
+     */
+    private synchronized void schedule(long delayMillis) {
+        if (!isStarted) {
+            return;
+        }
+
+        activeSchedule = scheduledExecutorService.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        schedule(process());
     }
 
-    private void process() {
+    /**
+     * @return how long until the next run, sooner than the poll frequency if a tombstoned bucket times out before then
+     */
+    private long process() {
+        final long pollMillis = TimeUnit.SECONDS.toMillis(queueDefinition.getRepairWorkerPollFrequencySeconds());
+
         try {
             final Optional<RepairContext> firstBucketToMonitor = findFirstBucketToMonitor();
 
             if (firstBucketToMonitor.isPresent()) {
+                final long millisToTimeout = getTimeout(firstBucketToMonitor.get().getTombstonedAt()).getMillis() - clock.now().getMillis();
+
+                if (millisToTimeout > 0) {
+                    logger.with("tombstone-time", firstBucketToMonitor.get().getTombstonedAt())
+                          .with("millis-to-wait", millisToTimeout)
+                          .debug("Need to wait for bucket to be time closed");
+
+                    return Math.min(pollMillis, millisToTimeout);
+                }
+
                 watchBucket(firstBucketToMonitor.get());
 
                 synchronized (nextRun) {
@@ -124,23 +168,36 @@ public class RepairWorkerImpl implements RepairWorker {
         catch (Throwable ex) {
             logger.error(ex, "Error processing!");
         }
+
+        return pollMillis;
     }
 
     private RepairBucketPointer getCurrentBucket() {
         return dataContext.getPointerRepository().getRepairCurrentBucketPointer();
     }
 
+    /**
+     * Only called once the bucket's tombstone has timed out
+     */
     private void watchBucket(RepairContext context) {
-        waitForTimeout(context.getTombstonedAt());
-
         if (!isStarted) {
             return;
         }
 
+        if (isBacklogged(context.getPointer()) && repairBacklog(context.getPointer())) {
+            return;
+        }
+
+        if (bucketIsLeased(context.getPointer())) {
+            // leased indexes can still be written here, come back on the next run
+            logger.with(context.getPointer()).info("Tombstoned bucket is still leased, skipping");
+
+            return;
+        }
+
         List<Message> messages = dataContext.getMessageRepository().getMessages(context.getPointer());
 
-        messages.stream().filter(message -> !message.isAcked() && message.isVisible(clock) && message.getDeliveryCount() == 0)
-                .forEach(this::republishMessage);
+        messages.stream().filter(this::needsRepublish).forEach(this::republishMessage);
 
         advance(context.getPointer());
 
@@ -158,30 +215,128 @@ public class RepairWorkerImpl implements RepairWorker {
         markAsFinalized(context.getPointer());
     }
 
-    private void waitForTimeout(final DateTime tombstoneTime) {
+    /**
+     * Never delivered, so a reader skipped it when it closed the bucket
+     */
+    private boolean needsRepublish(final Message message) {
+        return !message.isAcked() && message.isVisible(clock) && message.getDeliveryCount() == 0;
+    }
+
+    private boolean isBacklogged(final RepairBucketPointer repairBucket) {
+        final ReaderBucketPointer readerBucket = dataContext.getPointerRepository().getReaderCurrentBucket();
 
-        final DateTime plus = tombstoneTime.plus(Duration.ofSeconds(queueDefinition.getRepairWorkerTombstonedBucketTimeoutSeconds()).toMillis());
+        return readerBucket.get() - repairBucket.get() >= config.getBacklogThresholdBuckets();
+    }
 
-        final Instant now = clock.now();
+    /**
+     * Repairs the run of buckets from start whose tombstone timeout has already passed, a few at a time,
+     * then moves the repair pointer past all of them at once. Republishes and deletes are done for the
+     * whole run together rather than bucket by bucket
+     *
+     * @return false if there was nothing that could be repaired without waiting
+     */
+    private boolean repairBacklog(final RepairBucketPointer start) {
+        final List<RepairBucketPointer> expired = findExpiredBuckets(start);
+
+        if (expired.isEmpty()) {
+            return false;
+        }
+
+        logger.with(start).with("count", expired.size()).info("Repairing backlog of tombstoned buckets");
 
-        final Seconds seconds = Seconds.secondsBetween(now, plus);
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
 
-        logger.with("tombstone-time", tombstoneTime)
-              .with("now", now)
-              .with("seconds-to-wait", seconds)
-              .debug("Need to wait for bucket to be time closed");
+        final Map<RepairBucketPointer, List<Message>> bucketContents = new LinkedHashMap<>();
 
-        if (seconds.isGreaterThan(Seconds.ZERO)) {
-            // wait for the repair worker timeout
-            try {
-                clock.sleepFor(seconds.toStandardDuration());
+        for (final List<RepairBucketPointer> window : Lists.partition(expired, config.getBacklogParallelism())) {
+            final List<CompletableFuture<List<Message>>> reads = window.stream().map(messageRepository::getMessagesAsync).collect(toList());
+
+            for (int i = 0; i < window.size(); i++) {
+                bucketContents.put(window.get(i), reads.get(i).join());
             }
-            catch (InterruptedException e) {
-                // ok
+        }
+
+        final Set<MonotonicIndex> republished = republishMessages(bucketContents.values()
+                                                                                .stream()
+                                                                                .flatMap(List::stream)
+                                                                                .filter(this::needsRepublish)
+                                                                                .collect(toList()));
+
+        // only delete buckets that are all acked now
+        final List<RepairBucketPointer> deletable = bucketContents.entrySet()
+                                                                  .stream()
+                                                                  .filter(bucket -> bucket.getValue()
+                                                                                          .stream()
+                                                                                          .allMatch(message -> message.isAcked() ||
+                                                                                                               republished.contains(message.getIndex())))
+                                                                  .map(Map.Entry::getKey)
+                                                                  .collect(toList());
+
+        for (int i = deletable.size(); i < expired.size(); i++) {
+            danglingDetectedCounter.run();
+        }
+
+        if (queueDefinition.getDeleteBucketsAfterFinalization()) {
+            Lists.partition(deletable, config.getBacklogParallelism()).forEach(messageRepository::deleteAllMessages);
+
+            deletable.forEach(bucket -> deletingFinalizedCounter.run());
+        }
+
+        for (final List<RepairBucketPointer> window : Lists.partition(expired, config.getBacklogParallelism())) {
+            CompletableFuture.allOf(window.stream().map(messageRepository::finalizeAsync).toArray(CompletableFuture[]::new)).join();
+        }
+
+        advance(start, expired.get(expired.size() - 1).next());
+
+        return true;
+    }
+
+    /**
+     * The buckets from start on that are tombstoned, past their timeout and not leased, stopping
+     * at the first one that isn't. Stays behind the reader, its bucket is still open
+     */
+    private List<RepairBucketPointer> findExpiredBuckets(final RepairBucketPointer start) {
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
+
+        final Instant now = clock.now();
+
+        final long readerBucket = dataContext.getPointerRepository().getReaderCurrentBucket().get();
+
+        final List<MonotonLease> leases = dataContext.getMonotonicRepository().getLeases();
+
+        final List<RepairBucketPointer> candidates = new ArrayList<>();
+
+        for (RepairBucketPointer bucket = start;
+             bucket.get() < readerBucket && candidates.size() < config.getBacklogMaxBuckets();
+             bucket = bucket.next()) {
+            candidates.add(bucket);
+        }
+
+        final List<RepairBucketPointer> expired = new ArrayList<>();
+
+        for (final List<RepairBucketPointer> window : Lists.partition(candidates, config.getBacklogParallelism())) {
+            final List<CompletableFuture<BucketSummary>> summaries = window.stream().map(messageRepository::getBucketSummaryAsync).collect(toList());
+
+            for (int i = 0; i < window.size(); i++) {
+                final RepairBucketPointer bucket = window.get(i);
+
+                final Optional<DateTime> tombstonedAt = summaries.get(i).join().getTombstonedAt();
+
+                if (!tombstonedAt.isPresent() ||
+                    getTimeout(tombstonedAt.get()).isAfter(now) ||
+                    leases.stream().anyMatch(lease -> lease.overlaps(bucket, queueDefinition.getBucketSize()))) {
+                    return expired;
+                }
+
+                expired.add(bucket);
             }
         }
 
-        logger.success("Bucket should be closed");
+        return expired;
+    }
+
+    private DateTime getTimeout(final DateTime tombstoneTime) {
+        return tombstoneTime.plus(Duration.ofSeconds(queueDefinition.getRepairWorkerTombstonedBucketTimeoutSeconds()).toMillis());
     }
 
     /**
@@ -197,12 +352,18 @@ public class RepairWorkerImpl implements RepairWorker {
             // first bucket that is tombstoned and is unfilled
             final MessageRepository messageRepository = dataContext.getMessageRepository();
 
-            final Optional<DateTime> tombstoneTime = messageRepository.tombstoneExists(currentBucket);
+            final BucketSummary summary = messageRepository.getBucketSummary(currentBucket);
 
-            if (tombstoneTime.isPresent()) {
-                final List<Message> messages = messageRepository.getMessages(currentBucket);
+            // buckets tombstoned before they kept a summary still need their tombstone row read
+            final Optional<DateTime> tombstoneTime = summary.getTombstonedAt().isPresent() ?
+                                                     summary.getTombstonedAt() :
+                                                     messageRepository.tombstoneExists(currentBucket);
 
-                if (messages.size() == queueDefinition.getBucketSize().get() && messages.stream().allMatch(Message::isAcked)) {
+            if (tombstoneTime.isPresent()) {
+                // the snapshot may miss acks made on other nodes, which only means the bucket gets
+                // watched rather than skipped, watchBucket itself reads the bucket directly
+                if (summary.isFullyAcked(queueDefinition.getBucketSize()) ||
+                    (!summary.getTombstonedAt().isPresent() && isFullAndAcked(messageRepository.getMessagesSnapshot(currentBucket)))) {
                     deleteMessagesInBucket(currentBucket);
 
                     currentBucket = advance(currentBucket);
@@ -229,6 +390,17 @@ public class RepairWorkerImpl implements RepairWorker {
         return Optional.empty();
     }
 
+    /**
+     * Acks are never undone, so a snapshot that says the whole bucket is acked can be trusted
+     */
+    private boolean isFullAndAcked(final List<Message> messages) {
+        return messages.size() == queueDefinition.getBucketSize().get() && messages.stream().allMatch(Message::isAcked);
+    }
+
+    private boolean bucketIsLeased(final RepairBucketPointer bucket) {
+        return dataContext.getMonotonicRepository().isLeased(bucket, queueDefinition.getBucketSize());
+    }
+
     private void deleteMessagesInBucket(final RepairBucketPointer currentBucket) {
         if (queueDefinition.getDeleteBucketsAfterFinalization()) {
             dataContext.getMessageRepository().deleteAllMessages(currentBucket);
@@ -255,7 +427,8 @@ public class RepairWorkerImpl implements RepairWorker {
 
             withLogger.debug("Republishing message");
 
-            dataContext.getMessageRepository().putMessage(message.createNewWithIndex(nextIndex));
+            // bucket reads leave the body out on split body queues, the copy needs it
+            dataContext.getMessageRepository().putMessage(dataContext.getMessageRepository().withBody(message).createNewWithIndex(nextIndex));
 
             withLogger.success("Republished message");
 
@@ -272,14 +445,67 @@ public class RepairWorkerImpl implements RepairWorker {
         }
     }
 
+    /**
+     * Republishes the messages with one batch of new indexes, then acks the originals together
+     *
+     * @return the indexes of the originals that were acked
+     */
+    private Set<MonotonicIndex> republishMessages(final List<Message> messages) {
+        if (messages.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
+
+        final List<MonotonicIndex> nextIndexes = dataContext.getMonotonicRepository().nextMonotonics(messages.size());
+
+        final List<Message> republishes = new ArrayList<>(messages.size());
+
+        for (int i = 0; i < messages.size(); i++) {
+            republishes.add(messageRepository.withBody(messages.get(i)).createNewWithIndex(nextIndexes.get(i)));
+
+            republishStatCounter.run();
+        }
+
+        try {
+            messageRepository.putMessages(republishes, org.joda.time.Duration.ZERO);
+        }
+        catch (PartialPublishException e) {
+            logger.error(e, "Error publishing messages");
+
+            // the copies of the first messages are live, ack their originals so the next pass doesn't republish them again
+            messageRepository.ackMessages(messages.subList(0, e.getPublishedCount())
+                                                  .stream()
+                                                  .map(Message::getPopReceipt)
+                                                  .collect(toList()));
+
+            throw new RuntimeException(e);
+        }
+        catch (ExistingMonotonFoundException e) {
+            logger.error(e, "Error publishing messages");
+
+            throw new RuntimeException(e);
+        }
+
+        final List<PopReceipt> acked = messageRepository.ackMessages(messages.stream().map(Message::getPopReceipt).collect(toList())).getAcked();
+
+        logger.with("count", messages.size()).success("Republished messages that were never delivered");
+
+        return acked.stream().map(PopReceipt::getMessageIndex).collect(toSet());
+    }
+
     private RepairBucketPointer advance(final RepairBucketPointer currentBucket) {
+        return advance(currentBucket, currentBucket.next());
+    }
+
+    private RepairBucketPointer advance(final RepairBucketPointer currentBucket, final RepairBucketPointer destination) {
         logger.info("Advancing bucket");
 
         BucketPointer monotonBucket = getCurrentMonotonBucket();
 
         // dont let the repair bucket pointer advance past the bucket of the current monoton
-        if (currentBucket.next().get() > monotonBucket.get()) {
-            logger.with("attempted-next-bucket", currentBucket.next())
+        if (destination.get() > monotonBucket.get()) {
+            logger.with("attempted-next-bucket", destination)
                   .with("current-monton-bucket", monotonBucket)
                   .with("bucket-size", queueDefinition.getBucketSize())
                   .warn("Attempted to move past monoton bucket, but limited");
@@ -287,7 +513,7 @@ public class RepairWorkerImpl implements RepairWorker {
             return RepairBucketPointer.valueOf(monotonBucket.get());
         }
 
-        final RepairBucketPointer repairBucketPointer = dataContext.getPointerRepository().advanceRepairBucketPointer(currentBucket, currentBucket.next());
+        final RepairBucketPointer repairBucketPointer = dataContext.getPointerRepository().advanceRepairBucketPointer(currentBucket, destination);
 
         logger.with("now-repair-pointer", repairBucketPointer).info("New bucket");
 
@@ -164,6 +164,8 @@ public class SimpleRepairWorkerManager implements RepairWorkerManager {
                                                     dataContextFactory.forAccount(account.getAccountName())
                                                                       .getActiveQueues()
                                                                       .stream()
+                                                                      // every shard and lane is repaired on its own
+                                                                      .flatMap(queue -> queue.allPartitions().stream())
                                                                       .map(repairWorkerFactory::forQueue)
                                                                       .map(RepairWorkerKey::new))
                           .collect(toSet());
@@ -5,8 +5,11 @@ import com.godaddy.logging.Logger;
 import com.google.inject.Injector;
 import io.paradoxical.cassieq.ServiceConfiguration;
 import io.paradoxical.cassieq.dataAccess.CqlDb;
+import io.paradoxical.cassieq.model.QueueDefinition;
 import io.paradoxical.cassieq.unittests.modules.InMemorySessionProvider;
 
+import java.util.function.Consumer;
+
 import static com.godaddy.logging.LoggerFactory.getLogger;
 
 public class DbTestBase extends TestBase {
@@ -42,4 +45,19 @@ public class DbTestBase extends TestBase {
         return getDefaultInjector(configuration, new InMemorySessionProvider(session));
     }
 
+    /**
+     * An injector for a node running the default configuration with whatever the customizer changes on it
+     */
+    protected Injector getConfiguredInjector(Consumer<ServiceConfiguration> customizer) {
+        final ServiceConfiguration configuration = new ServiceConfiguration();
+
+        customizer.accept(configuration);
+
+        return getDefaultInjector(configuration);
+    }
+
+    protected TestQueueContext setupTestContext(QueueDefinition queueDefinition, Consumer<ServiceConfiguration> customizer) {
+        return new TestQueueContext(queueDefinition, getConfiguredInjector(customizer));
+    }
+
 }
@@ -2,24 +2,38 @@ package io.paradoxical.cassieq.unittests.tests.api;
 
 import categories.BuildVerification;
 import com.godaddy.logging.Logger;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.ResponseBody;
 import io.paradoxical.cassieq.api.client.CassieqApi;
+import io.paradoxical.cassieq.configurations.LongPollConfig;
+import io.paradoxical.cassieq.model.AckMessagesResponse;
 import io.paradoxical.cassieq.model.GetMessageResponse;
+import io.paradoxical.cassieq.model.MessageHeaders;
 import io.paradoxical.cassieq.model.QueueCreateOptions;
 import io.paradoxical.cassieq.model.QueueName;
 import io.paradoxical.cassieq.model.UpdateMessageRequest;
 import io.paradoxical.cassieq.model.UpdateMessageResponse;
 import io.paradoxical.cassieq.model.accounts.AccountDefinition;
 import io.paradoxical.cassieq.model.accounts.AccountName;
+import io.paradoxical.cassieq.model.mappers.Mappers;
 import io.paradoxical.cassieq.unittests.server.AdminClient;
 import io.paradoxical.cassieq.unittests.time.TestClock;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import retrofit.Response;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.godaddy.logging.LoggerFactory.getLogger;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @Category(BuildVerification.class)
@@ -126,6 +140,162 @@ public class StandardApiTests extends ApiTestsBase {
         assertThat(ackResponse.isSuccess()).isTrue();
     }
 
+    @Test
+    public void long_poll_returns_message_published_while_waiting() throws Exception {
+        final QueueName queueName = QueueName.valueOf("long_poll_returns_message_published_while_waiting");
+
+        final CassieqApi client = apiClient();
+
+        client.createQueue(testAccountName, new QueueCreateOptions(queueName)).execute();
+
+        final LongPollConfig longPollConfig = server.getService().getGuiceBundleProvider().getInjector().getInstance(LongPollConfig.class);
+
+        final Integer recheckIntervalMillis = longPollConfig.getRecheckIntervalMillis();
+
+        // a recheck must not land inside the 5 seconds below, only the publish can wake the reader
+        longPollConfig.setRecheckIntervalMillis((int) TimeUnit.SECONDS.toMillis(60));
+
+        try {
+            final CompletableFuture<Response<GetMessageResponse>> parked = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.getMessage(testAccountName, queueName, 30L, 15).execute();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(500);
+
+            assertThat(parked.isDone()).isFalse();
+
+            client.addMessage(testAccountName, queueName, "hi").execute();
+
+            // well under the wait and the recheck interval, the publish has to wake the reader
+            final Response<GetMessageResponse> message = parked.get(5, TimeUnit.SECONDS);
+
+            assertThat(message.isSuccess()).isTrue();
+            assertThat(message.body().getMessage()).isEqualTo("hi");
+        }
+        finally {
+            longPollConfig.setRecheckIntervalMillis(recheckIntervalMillis);
+        }
+    }
+
+    @Test
+    public void stream_holds_back_messages_past_max_in_flight_until_acked() throws Exception {
+        final QueueName queueName = QueueName.valueOf("stream_holds_back_messages_past_max_in_flight_until_acked");
+
+        final CassieqApi client = apiClient();
+
+        client.createQueue(testAccountName, new QueueCreateOptions(queueName)).execute();
+
+        client.addMessages(testAccountName, queueName, Arrays.asList("1", "2", "3")).execute();
+
+        getTestClock().tick();
+
+        final ResponseBody stream = client.streamMessages(testAccountName, queueName, 30L, 2).execute().body();
+
+        final BufferedReader lines = new BufferedReader(new InputStreamReader(stream.byteStream(), StandardCharsets.UTF_8));
+
+        try {
+            final GetMessageResponse first = nextStreamed(lines).get(5, TimeUnit.SECONDS);
+            final GetMessageResponse second = nextStreamed(lines).get(5, TimeUnit.SECONDS);
+
+            final CompletableFuture<GetMessageResponse> third = nextStreamed(lines);
+
+            Thread.sleep(500);
+
+            assertThat(third.isDone()).isFalse();
+
+            client.ackMessage(testAccountName, queueName, first.getPopReceipt()).execute();
+
+            assertThat(Arrays.asList(first.getMessage(), second.getMessage(), third.get(5, TimeUnit.SECONDS).getMessage()))
+                    .containsOnly("1", "2", "3");
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void binary_messages_are_read_back_byte_for_byte() throws Exception {
+        final QueueName queueName = QueueName.valueOf("binary_messages_are_read_back_byte_for_byte");
+
+        final CassieqApi client = apiClient();
+
+        client.createQueue(testAccountName, new QueueCreateOptions(queueName)).execute();
+
+        // not valid utf-8, any text handling along the way would mangle it
+        final byte[] published = new byte[]{ 0, (byte) 0xff, (byte) 0xc3, 0x28, 1, 2, 3 };
+
+        final Response<ResponseBody> put =
+                client.addMessageBytes(testAccountName, queueName, RequestBody.create(MediaType.parse("application/octet-stream"), published))
+                      .execute();
+
+        assertThat(put.isSuccess()).isTrue();
+
+        getTestClock().tick();
+
+        final Response<ResponseBody> message = client.getMessageBytes(testAccountName, queueName, 30L).execute();
+
+        assertThat(message.isSuccess()).isTrue();
+        assertThat(message.body().bytes()).isEqualTo(published);
+
+        final String popReceipt = message.headers().get(MessageHeaders.POP_RECEIPT);
+
+        assertThat(popReceipt).isNotNull();
+
+        assertThat(client.ackMessage(testAccountName, queueName, popReceipt).execute().isSuccess()).isTrue();
+    }
+
+    private CompletableFuture<GetMessageResponse> nextStreamed(BufferedReader lines) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                String line;
+
+                // blank lines are heartbeats
+                while ((line = lines.readLine()) != null && line.isEmpty()) {
+                }
+
+                return Mappers.getJson().readValue(line, GetMessageResponse.class);
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void test_client_can_put_get_and_ack_many() throws Exception {
+        final QueueName queueName = QueueName.valueOf("test_client_can_put_get_and_ack_many");
+
+        apiClient().createQueue(testAccountName, new QueueCreateOptions(queueName)).execute();
+
+        apiClient().addMessages(testAccountName, queueName, Arrays.asList("1", "2", "3")).execute();
+
+        getTestClock().tick();
+
+        final Response<List<GetMessageResponse>> messages = apiClient().getMessages(testAccountName, queueName, 30L, 10).execute();
+
+        assertThat(messages.body()).hasSize(3);
+
+        final List<String> popReceipts = messages.body().stream().map(GetMessageResponse::getPopReceipt).collect(toList());
+
+        final Response<AckMessagesResponse> ackResponse = apiClient().ackMessages(testAccountName, queueName, popReceipts).execute();
+
+        assertThat(ackResponse.body().getAckedCount()).isEqualTo(3);
+        assertThat(ackResponse.body().getFailedPopReceipts()).isEmpty();
+        assertThat(ackResponse.body().getErroredPopReceipts()).isEmpty();
+
+        // acking again is stale
+        final Response<AckMessagesResponse> staleAckResponse = apiClient().ackMessages(testAccountName, queueName, popReceipts).execute();
+
+        assertThat(staleAckResponse.body().getAckedCount()).isEqualTo(0);
+        assertThat(staleAckResponse.body().getFailedPopReceipts()).containsExactlyElementsOf(popReceipts);
+        assertThat(staleAckResponse.body().getErroredPopReceipts()).isEmpty();
+    }
+
     @Test
     public void demo_invis_client() throws Exception {
         final QueueName queueName = QueueName.valueOf("demo_invis_client");
@@ -1,12 +1,15 @@
 package io.paradoxical.cassieq.unittests.tests.faultTolerance;
 
 import categories.BuildVerification;
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Session;
 import com.godaddy.logging.Logger;
 import com.google.inject.Injector;
 import io.paradoxical.cassieq.ServiceConfiguration;
+import io.paradoxical.cassieq.configurations.RepairConfig;
 import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
 import io.paradoxical.cassieq.dataAccess.interfaces.AccountRepository;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
 import io.paradoxical.cassieq.dataAccess.interfaces.QueueRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.factories.QueueDataContext;
@@ -35,8 +38,12 @@ import lombok.Cleanup;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
 
 import static com.godaddy.logging.LoggerFactory.getLogger;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -152,6 +159,49 @@ public class RepairTests extends DbTestBase {
         repairWorker.stop();
     }
 
+    @Test
+    public void repairer_republishes_with_the_body_on_split_body_queues() throws Exception {
+        final Injector defaultInjector = getDefaultInjector();
+
+        final QueueDefinition queueDefinition = createQueue(QueueDefinition.builder()
+                                                                           .accountName(testAccountName)
+                                                                           .queueName(QueueName.valueOf("repairer_republishes_with_the_body_on_split_body_queues"))
+                                                                           .bucketSize(BucketSize.valueOf(1))
+                                                                           .repairWorkerPollFrequencySeconds(1)
+                                                                           .repairWorkerTombstonedBucketTimeoutSeconds(3)
+                                                                           .deleteBucketsAfterFinalization(false)
+                                                                           .splitMessageBody(true)
+                                                                           .build());
+
+        final QueueDataContext dataContext = defaultInjector.getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        final RepairWorkerImpl repairWorker = (RepairWorkerImpl) defaultInjector.getInstance(RepairWorkerFactory.class).forQueue(queueDefinition);
+
+        repairWorker.start();
+
+        final Message message = Message.builder()
+                                       .blob("kept apart")
+                                       .index(dataContext.getMonotonicRepository().nextMonotonic())
+                                       .tag(MessageTag.random())
+                                       .build();
+
+        dataContext.getMessageRepository().putMessage(message);
+
+        getTestClock().tick();
+
+        dataContext.getMessageRepository().tombstone(ReaderBucketPointer.valueOf(0));
+
+        getTestClock().tickSeconds(5L);
+
+        repairWorker.waitForNextRun();
+
+        assertThat(dataContext.getMessageRepository().getMessage(message.getIndex()).isAcked()).isTrue();
+
+        assertThat(dataContext.getMessageRepository().getMessage(MonotonicIndex.valueOf(1)).getBlob()).isEqualTo("kept apart");
+
+        repairWorker.stop();
+    }
+
     @Test
     public void repairer_moves_off_ghost_messages() throws InterruptedException, ExistingMonotonFoundException {
 
@@ -220,6 +270,134 @@ public class RepairTests extends DbTestBase {
         repairWorker.stop();
     }
 
+    @Test
+    public void repairer_finalizes_a_backlog_of_expired_buckets_in_one_run() throws Exception {
+        final Injector defaultInjector = getConfiguredInjector(configuration -> configuration.getRepairConf().setBacklogThresholdBuckets(2));
+
+        final RepairWorkerFactory repairWorkerFactory = defaultInjector.getInstance(RepairWorkerFactory.class);
+
+        final QueueDefinition queueDefinition = createQueue(QueueDefinition.builder()
+                                                                           .accountName(testAccountName)
+                                                                           .queueName(QueueName.valueOf("repairer_finalizes_a_backlog_of_expired_buckets_in_one_run"))
+                                                                           .bucketSize(BucketSize.valueOf(1))
+                                                                           .repairWorkerPollFrequencySeconds(1)
+                                                                           .repairWorkerTombstonedBucketTimeoutSeconds(3)
+                                                                           // dont delete since we need to query after
+                                                                           .deleteBucketsAfterFinalization(false)
+                                                                           .build());
+
+        final QueueDataContext dataContext = defaultInjector.getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        final MessageRepository messageRepository = dataContext.getMessageRepository();
+
+        final RepairWorkerImpl repairWorker = (RepairWorkerImpl) repairWorkerFactory.forQueue(queueDefinition);
+
+        repairWorker.start();
+
+        for (int i = 0; i < 4; i++) {
+            messageRepository.putMessage(Message.builder()
+                                                .blob("message " + i)
+                                                .index(dataContext.getMonotonicRepository().nextMonotonic())
+                                                .tag(MessageTag.random())
+                                                .build());
+        }
+
+        // the first and third were handled, the second was skipped by a reader and never delivered
+        assertThat(messageRepository.ackMessage(messageRepository.getMessage(MonotonicIndex.valueOf(0)))).isTrue();
+        assertThat(messageRepository.ackMessage(messageRepository.getMessage(MonotonicIndex.valueOf(2)))).isTrue();
+
+        dataContext.getPointerRepository().advanceMessageBucketPointer(ReaderBucketPointer.valueOf(0), ReaderBucketPointer.valueOf(3));
+
+        // the first bucket goes last so the worker doesn't pick up part of the run
+        for (int bucket = 2; bucket >= 0; bucket--) {
+            messageRepository.tombstone(ReaderBucketPointer.valueOf(bucket));
+        }
+
+        getTestClock().tickSeconds(5L);
+
+        repairWorker.waitForNextRun();
+
+        assertThat(dataContext.getPointerRepository().getRepairCurrentBucketPointer().get()).isEqualTo(3);
+
+        IntStream.range(0, 3)
+                 .forEach(bucket -> assertThat(messageRepository.finalizedExists(RepairBucketPointer.valueOf(bucket))).isTrue());
+
+        assertThat(messageRepository.getMessage(MonotonicIndex.valueOf(1)).isAcked()).isTrue();
+
+        assertThat(messageRepository.getMessage(MonotonicIndex.valueOf(4)).getBlob()).isEqualTo("message 1");
+
+        repairWorker.stop();
+    }
+
+    @Test
+    public void repairer_waiting_on_a_timeout_does_not_hold_up_other_queues() throws Exception {
+        final Injector defaultInjector = getDefaultInjector(new ServiceConfiguration());
+
+        // a single thread for both workers, a worker sleeping through its timeout would starve the other one
+        final ScheduledExecutorService repairPool = Executors.newSingleThreadScheduledExecutor();
+
+        final QueueDefinition waitingQueue = createQueue(QueueDefinition.builder()
+                                                                        .accountName(testAccountName)
+                                                                        .queueName(QueueName.valueOf("repairer_waiting_on_a_timeout"))
+                                                                        .bucketSize(BucketSize.valueOf(1))
+                                                                        .repairWorkerPollFrequencySeconds(1)
+                                                                        .repairWorkerTombstonedBucketTimeoutSeconds(600)
+                                                                        .build());
+
+        final QueueDefinition readyQueue = createQueue(QueueDefinition.builder()
+                                                                      .accountName(testAccountName)
+                                                                      .queueName(QueueName.valueOf("repairer_does_not_hold_up_other_queues"))
+                                                                      .bucketSize(BucketSize.valueOf(1))
+                                                                      .repairWorkerPollFrequencySeconds(1)
+                                                                      .repairWorkerTombstonedBucketTimeoutSeconds(3)
+                                                                      .deleteBucketsAfterFinalization(false)
+                                                                      .build());
+
+        final RepairWorkerImpl waitingWorker = newRepairWorker(defaultInjector, repairPool, waitingQueue);
+        final RepairWorkerImpl readyWorker = newRepairWorker(defaultInjector, repairPool, readyQueue);
+
+        waitingWorker.start();
+        readyWorker.start();
+
+        final DataContextFactory contextFactory = defaultInjector.getInstance(DataContextFactory.class);
+
+        for (final QueueDefinition queueDefinition : Arrays.asList(waitingQueue, readyQueue)) {
+            final QueueDataContext dataContext = contextFactory.forQueue(queueDefinition);
+
+            dataContext.getMessageRepository().putMessage(Message.builder()
+                                                                 .blob("BOO!")
+                                                                 .index(dataContext.getMonotonicRepository().nextMonotonic())
+                                                                 .tag(MessageTag.random())
+                                                                 .build());
+
+            dataContext.getMessageRepository().tombstone(ReaderBucketPointer.valueOf(0));
+        }
+
+        getTestClock().tickSeconds(5L);
+
+        readyWorker.waitForNextRun();
+
+        final QueueDataContext readyContext = contextFactory.forQueue(readyQueue);
+
+        assertThat(readyContext.getMessageRepository().getMessage(MonotonicIndex.valueOf(0)).isAcked()).isTrue();
+
+        assertThat(contextFactory.forQueue(waitingQueue).getPointerRepository().getRepairCurrentBucketPointer().get()).isEqualTo(0);
+
+        waitingWorker.stop();
+        readyWorker.stop();
+
+        repairPool.shutdownNow();
+    }
+
+    private RepairWorkerImpl newRepairWorker(final Injector injector, final ScheduledExecutorService repairPool, final QueueDefinition queueDefinition) {
+        return new RepairWorkerImpl(injector.getInstance(DataContextFactory.class),
+                                    getTestClock(),
+                                    repairPool,
+                                    injector.getInstance(MetricRegistry.class),
+                                    injector.getInstance(RepairConfig.class),
+                                    queueDefinition);
+    }
+
     @Test
     public void repair_manager_adds_new_workers() throws Exception {
         final Injector defaultInjector = getDefaultInjector(new ServiceConfiguration(), CqlDb.createFresh());
@@ -2,20 +2,34 @@ package io.paradoxical.cassieq.unittests.tests.queueSemantics;
 
 import categories.BuildVerification;
 import com.google.inject.Injector;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
+import io.paradoxical.cassieq.dataAccess.interfaces.MonotonicRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
+import io.paradoxical.cassieq.factories.QueueDataContext;
+import io.paradoxical.cassieq.model.BucketSize;
 import io.paradoxical.cassieq.model.InvisibilityMessagePointer;
 import io.paradoxical.cassieq.model.Message;
 import io.paradoxical.cassieq.model.MessageUpdateRequest;
+import io.paradoxical.cassieq.model.MonotonLease;
+import io.paradoxical.cassieq.model.PopReceipt;
+import io.paradoxical.cassieq.model.QueueDefinition;
+import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.ReaderBucketPointer;
 import io.paradoxical.cassieq.unittests.DbTestBase;
 import io.paradoxical.cassieq.unittests.TestQueueContext;
 import io.paradoxical.cassieq.unittests.time.TestClock;
+import io.paradoxical.cassieq.workers.DelayedMessageMover;
+import io.paradoxical.cassieq.workers.MessagePublisher;
 import org.joda.time.Duration;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @Category(BuildVerification.class)
@@ -431,4 +445,277 @@ public class ReaderTester extends DbTestBase {
 
         assertThat(testContext.readAndAckMessage("bar", 100L)).isTrue();
     }
+
+    @Test
+    public void reader_does_not_close_leased_bucket() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("reader_does_not_close_leased_bucket"))
+                                                               .strictFifo(true)
+                                                               .bucketSize(BucketSize.valueOf(5))
+                                                               .build();
+
+        // lease records are only looked at when leasing is turned on
+        final TestQueueContext testContext = setupTestContext(queueDefinition, configuration -> configuration.getPublishConfig().setMonotonLeasingEnabled(true));
+
+        final MonotonicRepository monotonicRepository = testContext.getContext().getMonotonicRepository();
+
+        // another node leases the first two buckets but only publishes one message
+        final MonotonLease lease = monotonicRepository.leaseMonotonics(10, Duration.standardMinutes(1));
+
+        testContext.getContext().getMessageRepository().putMessage(
+                Message.builder()
+                       .blob("leased")
+                       .index(lease.getStart())
+                       .build(), Duration.ZERO);
+
+        testContext.putMessage("after lease");
+
+        testContext.readAndAckMessage("leased");
+
+        // monoton is past the bucket but the lease holder may still write into it
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        monotonicRepository.releaseLease(lease);
+
+        testContext.readAndAckMessage("after lease");
+    }
+
+    @Test
+    public void empty_reads_are_remembered_until_something_arrives() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("empty_reads_are_remembered_until_something_arrives"))
+                                                               .bucketSize(BucketSize.valueOf(5))
+                                                               .build();
+
+        // keep the bucket snapshot out of the way so only the empty queue cache decides what gets read
+        final TestQueueContext testContext = setupTestContext(queueDefinition, configuration -> configuration.getBucketSnapshotConfig().setEnabled(false));
+
+        final QueueDataContext otherNode = getDefaultInjector().getInstance(DataContextFactory.class).forQueue(testContext.getQueueDefinition());
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        // another node writes without announcing it, this node keeps answering empty for a bit
+        otherNode.getMessageRepository().putMessage(Message.builder()
+                                                           .blob("quiet")
+                                                           .index(otherNode.getMonotonicRepository().nextMonotonic())
+                                                           .build());
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        getTestClock().tickSeconds(2L);
+
+        testContext.readAndAckMessage("quiet");
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        // a publish on this node is seen right away
+        testContext.putMessage("loud");
+
+        testContext.readAndAckMessage("loud");
+    }
+
+    @Test
+    public void next_messages_claims_across_buckets() throws Exception {
+        final TestQueueContext testContext = setupTestContext("next_messages_claims_across_buckets", 3);
+
+        for (int i = 0; i < 7; i++) {
+            testContext.putMessage(String.valueOf(i));
+        }
+
+        final List<Message> firstBatch = testContext.getReader().nextMessages(Duration.standardSeconds(10), 5);
+
+        assertThat(firstBatch.stream().map(Message::getBlob).collect(toList())).containsExactly("0", "1", "2", "3", "4");
+
+        // only two left, asking for more returns what is there
+        final List<Message> secondBatch = testContext.getReader().nextMessages(Duration.standardSeconds(10), 5);
+
+        assertThat(secondBatch.stream().map(Message::getBlob).collect(toList())).containsExactly("5", "6");
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        firstBatch.forEach(message -> assertThat(testContext.getReader().ackMessage(message.getPopReceipt())).isTrue());
+    }
+
+    @Test
+    public void sharded_queues_spread_messages_and_hand_every_one_out() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("sharded_queues_spread_messages_and_hand_every_one_out"))
+                                                               .bucketSize(BucketSize.valueOf(5))
+                                                               .shardCount(4)
+                                                               .build();
+
+        final TestQueueContext testContext = setupTestContext(queueDefinition);
+
+        final MessagePublisher publisher = testContext.getInjector().getInstance(MessagePublisher.class);
+
+        final List<String> published = IntStream.range(0, 40).mapToObj(String::valueOf).collect(toList());
+
+        for (final String message : published) {
+            publisher.put(testContext.getQueueDefinition(), message, 0L);
+        }
+
+        final List<Message> read = testContext.getReader().nextMessages(Duration.standardSeconds(10), published.size());
+
+        assertThat(read.stream().map(Message::getBlob).collect(toList())).containsOnly(published.toArray(new String[0]));
+        assertThat(read).hasSize(published.size());
+
+        // 40 messages landing on a single shard of 4 would be a real surprise
+        assertThat(read.stream().map(Message::getShard).distinct().count()).isGreaterThan(1);
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        // the shard travels in the pop receipt, so acks reach the right physical queue
+        read.forEach(message -> assertThat(testContext.getReader().ackMessage(PopReceipt.valueOf(message.getPopReceipt().toString()))).isTrue());
+    }
+
+    @Test
+    public void priority_lanes_are_favored_without_starving_the_rest() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("priority_lanes_are_favored_without_starving_the_rest"))
+                                                               .bucketSize(BucketSize.valueOf(10))
+                                                               .priorityLanes(4)
+                                                               .build();
+
+        final TestQueueContext testContext = setupTestContext(queueDefinition);
+
+        final MessagePublisher publisher = testContext.getInjector().getInstance(MessagePublisher.class);
+
+        for (int i = 0; i < 30; i++) {
+            publisher.put(testContext.getQueueDefinition().forPriority(0), "low", 0L);
+
+            // past the top lane, so it lands in it
+            publisher.put(testContext.getQueueDefinition().forPriority(10), "high", 0L);
+        }
+
+        final List<Message> read = IntStream.range(0, 30)
+                                            .mapToObj(i -> testContext.readNextMessage(10).get())
+                                            .collect(toList());
+
+        // the low lane is only read first when picked outright, about one read in fifteen
+        assertThat(read.stream().filter(message -> message.getBlob().equals("high")).count()).isGreaterThan(20);
+
+        final List<Message> rest = testContext.getReader().nextMessages(Duration.standardSeconds(10), 60);
+
+        assertThat(read.size() + rest.size()).isEqualTo(60);
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        read.forEach(message -> assertThat(testContext.getReader().ackMessage(PopReceipt.valueOf(message.getPopReceipt().toString()))).isTrue());
+        rest.forEach(message -> assertThat(testContext.getReader().ackMessage(message.getPopReceipt())).isTrue());
+    }
+
+    @Test
+    public void long_delays_are_parked_until_they_come_due() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("long_delays_are_parked_until_they_come_due"))
+                                                               .bucketSize(BucketSize.valueOf(5))
+                                                               .build();
+
+        final TestQueueContext testContext = setupTestContext(queueDefinition, configuration -> configuration.getDelayedDeliveryConfig().setEnabled(true));
+
+        final MessagePublisher publisher = testContext.getInjector().getInstance(MessagePublisher.class);
+
+        final DelayedMessageMover mover = testContext.getInjector().getInstance(DelayedMessageMover.class);
+
+        publisher.put(testContext.getQueueDefinition(), "later", 3600L);
+
+        publisher.put(testContext.getQueueDefinition(), "now", 0L);
+
+        // the delayed message never took an index, so nothing in the live buckets waits on it
+        assertThat(testContext.getContext().getMonotonicRepository().getCurrent().get()).isEqualTo(1);
+
+        testContext.readAndAckMessage("now");
+
+        mover.moveDueMessages();
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        getTestClock().tickSeconds(3600L);
+
+        mover.moveDueMessages();
+
+        testContext.readAndAckMessage("later");
+
+        // the slot was cleared once moved, so it isn't published twice
+        mover.moveDueMessages();
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+    }
+
+    @Test
+    public void visibility_index_finds_revived_messages_behind_long_invisible_ones() throws Exception {
+        final QueueDefinition queueDefinition = QueueDefinition.builder()
+                                                               .accountName(testAccountName)
+                                                               .queueName(QueueName.valueOf("visibility_index_finds_revived_messages_behind_long_invisible_ones"))
+                                                               .bucketSize(BucketSize.valueOf(3))
+                                                               .strictFifo(true)
+                                                               .build();
+
+        final TestQueueContext testContext = setupTestContext(queueDefinition, configuration -> configuration.getVisibilityIndexConfig().setEnabled(true));
+
+        testContext.putMessage(0, "blocker");
+        testContext.putMessage(0, "shorter");
+        testContext.putMessage(0, "ok");
+        testContext.putMessage(30, "initially hidden");
+
+        final TestClock testClock = getTestClock();
+
+        assertThat(testContext.getReader().nextMessage(Duration.standardHours(1)).get().getBlob()).isEqualTo("blocker");
+
+        assertThat(testContext.getReader().nextMessage(Duration.standardSeconds(5)).get().getBlob()).isEqualTo("shorter");
+
+        testContext.readAndAckMessage("ok", 10L);
+
+        testClock.tickSeconds(10L);
+
+        // the blocker is hidden for an hour ahead of it, but the index doesn't have to get past it
+        testContext.readAndAckMessage("shorter", 10L);
+
+        testClock.tickSeconds(30L);
+
+        testContext.readAndAckMessage("initially hidden", 10L);
+
+        assertThat(testContext.readNextMessage(10)).isEmpty();
+
+        testClock.tickSeconds(3600L);
+
+        testContext.readAndAckMessage("blocker", 10L);
+    }
+
+    @Test
+    public void reader_catches_up_past_buckets_acked_behind_it() throws Exception {
+        final TestQueueContext testContext = setupTestContext("reader_catches_up_past_buckets_acked_behind_it", 3);
+
+        for (int i = 0; i < 9; i++) {
+            testContext.putMessage("burst " + i);
+        }
+
+        testContext.putMessage("after the burst");
+
+        final MessageRepository messageRepository = testContext.getContext().getMessageRepository();
+
+        // the burst was handled somewhere else while this reader was away, another reader already
+        // moved past bucket 1 and left its last message to the repair worker
+        IntStream.range(0, 3)
+                 .mapToObj(ReaderBucketPointer::valueOf)
+                 .flatMap(bucket -> messageRepository.getMessages(bucket).stream())
+                 .filter(message -> !message.getBlob().equals("burst 5"))
+                 .forEach(message -> assertThat(messageRepository.ackMessage(message)).isTrue());
+
+        assertThat(messageRepository.tombstone(ReaderBucketPointer.valueOf(1))).isTrue();
+
+        // going bucket by bucket would hand out burst 5, skipping straight to the summaries never reads bucket 1
+        testContext.readAndAckMessage("after the burst");
+
+        assertThat(testContext.getContext().getPointerRepository().getReaderCurrentBucket().get()).isEqualTo(3);
+
+        IntStream.range(0, 3)
+                 .mapToObj(ReaderBucketPointer::valueOf)
+                 .forEach(bucket -> assertThat(messageRepository.tombstoneExists(bucket).isPresent()).isTrue());
+    }
 }
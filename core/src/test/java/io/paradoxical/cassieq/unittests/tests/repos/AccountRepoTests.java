@@ -71,4 +71,31 @@ public class AccountRepoTests extends DbTestBase {
 
         assertThat(repo.getAccount(account).get().getKeys()).doesNotContainKeys(WellKnownKeyNames.Primary.getKeyName());
     }
+
+    @Test
+    public void cached_keys_follow_account_updates() {
+        final AccountRepository repo = getDefaultInjector().getInstance(AccountRepository.class);
+
+        final AccountName account = AccountName.valueOf("cached_keys_follow_account_updates");
+
+        final AccountDefinition accountDefinition = repo.createAccount(account).get();
+
+        final AccountKey primaryKey = accountDefinition.getKeys().get(WellKnownKeyNames.Primary.getKeyName());
+
+        assertThat(repo.getAccountKeysCached(account).get()).contains(primaryKey);
+
+        final HashMap<KeyName, AccountKey> keys = new HashMap<>(accountDefinition.getKeys());
+
+        keys.remove(WellKnownKeyNames.Primary.getKeyName());
+
+        accountDefinition.setKeys(ImmutableMap.copyOf(keys));
+
+        repo.updateAccount(accountDefinition);
+
+        assertThat(repo.getAccountKeysCached(account).get()).doesNotContain(primaryKey);
+
+        repo.deleteAccount(account);
+
+        assertThat(repo.getAccountKeysCached(account)).isEmpty();
+    }
 }
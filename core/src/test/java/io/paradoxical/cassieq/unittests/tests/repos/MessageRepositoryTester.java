@@ -1,29 +1,45 @@
 package io.paradoxical.cassieq.unittests.tests.repos;
 
 import categories.BuildVerification;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.inject.Injector;
 import io.paradoxical.cassieq.dataAccess.DeletionJob;
+import io.paradoxical.cassieq.dataAccess.MessageCodec;
+import io.paradoxical.cassieq.dataAccess.Tables;
+import io.paradoxical.cassieq.dataAccess.exceptions.ExistingMonotonFoundException;
+import io.paradoxical.cassieq.dataAccess.exceptions.PartialPublishException;
 import io.paradoxical.cassieq.dataAccess.interfaces.MessageDeleterJobProcessor;
+import io.paradoxical.cassieq.dataAccess.interfaces.MessageRepository;
 import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.factories.MessageDeleterJobProcessorFactory;
 import io.paradoxical.cassieq.factories.QueueDataContext;
 import io.paradoxical.cassieq.model.BucketSize;
+import io.paradoxical.cassieq.model.BucketSummary;
 import io.paradoxical.cassieq.model.Message;
+import io.paradoxical.cassieq.model.MessageUpdateRequest;
 import io.paradoxical.cassieq.model.MonotonicIndex;
 import io.paradoxical.cassieq.model.QueueDefinition;
 import io.paradoxical.cassieq.model.QueueName;
+import io.paradoxical.cassieq.model.ReaderBucketPointer;
 import io.paradoxical.cassieq.model.RepairBucketPointer;
 import io.paradoxical.cassieq.unittests.DbTestBase;
 import io.paradoxical.cassieq.unittests.TestQueueContext;
+import io.paradoxical.cassieq.workers.MessagePublisher;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @Category(BuildVerification.class)
 public class MessageRepositoryTester extends DbTestBase {
@@ -52,6 +68,56 @@ public class MessageRepositoryTester extends DbTestBase {
         assertThat(messages.size()).isEqualTo(1);
     }
 
+    @Test
+    public void put_messages_reserves_contiguous_range_across_buckets() throws Exception {
+        final Injector defaultInjector = getDefaultInjector();
+
+        final QueueName queueName = QueueName.valueOf("put_messages_reserves_contiguous_range_across_buckets");
+
+        final QueueDefinition queueDefinition = setupQueue(queueName, 5);
+
+        final List<String> blobs = IntStream.range(0, 12).mapToObj(String::valueOf).collect(toList());
+
+        defaultInjector.getInstance(MessagePublisher.class).put(queueDefinition, blobs, 0L);
+
+        final QueueDataContext context = defaultInjector.getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        assertThat(context.getMonotonicRepository().getCurrent().get()).isEqualTo(12);
+
+        assertThat(context.getMessageRepository().getMessages(ReaderBucketPointer.valueOf(0)).size()).isEqualTo(5);
+        assertThat(context.getMessageRepository().getMessages(ReaderBucketPointer.valueOf(1)).size()).isEqualTo(5);
+        assertThat(context.getMessageRepository().getMessages(ReaderBucketPointer.valueOf(2)).size()).isEqualTo(2);
+
+        assertThat(context.getMessageRepository().getMessage(MonotonicIndex.valueOf(7)).getBlob()).isEqualTo("7");
+    }
+
+    @Test
+    public void put_messages_reports_how_much_of_a_failed_batch_was_published() throws Exception {
+        // every single character body gets a batch of its own
+        final Injector injector = getConfiguredInjector(configuration -> configuration.getPublishConfig().setMaxBatchBytes(1));
+
+        final QueueName queueName = QueueName.valueOf("put_messages_reports_how_much_of_a_failed_batch_was_published");
+
+        final QueueDefinition queueDefinition = setupQueue(queueName, 5, injector);
+
+        final MessageRepository messageRepository = injector.getInstance(DataContextFactory.class).forQueue(queueDefinition).getMessageRepository();
+
+        messageRepository.putMessage(Message.builder().blob("x").index(MonotonicIndex.valueOf(7)).build());
+
+        final List<Message> messages = IntStream.range(0, 10)
+                                                .mapToObj(i -> Message.builder().blob(String.valueOf(i)).index(MonotonicIndex.valueOf(i)).build())
+                                                .collect(toList());
+
+        final Throwable failure = catchThrowable(() -> messageRepository.putMessages(messages, Duration.ZERO));
+
+        assertThat(failure).isInstanceOf(PartialPublishException.class);
+        assertThat(((PartialPublishException) failure).getPublishedCount()).isEqualTo(7);
+
+        assertThat(messageRepository.getMessages(ReaderBucketPointer.valueOf(0)).size()).isEqualTo(5);
+        assertThat(messageRepository.getMessages(ReaderBucketPointer.valueOf(1)).stream().map(Message::getBlob).collect(toList()))
+                .containsExactly("5", "6", "x");
+    }
+
     @Test
     public void dead_letter_messages_should_not_reappear() throws Exception {
         final QueueName queueName = QueueName.valueOf("dead_letter_messages_should_not_reappear");
@@ -107,6 +173,133 @@ public class MessageRepositoryTester extends DbTestBase {
         }
     }
 
+    @Test
+    public void split_message_bodies_are_only_read_for_claimed_messages() throws Exception {
+        final QueueName queueName = QueueName.valueOf("split_message_bodies_are_only_read_for_claimed_messages");
+
+        final TestQueueContext context = setupTestContext(QueueDefinition.builder()
+                                                                         .accountName(testAccountName)
+                                                                         .queueName(queueName)
+                                                                         .splitMessageBody(true)
+                                                                         .build());
+
+        assertThat(context.getQueueDefinition().isSplitMessageBody()).isTrue();
+
+        context.putMessage("1");
+
+        context.getInjector().getInstance(MessagePublisher.class).put(context.getQueueDefinition(), Arrays.asList("2", "3"), 0L);
+
+        final MessageRepository messageRepository = context.getContext().getMessageRepository();
+
+        final List<Message> scanned = messageRepository.getMessages(ReaderBucketPointer.valueOf(0));
+
+        assertThat(scanned).hasSize(3);
+        assertThat(scanned.stream().allMatch(message -> message.getBlob() == null)).isTrue();
+
+        assertThat(messageRepository.withBody(scanned.get(2)).getBlob()).isEqualTo("3");
+
+        final Message claimed = context.readNextMessage(10).get();
+
+        assertThat(claimed.getBlob()).isEqualTo("1");
+
+        final Optional<Message> updated = messageRepository.updateMessage(new MessageUpdateRequest(Duration.standardSeconds(10),
+                                                                                                   claimed.getTag(),
+                                                                                                   claimed.getVersion(),
+                                                                                                   claimed.getIndex(),
+                                                                                                   "updated"));
+
+        assertThat(updated).isPresent();
+
+        // the new body is written under a body version of its own before the message is switched over to it,
+        // the message itself keeps its tag
+        assertThat(updated.get().getTag()).isEqualTo(claimed.getTag());
+        assertThat(updated.get().getBodyVersion()).isNotNull();
+        assertThat(updated.get().getBlob()).isEqualTo("updated");
+
+        assertThat(messageRepository.withBody(claimed.toBuilder().blob(null).data(null).build()).getBlob()).isNull();
+
+        final Optional<Message> updatedAgain = messageRepository.updateMessage(new MessageUpdateRequest(Duration.standardSeconds(10),
+                                                                                                        updated.get().getTag(),
+                                                                                                        updated.get().getVersion(),
+                                                                                                        updated.get().getIndex(),
+                                                                                                        "updated again"));
+
+        assertThat(updatedAgain.get().getTag()).isEqualTo(claimed.getTag());
+        assertThat(updatedAgain.get().getBodyVersion()).isNotEqualTo(updated.get().getBodyVersion());
+
+        assertThat(messageRepository.withBody(updated.get().toBuilder().blob(null).data(null).build()).getBlob()).isNull();
+
+        assertThat(messageRepository.getMessage(claimed.getIndex()).getBlob()).isEqualTo("updated again");
+
+        // a publish that loses the conditional insert takes the body it wrote first with it
+        final Throwable conflict = catchThrowable(() -> messageRepository.putMessage(Message.builder().blob("late").index(claimed.getIndex()).build()));
+
+        assertThat(conflict).isInstanceOf(ExistingMonotonFoundException.class);
+
+        assertThat(session.execute(QueryBuilder.select()
+                                               .all()
+                                               .from(Tables.MessageBody.TABLE_NAME)
+                                               .where(eq(Tables.MessageBody.QUEUE_ID, context.getQueueDefinition().getId().get()))
+                                               .and(eq(Tables.MessageBody.BUCKET_NUM, 0L))
+                                               .and(eq(Tables.MessageBody.MONOTON, claimed.getIndex().get())))
+                          .all()).hasSize(1);
+
+        context.readAndAckMessage("2");
+        context.readAndAckMessage("3");
+    }
+
+    @Test
+    public void compressed_messages_are_handed_out_as_published() throws Exception {
+        final String body = String.join(",", Collections.nCopies(100, "{\"compressible\": true}"));
+
+        for (final boolean splitMessageBody : Arrays.asList(false, true)) {
+            final QueueName queueName = QueueName.valueOf("compressed_messages_are_handed_out_as_published_" + splitMessageBody);
+
+            final TestQueueContext context = setupTestContext(QueueDefinition.builder()
+                                                                             .accountName(testAccountName)
+                                                                             .queueName(queueName)
+                                                                             .compressMessages(true)
+                                                                             .splitMessageBody(splitMessageBody)
+                                                                             .build());
+
+            context.putMessage(body);
+
+            final Message claimed = context.readNextMessage(10).get();
+
+            assertThat(claimed.getBlob()).isEqualTo(body);
+
+            context.getContext().getMessageRepository().updateMessage(new MessageUpdateRequest(Duration.ZERO,
+                                                                                               claimed.getTag(),
+                                                                                               claimed.getVersion(),
+                                                                                               claimed.getIndex(),
+                                                                                               "updated"));
+
+            context.readAndAckMessage("updated");
+        }
+    }
+
+    @Test
+    public void compressed_bodies_are_decoded_only_when_asked_for() throws Exception {
+        final String body = String.join(",", Collections.nCopies(100, "{\"compressible\": true}"));
+
+        final TestQueueContext context = setupTestContext(QueueDefinition.builder()
+                                                                         .accountName(testAccountName)
+                                                                         .queueName(QueueName.valueOf("compressed_bodies_are_decoded_only_when_asked_for"))
+                                                                         .compressMessages(true)
+                                                                         .build());
+
+        context.putMessage(body);
+
+        final Message scanned = context.getContext().getMessageRepository().getMessages(ReaderBucketPointer.valueOf(0)).get(0);
+
+        assertThat(scanned.getCodec()).isEqualTo(MessageCodec.Deflate);
+        assertThat(scanned.getEncodedBody()).isNotNull();
+        assertThat(scanned.hasBody()).isTrue();
+        assertThat(scanned.isBinary()).isFalse();
+
+        assertThat(scanned.getBlob()).isEqualTo(body);
+    }
+
     @Test
     public void ack_message_should_succeed() throws Exception {
         final Injector defaultInjector = getDefaultInjector();
@@ -139,6 +332,36 @@ public class MessageRepositoryTester extends DbTestBase {
         assertThat(ackedMessage.isAcked()).isTrue();
     }
 
+    @Test
+    public void async_put_and_ack_message_should_succeed() throws Exception {
+        final Injector defaultInjector = getDefaultInjector();
+
+        final DataContextFactory factory = defaultInjector.getInstance(DataContextFactory.class);
+        final QueueName queueName = QueueName.valueOf("async_put_and_ack_message_should_succeed");
+        final QueueDefinition queueDefinition = setupQueue(queueName);
+
+        final QueueDataContext context = factory.forQueue(queueDefinition);
+
+        final MonotonicIndex monoton = context.getMonotonicRepository().nextMonotonicAsync().get();
+
+        context.getMessageRepository().putMessageAsync(
+                Message.builder()
+                       .blob("hi")
+                       .index(monoton)
+                       .build(), Duration.ZERO).get();
+
+        final Message message = context.getMessageRepository().getMessageAsync(monoton).get().get();
+
+        assertThat(message.getBlob()).isEqualTo("hi");
+
+        assertThat(context.getMessageRepository().ackMessageAsync(message).get()).isTrue();
+
+        // version moved on, so a second ack is stale
+        assertThat(context.getMessageRepository().ackMessageAsync(message).get()).isFalse();
+
+        assertThat(context.getMessageRepository().getMessage(monoton).isAcked()).isTrue();
+    }
+
     @Test
     public void ack_message_after_version_changed_should_fail() throws Exception {
         final Injector defaultInjector = getDefaultInjector();
@@ -177,6 +400,48 @@ public class MessageRepositoryTester extends DbTestBase {
         assertThat(ackedMessage.isAcked()).isFalse();
     }
 
+    @Test
+    public void bucket_snapshot_applies_local_writes_and_refreshes_on_conflict() throws Exception {
+        final QueueName queueName = QueueName.valueOf("bucket_snapshot_applies_local_writes_and_refreshes_on_conflict");
+
+        // long enough that this node's snapshot can't expire during the test
+        final Injector injector = getConfiguredInjector(configuration -> configuration.getBucketSnapshotConfig().setTtlMillis(60000));
+
+        // a separate node has its own snapshot cache
+        final Injector otherNodeInjector = getConfiguredInjector(configuration -> configuration.getBucketSnapshotConfig().setTtlMillis(60000));
+
+        final QueueDefinition queueDefinition = setupQueue(queueName, 20, injector);
+
+        final QueueDataContext context = injector.getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        final QueueDataContext otherNodeContext = otherNodeInjector.getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        final MonotonicIndex monoton = context.getMonotonicRepository().nextMonotonic();
+
+        context.getMessageRepository().putMessage(Message.builder().blob("hi").index(monoton).build());
+
+        final ReaderBucketPointer bucket = monoton.toBucketPointer(queueDefinition.getBucketSize());
+
+        final Message message = context.getMessageRepository().getMessagesSnapshot(bucket).get(0);
+
+        final Message consumed = context.getMessageRepository().rawConsumeMessage(message, Duration.standardSeconds(30)).get();
+
+        final Message snapshotted = context.getMessageRepository().getMessagesSnapshot(bucket).get(0);
+
+        assertThat(snapshotted.getVersion()).isEqualTo(consumed.getVersion());
+        assertThat(snapshotted.getDeliveryCount()).isEqualTo(1);
+
+        // another node acks it, consuming off the old version has to fail and drop the snapshot
+        assertThat(otherNodeContext.getMessageRepository().ackMessage(otherNodeContext.getMessageRepository().getMessage(monoton))).isTrue();
+
+        // the ack never reached this node's snapshot
+        assertThat(context.getMessageRepository().getMessagesSnapshot(bucket).get(0).isAcked()).isFalse();
+
+        assertThat(context.getMessageRepository().rawConsumeMessage(snapshotted, Duration.standardSeconds(30)).isPresent()).isFalse();
+
+        assertThat(context.getMessageRepository().getMessagesSnapshot(bucket).get(0).isAcked()).isTrue();
+    }
+
     @Test
     public void an_added_tombstone_should_exist() throws Exception {
         final Injector defaultInjector = getDefaultInjector();
@@ -197,6 +462,45 @@ public class MessageRepositoryTester extends DbTestBase {
         assertThat(tombstoneExists.isPresent()).isTrue();
     }
 
+    @Test
+    public void bucket_summary_tracks_acks_and_tombstones() throws Exception {
+        final QueueName queueName = QueueName.valueOf("bucket_summary_tracks_acks_and_tombstones");
+
+        final QueueDefinition queueDefinition = setupQueue(queueName, 2);
+
+        final QueueDataContext context = getDefaultInjector().getInstance(DataContextFactory.class).forQueue(queueDefinition);
+
+        final MessageRepository messageRepository = context.getMessageRepository();
+
+        final List<MonotonicIndex> monotons = Arrays.asList(context.getMonotonicRepository().nextMonotonic(),
+                                                            context.getMonotonicRepository().nextMonotonic());
+
+        for (final MonotonicIndex monoton : monotons) {
+            messageRepository.putMessage(Message.builder().blob("hi").index(monoton).build());
+        }
+
+        final ReaderBucketPointer bucket = monotons.get(0).toBucketPointer(queueDefinition.getBucketSize());
+
+        assertThat(messageRepository.ackMessage(messageRepository.getMessage(monotons.get(0)))).isTrue();
+
+        assertThat(messageRepository.getBucketSummary(bucket).getAckedCount()).isEqualTo(1);
+        assertThat(messageRepository.getBucketSummary(bucket).isFullyAcked(queueDefinition.getBucketSize())).isFalse();
+
+        final Message second = messageRepository.getMessage(monotons.get(1));
+
+        assertThat(messageRepository.ackMessages(Collections.singletonList(second.getPopReceipt())).getAcked()).hasSize(1);
+
+        final BucketSummary summary = messageRepository.getBucketSummary(bucket);
+
+        assertThat(summary.isFullyAcked(queueDefinition.getBucketSize())).isTrue();
+        assertThat(summary.getTombstonedAt().isPresent()).isFalse();
+
+        messageRepository.tombstone(bucket);
+
+        assertThat(messageRepository.getBucketSummary(bucket).getTombstonedAt()).isEqualTo(messageRepository.tombstoneExists(bucket));
+        assertThat(messageRepository.getBucketSummary(bucket).getFinalizedAt().isPresent()).isFalse();
+    }
+
     @Test
     public void deleting_a_queue_deletes_all_messages() throws Exception {
         final Injector defaultInjector = getDefaultInjector();
@@ -1,9 +1,12 @@
 package io.paradoxical.cassieq.unittests.tests.repos;
 
 import categories.BuildVerification;
+import com.google.inject.Injector;
+import io.paradoxical.cassieq.dataAccess.QueueSizeAccumulator;
 import io.paradoxical.cassieq.dataAccess.exceptions.QueueAlreadyDeletingException;
 import io.paradoxical.cassieq.dataAccess.interfaces.QueueRepository;
 import io.paradoxical.cassieq.exceptions.QueueNotFoundException;
+import io.paradoxical.cassieq.factories.DataContextFactory;
 import io.paradoxical.cassieq.model.QueueDefinition;
 import io.paradoxical.cassieq.model.QueueName;
 import io.paradoxical.cassieq.model.QueueStatus;
@@ -66,6 +69,56 @@ public class QueueRepositoryTester extends DbTestBase {
         assertThat(queueSize.get()).isEqualTo(0);
     }
 
+    @Test
+    public void queue_size_changes_from_other_nodes_show_up_once_flushed() throws Exception {
+        final QueueName queueName = QueueName.valueOf("queue_size_changes_from_other_nodes_show_up_once_flushed");
+
+        // only flush when asked to
+        final Injector writingNode = getConfiguredInjector(configuration -> configuration.getQueueStatsConfig().setFlushIntervalMillis(Integer.MAX_VALUE));
+
+        final TestQueueContext testContext = new TestQueueContext(testAccountName, queueName, writingNode);
+
+        final QueueRepository otherNode = getDefaultInjector().getInstance(DataContextFactory.class).forAccount(testAccountName);
+
+        for (int i = 0; i < 5; i++) {
+            testContext.putMessage(Integer.valueOf(i).toString());
+        }
+
+        assertThat(otherNode.getQueueSize(testContext.getQueueDefinition())).isEmpty();
+
+        // the writing node sees its own changes
+        assertThat(testContext.getQueueRepository().getQueueSize(testContext.getQueueDefinition()).get()).isEqualTo(5);
+
+        testContext.readAndAckMessage("0");
+
+        writingNode.getInstance(QueueSizeAccumulator.class).flush();
+
+        assertThat(otherNode.getQueueSize(testContext.getQueueDefinition()).get()).isEqualTo(4);
+    }
+
+    @Test
+    public void pending_queue_size_changes_are_dropped_when_the_stats_are_deleted() throws Exception {
+        final QueueName queueName = QueueName.valueOf("pending_queue_size_changes_are_dropped_when_the_stats_are_deleted");
+
+        // only flush when asked to
+        final Injector writingNode = getConfiguredInjector(configuration -> configuration.getQueueStatsConfig().setFlushIntervalMillis(Integer.MAX_VALUE));
+
+        final TestQueueContext testContext = new TestQueueContext(testAccountName, queueName, writingNode);
+
+        testContext.putMessage("0");
+
+        testContext.getQueueRepository().deleteQueueStats(testContext.getQueueDefinition().getQueueStatsId());
+
+        testContext.putMessage("1");
+
+        writingNode.getInstance(QueueSizeAccumulator.class).flush();
+
+        final QueueRepository otherNode = getDefaultInjector().getInstance(DataContextFactory.class).forAccount(testAccountName);
+
+        // neither the change pending at the delete nor the one after it brings the counter back
+        assertThat(otherNode.getQueueSize(testContext.getQueueDefinition())).isEmpty();
+    }
+
     @Test
     public void cannot_create_same_queue_twice() throws Exception {
         final QueueName queueName = QueueName.valueOf("cannot_create_same_queue_twice");
@@ -114,6 +167,33 @@ public class QueueRepositoryTester extends DbTestBase {
         assertThat(queueRepository.tryAdvanceQueueStatus(queueDefinition.getQueueName(), QueueStatus.Active)).isFalse();
     }
 
+    @Test
+    public void cached_queue_is_dropped_on_delete_from_another_node() throws InterruptedException {
+        final QueueName queueName = QueueName.valueOf("cached_queue_is_dropped_on_delete_from_another_node");
+
+        final TestQueueContext testContext = createTestQueueContext(queueName);
+
+        final QueueRepository localRepository = testContext.getQueueRepository();
+
+        assertThat(localRepository.getActiveQueueCached(queueName)).isPresent();
+
+        // a separate injector has its own cache, like another node sharing the cluster
+        final QueueRepository remoteRepository = createTestQueueContext(queueName).getQueueRepository();
+
+        assertThat(remoteRepository.getActiveQueueCached(queueName)).isPresent();
+
+        localRepository.tryMarkForDeletion(testContext.getQueueDefinition());
+
+        assertThat(localRepository.getActiveQueueCached(queueName)).isEmpty();
+
+        // the remote copy is dropped when the event arrives
+        for (int i = 0; i < 50 && remoteRepository.getActiveQueueCached(queueName).isPresent(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(remoteRepository.getActiveQueueCached(queueName)).isEmpty();
+    }
+
     @Test
     public void can_create_new_queue_while_old_queue_is_deleting() {
 
@@ -0,0 +1,33 @@
+package io.paradoxical.cassieq.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class AckMessagesResponse {
+    int ackedCount;
+
+    /**
+     * Pop receipts that were stale and could not be acked
+     */
+    List<String> failedPopReceipts;
+
+    /**
+     * Pop receipts whose ack errored, it isn't known if they were acked and they can be sent again
+     */
+    List<String> erroredPopReceipts;
+
+    @JsonCreator
+    public AckMessagesResponse(
+            @JsonProperty("ackedCount") int ackedCount,
+            @JsonProperty("failedPopReceipts") List<String> failedPopReceipts,
+            @JsonProperty("erroredPopReceipts") List<String> erroredPopReceipts) {
+
+        this.ackedCount = ackedCount;
+        this.failedPopReceipts = failedPopReceipts;
+        this.erroredPopReceipts = erroredPopReceipts;
+    }
+}
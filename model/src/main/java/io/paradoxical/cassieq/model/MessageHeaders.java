@@ -0,0 +1,15 @@
+package io.paradoxical.cassieq.model;
+
+/**
+ * Headers carrying what the json response would otherwise hold when a message is read as raw bytes
+ */
+public final class MessageHeaders {
+    public static final String POP_RECEIPT = "X-Pop-Receipt";
+
+    public static final String DELIVERY_COUNT = "X-Delivery-Count";
+
+    public static final String MESSAGE_TAG = "X-Message-Tag";
+
+    private MessageHeaders() {
+    }
+}
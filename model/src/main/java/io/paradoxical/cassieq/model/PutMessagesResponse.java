@@ -0,0 +1,27 @@
+package io.paradoxical.cassieq.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+@Value
+public class PutMessagesResponse {
+    /**
+     * Messages are written in the order they were sent, these are the first publishedCount of them
+     */
+    int publishedCount;
+
+    /**
+     * The rest of the batch, which was not published and can be sent again
+     */
+    int unpublishedCount;
+
+    @JsonCreator
+    public PutMessagesResponse(
+            @JsonProperty("publishedCount") int publishedCount,
+            @JsonProperty("unpublishedCount") int unpublishedCount) {
+
+        this.publishedCount = publishedCount;
+        this.unpublishedCount = unpublishedCount;
+    }
+}
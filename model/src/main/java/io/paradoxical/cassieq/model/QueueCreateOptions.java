@@ -6,6 +6,9 @@ import io.paradoxical.cassieq.model.validators.StringTypeValid;
 import lombok.Builder;
 import lombok.Data;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
 import java.util.Optional;
 
 @Data
@@ -17,6 +20,10 @@ public class QueueCreateOptions {
     private static final Integer DEFAULT_REPAIR_POLL_BUCKET_FINALIZE_SECONDS = 15;
     private static final Integer DEFAULT_MAX_DELIVERY = 5;
     private static final Boolean DEFAULT_DELETE_BUCKETS_ON_FINALIZE = true;
+    private static final Boolean DEFAULT_SPLIT_MESSAGE_BODY = false;
+    private static final Boolean DEFAULT_COMPRESS_MESSAGES = false;
+    private static final Integer DEFAULT_SHARD_COUNT = 1;
+    private static final Integer DEFAULT_PRIORITY_LANES = 1;
 
     @StringTypeValid
     private final QueueName queueName;
@@ -54,6 +61,32 @@ public class QueueCreateOptions {
      */
     private final Optional<QueueName> dlqName;
 
+    /**
+     * Store message bodies separately from message state. Worth it for large messages,
+     * since readers scan whole buckets of state but only need the body of what they claim
+     */
+    private final Boolean splitMessageBody;
+
+    /**
+     * Deflate message bodies in storage. Bodies are inflated again before they're handed out
+     */
+    private final Boolean compressMessages;
+
+    /**
+     * Spread the queue over this many independent shards. Publish and read throughput scale with
+     * the shard count, but messages are only delivered in order within a shard
+     */
+    @Min(1)
+    private final Integer shardCount;
+
+    /**
+     * How many priorities messages can be published with, from 0 up. Readers favor higher priorities
+     * without starving the lower ones
+     */
+    @Min(1)
+    @Max(16)
+    private final Integer priorityLanes;
+
     public QueueCreateOptions(QueueName queueName) {
         this(queueName,
              DEFAULT_BUCKET_SIZE,
@@ -61,7 +94,11 @@ public class QueueCreateOptions {
              DEFAULT_REPAIR_POLL_SECONDS,
              DEFAULT_REPAIR_POLL_BUCKET_FINALIZE_SECONDS,
              DEFAULT_DELETE_BUCKETS_ON_FINALIZE,
-             Optional.empty());
+             Optional.empty(),
+             DEFAULT_SPLIT_MESSAGE_BODY,
+             DEFAULT_COMPRESS_MESSAGES,
+             DEFAULT_SHARD_COUNT,
+             DEFAULT_PRIORITY_LANES);
     }
 
     @JsonCreator
@@ -72,7 +109,11 @@ public class QueueCreateOptions {
             @JsonProperty("repairWorkerPollSeconds") Integer repairWorkerPollSeconds,
             @JsonProperty("repairWorkerBucketFinalizeTimeSeconds") Integer repairWorkerBucketFinalizeTimeSeconds,
             @JsonProperty("deleteBucketsAfterFinalize") Boolean deleteBucketsAfterFinalize,
-            @JsonProperty("dlqName") Optional<QueueName> dlqName) {
+            @JsonProperty("dlqName") Optional<QueueName> dlqName,
+            @JsonProperty("splitMessageBody") Boolean splitMessageBody,
+            @JsonProperty("compressMessages") Boolean compressMessages,
+            @JsonProperty("shardCount") Integer shardCount,
+            @JsonProperty("priorityLanes") Integer priorityLanes) {
 
         this.queueName = queueName;
 
@@ -86,5 +127,13 @@ public class QueueCreateOptions {
         this.deleteBucketsAfterFinalize = deleteBucketsAfterFinalize == null ? DEFAULT_DELETE_BUCKETS_ON_FINALIZE : deleteBucketsAfterFinalize;
 
         this.dlqName = dlqName;
+
+        this.splitMessageBody = splitMessageBody == null ? DEFAULT_SPLIT_MESSAGE_BODY : splitMessageBody;
+
+        this.compressMessages = compressMessages == null ? DEFAULT_COMPRESS_MESSAGES : compressMessages;
+
+        this.shardCount = shardCount == null ? DEFAULT_SHARD_COUNT : shardCount;
+
+        this.priorityLanes = priorityLanes == null ? DEFAULT_PRIORITY_LANES : priorityLanes;
     }
 }
@@ -6,9 +6,21 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class MacProviders {
 
+    private static final int MaxPooledKeysPerThread = 64;
+
+    private static final ThreadLocal<Map<String, Mac>> pooledHmacSha256 =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<String, Mac>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Mac> eldest) {
+                    return size() > MaxPooledKeysPerThread;
+                }
+            });
+
     public static Mac HmacSha256(AccountKey key) {
         final String hmacSHA2561Algo = HMAC.SHA256;
 
@@ -23,4 +35,18 @@ public class MacProviders {
             throw new AssertionError("Error initializing mac", e);
         }
     }
+
+    /**
+     * An already initialized mac for this key, reused across calls on the current thread.
+     *
+     * The same instance is handed out again on the next call from this thread, so finish
+     * with it before asking for another and never pass it to another thread
+     */
+    public static Mac pooledHmacSha256(AccountKey key) {
+        final Mac mac = pooledHmacSha256.get().computeIfAbsent(key.get(), ignored -> HmacSha256(key));
+
+        mac.reset();
+
+        return mac;
+    }
 }